@@ -1,6 +1,12 @@
 package com.mhm.clients;
 
 import com.mhm.models.KeycloackUserDTO;
+import com.mhm.models.KeycloakClient;
+import com.mhm.models.KeycloakEvent;
+import com.mhm.models.KeycloakGroup;
+import com.mhm.models.KeycloakRealm;
+import com.mhm.models.KeycloakRole;
+import com.mhm.models.KeycloakSession;
 import com.mhm.models.TokenModel;
 import io.quarkus.rest.client.reactive.ClientFormParam;
 import io.smallrye.mutiny.Uni;
@@ -88,6 +94,14 @@ public interface KeycloakAdminClient {
                                          @QueryParam("first") Integer first,
                                          @QueryParam("max") Integer max);
 
+    // exact=true matches the whole username (case-insensitively) instead of a substring
+    @GET
+    @Path("/admin/realms/moba/users")
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<List<KeycloackUserDTO>> findUsersByUsername(@HeaderParam("Authorization") String adminToken,
+                                                    @QueryParam("username") String username,
+                                                    @QueryParam("exact") boolean exact);
+
     @PUT
     @Path("/admin/realms/moba/users/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -129,7 +143,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/users/{id}/sessions")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getUserSessions(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId);
+    Uni<List<KeycloakSession>> getUserSessions(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId);
 
     @DELETE
     @Path("/admin/realms/moba/users/{id}/sessions")
@@ -142,7 +156,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/groups")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getGroups(@HeaderParam("Authorization") String adminToken);
+    Uni<List<KeycloakGroup>> getGroups(@HeaderParam("Authorization") String adminToken);
 
     @POST
     @Path("/admin/realms/moba/groups")
@@ -152,7 +166,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/groups/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<Map<String, Object>> getGroupById(@HeaderParam("Authorization") String adminToken, @PathParam("id") String groupId);
+    Uni<KeycloakGroup> getGroupById(@HeaderParam("Authorization") String adminToken, @PathParam("id") String groupId);
 
     @PUT
     @Path("/admin/realms/moba/groups/{id}")
@@ -166,7 +180,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/users/{id}/groups")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getUserGroups(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId);
+    Uni<List<KeycloakGroup>> getUserGroups(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId);
 
     @PUT
     @Path("/admin/realms/moba/users/{userId}/groups/{groupId}")
@@ -183,7 +197,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/roles")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getRoles(@HeaderParam("Authorization") String adminToken);
+    Uni<List<KeycloakRole>> getRoles(@HeaderParam("Authorization") String adminToken);
 
     @POST
     @Path("/admin/realms/moba/roles")
@@ -193,7 +207,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/roles/{name}")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<Map<String, Object>> getRoleByName(@HeaderParam("Authorization") String adminToken, @PathParam("name") String roleName);
+    Uni<KeycloakRole> getRoleByName(@HeaderParam("Authorization") String adminToken, @PathParam("name") String roleName);
 
     @PUT
     @Path("/admin/realms/moba/roles/{name}")
@@ -207,17 +221,17 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/users/{id}/role-mappings/realm")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getUserRoles(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId);
+    Uni<List<KeycloakRole>> getUserRoles(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId);
 
     @POST
     @Path("/admin/realms/moba/users/{id}/role-mappings/realm")
     @Consumes(MediaType.APPLICATION_JSON)
-    Uni<Response> addRolesToUser(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId, List<Map<String, Object>> roles);
+    Uni<Response> addRolesToUser(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId, List<KeycloakRole> roles);
 
     @DELETE
     @Path("/admin/realms/moba/users/{id}/role-mappings/realm")
     @Consumes(MediaType.APPLICATION_JSON)
-    Uni<Response> removeRolesFromUser(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId, List<Map<String, Object>> roles);
+    Uni<Response> removeRolesFromUser(@HeaderParam("Authorization") String adminToken, @PathParam("id") String userId, List<KeycloakRole> roles);
 
     // =================================
     // REALM MANAGEMENT
@@ -226,22 +240,24 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<Map<String, Object>> getRealmInfo(@HeaderParam("Authorization") String adminToken);
+    Uni<KeycloakRealm> getRealmInfo(@HeaderParam("Authorization") String adminToken);
 
     @PUT
     @Path("/admin/realms/moba")
     @Consumes(MediaType.APPLICATION_JSON)
     Uni<Response> updateRealm(@HeaderParam("Authorization") String adminToken, Map<String, Object> realmData);
 
+    // Newest first; dateFrom is a day (yyyy-MM-dd)
     @GET
     @Path("/admin/realms/moba/events")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getEvents(@HeaderParam("Authorization") String adminToken,
-                                             @QueryParam("type") String type,
-                                             @QueryParam("client") String client,
-                                             @QueryParam("user") String user,
-                                             @QueryParam("first") Integer first,
-                                             @QueryParam("max") Integer max);
+    Uni<List<KeycloakEvent>> getEvents(@HeaderParam("Authorization") String adminToken,
+                                       @QueryParam("type") String type,
+                                       @QueryParam("client") String client,
+                                       @QueryParam("user") String user,
+                                       @QueryParam("dateFrom") String dateFrom,
+                                       @QueryParam("first") Integer first,
+                                       @QueryParam("max") Integer max);
 
     @DELETE
     @Path("/admin/realms/moba/events")
@@ -254,7 +270,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/clients")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getClients(@HeaderParam("Authorization") String adminToken);
+    Uni<List<KeycloakClient>> getClients(@HeaderParam("Authorization") String adminToken);
 
     @POST
     @Path("/admin/realms/moba/clients")
@@ -264,7 +280,7 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/clients/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<Map<String, Object>> getClientById(@HeaderParam("Authorization") String adminToken, @PathParam("id") String clientId);
+    Uni<KeycloakClient> getClientById(@HeaderParam("Authorization") String adminToken, @PathParam("id") String clientId);
 
     @PUT
     @Path("/admin/realms/moba/clients/{id}")
@@ -278,6 +294,6 @@ public interface KeycloakAdminClient {
     @GET
     @Path("/admin/realms/moba/clients/{id}/user-sessions")
     @Produces(MediaType.APPLICATION_JSON)
-    Uni<List<Map<String, Object>>> getClientUserSessions(@HeaderParam("Authorization") String adminToken, @PathParam("id") String clientId);
+    Uni<List<KeycloakSession>> getClientUserSessions(@HeaderParam("Authorization") String adminToken, @PathParam("id") String clientId);
 
 } 
\ No newline at end of file
@@ -0,0 +1,262 @@
+package com.mhm.clients.sendgrid;
+
+import com.mhm.exceptions.EmailDeliveryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds and paces calls to an email provider so throughput settles at what it can actually take.
+ *
+ * Concurrency follows AIMD: every fast response grows the limit by roughly one per round trip,
+ * a 429 or a response slower than the latency target cuts it multiplicatively. Like TCP, only
+ * calls started after the last cut can cut again, so one burst counts once. A Retry-After pauses
+ * every sender, retries use full-jitter exponential backoff, and consecutive provider failures
+ * open a circuit breaker that lets a single trial call through once the open period has passed.
+ */
+public class AdaptiveSendGovernor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveSendGovernor.class);
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    @FunctionalInterface
+    public interface SendCall<T> {
+        T call() throws IOException;
+    }
+
+    private final SendGovernorSettings settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long pausedUntil;
+    private long lastDecreaseAt;
+
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public AdaptiveSendGovernor(SendGovernorSettings settings) {
+        this.settings = settings;
+        this.limit = settings.initialLimit();
+        this.lastDecreaseAt = System.nanoTime();
+    }
+
+    /**
+     * Run the call under a permit, retrying retryable failures with backoff.
+     */
+    public <T> T execute(SendCall<T> call) {
+        EmailDeliveryException failure = null;
+        for (int attempt = 1; attempt <= settings.maxAttempts(); attempt++) {
+            boolean trial = acquire();
+            long start = System.nanoTime();
+            try {
+                T result = call.call();
+                onSuccess(start);
+                return result;
+            } catch (EmailDeliveryException e) {
+                failure = e;
+                onFailure(failure, start);
+            } catch (IOException e) {
+                failure = new EmailDeliveryException("Email provider request failed: " + e.getMessage(), e);
+                onFailure(failure, start);
+            } finally {
+                // Also on unexpected runtime exceptions, which would otherwise leave the trial slot taken
+                release(trial);
+            }
+
+            if (!failure.isRetryable() || attempt == settings.maxAttempts()) {
+                break;
+            }
+            long delay = backoffMillis(attempt, failure);
+            LOGGER.debug("Email send attempt {} failed ({}), retrying in {} ms",
+                attempt, failure.getStatusCode(), delay);
+            sleep(delay);
+        }
+        throw failure;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CircuitState getCircuitState() {
+        lock.lock();
+        try {
+            return circuitState;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================
+    // PERMITS
+    // ===================================
+
+    // True when the permit is the half-open circuit's single trial
+    private boolean acquire() {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + settings.acquireTimeoutMillis();
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (now >= deadline) {
+                    throw EmailDeliveryException.permitTimeout();
+                }
+
+                long waitMillis = deadline - now;
+                if (now < pausedUntil) {
+                    waitMillis = Math.min(waitMillis, pausedUntil - now);
+                } else if (circuitState == CircuitState.OPEN) {
+                    long remaining = openedAt + settings.openStateMillis() - now;
+                    if (remaining > 0) {
+                        throw EmailDeliveryException.circuitOpen(remaining);
+                    }
+                    circuitState = CircuitState.HALF_OPEN;
+                    trialInFlight = false;
+                    LOGGER.info("Email provider circuit half-open, sending a trial request");
+                    continue;
+                } else if (circuitState == CircuitState.HALF_OPEN) {
+                    if (!trialInFlight) {
+                        trialInFlight = true;
+                        inFlight++;
+                        return true;
+                    }
+                } else if (inFlight < (int) limit) {
+                    break;
+                }
+                permitFreed.await(waitMillis, TimeUnit.MILLISECONDS);
+            }
+            inFlight++;
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmailDeliveryException("Interrupted waiting for an email send permit", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(boolean trial) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (trial) {
+                // The outcome, if any, has been recorded; without one the next caller gets to try
+                trialInFlight = false;
+            }
+            permitFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ===================================
+    // FEEDBACK
+    // ===================================
+
+    private void onSuccess(long startedAt) {
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (circuitState == CircuitState.HALF_OPEN) {
+                circuitState = CircuitState.CLOSED;
+                LOGGER.info("Email provider circuit closed");
+            }
+            if (latencyMillis > settings.latencyTargetMillis()) {
+                decrease(startedAt, "latency " + latencyMillis + " ms");
+            } else {
+                // Additive increase: about +1 per full window of successful calls
+                limit = Math.min(settings.maxLimit(), limit + 1.0 / limit);
+            }
+            permitFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onFailure(EmailDeliveryException failure, long startedAt) {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (failure.isThrottled()) {
+                decrease(startedAt, "429");
+                if (failure.getRetryAfterMillis() > 0) {
+                    pausedUntil = Math.max(pausedUntil, now + failure.getRetryAfterMillis());
+                }
+                // Throttling says nothing about provider health
+                if (circuitState == CircuitState.HALF_OPEN) {
+                    trialInFlight = false;
+                }
+            } else if (failure.isRetryable()) {
+                decrease(startedAt, "status " + failure.getStatusCode());
+                consecutiveFailures++;
+                if (circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= settings.failureThreshold()) {
+                    circuitState = CircuitState.OPEN;
+                    openedAt = now;
+                    LOGGER.warn("Email provider circuit opened after {} consecutive failures", consecutiveFailures);
+                }
+            } else {
+                // The provider answered; the request itself was bad
+                consecutiveFailures = 0;
+                if (circuitState == CircuitState.HALF_OPEN) {
+                    circuitState = CircuitState.CLOSED;
+                }
+            }
+            permitFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Multiplicative decrease, skipped for calls that were already in flight at the last cut
+    private void decrease(long startedAt, String reason) {
+        if (startedAt - lastDecreaseAt < 0) {
+            return;
+        }
+        lastDecreaseAt = System.nanoTime();
+        double previous = limit;
+        limit = Math.max(settings.minLimit(), limit * settings.decreaseFactor());
+        LOGGER.debug("Email send limit decreased from {} to {} ({})", (int) previous, (int) limit, reason);
+    }
+
+    long backoffMillis(int attempt, EmailDeliveryException failure) {
+        long ceiling = Math.min(settings.maxBackoffMillis(),
+            settings.baseBackoffMillis() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return Math.max(delay, failure.getRetryAfterMillis());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EmailDeliveryException("Interrupted while backing off", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mhm.clients.sendgrid;
+
+import com.mhm.dto.AttachmentDTO;
+import com.mhm.utils.NonClosingOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Content-addressed store of base64 encoded attachments, scoped to one bulk job.
+ *
+ * Attachments with identical bytes (SHA-256) are encoded once and the same buffer
+ * is written into every request body that carries them.
+ */
+public class EncodedAttachmentCache {
+
+    private final Map<String, byte[]> encodedByDigest = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+
+    /**
+     * Base64 (no line breaks) of the attachment content, shared between identical attachments
+     */
+    public byte[] encoded(AttachmentDTO attachment) throws IOException {
+        if (!attachment.isRepeatable()) {
+            // One-shot streams are hashed while they are encoded
+            EncodedContent encoded = encodeAndHash(attachment);
+            byte[] existing = encodedByDigest.putIfAbsent(encoded.digest(), encoded.base64());
+            if (existing != null) {
+                hits.incrementAndGet();
+                return existing;
+            }
+            return encoded.base64();
+        }
+
+        String digest = digest(attachment);
+        byte[] existing = encodedByDigest.get(digest);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return existing;
+        }
+        try {
+            return encodedByDigest.computeIfAbsent(digest, key -> {
+                try {
+                    return encodeAndHash(attachment).base64();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public int size() {
+        return encodedByDigest.size();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    private static String digest(AttachmentDTO attachment) throws IOException {
+        MessageDigest digest = sha256();
+        if (attachment.getContent() != null) {
+            digest.update(attachment.getContent());
+        } else {
+            try (InputStream in = new DigestInputStream(attachment.openStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static EncodedContent encodeAndHash(AttachmentDTO attachment) throws IOException {
+        MessageDigest digest = sha256();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = new DigestInputStream(attachment.openStream(), digest);
+             OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(buffer))) {
+            in.transferTo(encoder);
+        }
+        return new EncodedContent(HexFormat.of().formatHex(digest.digest()), buffer.toByteArray());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record EncodedContent(String digest, byte[] base64) {
+    }
+}
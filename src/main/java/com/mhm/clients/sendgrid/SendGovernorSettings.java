@@ -0,0 +1,18 @@
+package com.mhm.clients.sendgrid;
+
+/**
+ * Tuning of an {@link AdaptiveSendGovernor}.
+ */
+public record SendGovernorSettings(
+    int initialLimit,
+    int minLimit,
+    int maxLimit,
+    long latencyTargetMillis,
+    double decreaseFactor,
+    int maxAttempts,
+    long baseBackoffMillis,
+    long maxBackoffMillis,
+    int failureThreshold,
+    long openStateMillis,
+    long acquireTimeoutMillis) {
+}
@@ -0,0 +1,149 @@
+package com.mhm.clients.sendgrid;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.dto.AttachmentDTO;
+import com.mhm.utils.NonClosingOutputStream;
+import com.sendgrid.Response;
+import com.sendgrid.helpers.mail.Mail;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posts v3/mail/send requests with the request body streamed to the socket.
+ *
+ * The envelope is serialized by the SendGrid helper without attachments, and each
+ * attachment is base64 encoded on the fly straight into the chunked request body,
+ * so the raw bytes, the encoded string and the JSON document are never all in memory.
+ */
+@ApplicationScoped
+public class SendGridStreamingClient {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte[] CONTENT_PREFIX = "{\"content\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    @ConfigProperty(name = "sendgrid.api.key")
+    String apiKey;
+
+    @ConfigProperty(name = "sendgrid.api.url", defaultValue = "https://api.sendgrid.com/v3/mail/send")
+    String mailSendUrl;
+
+    @ConfigProperty(name = "sendgrid.api.timeout-millis", defaultValue = "30000")
+    int timeoutMillis;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Send the mail; attachments are encoded from their source, or taken from the shared cache when given
+     */
+    public Response send(Mail mail, List<AttachmentDTO> attachments, EncodedAttachmentCache cache) throws IOException {
+        String envelope = mail.build();
+
+        HttpURLConnection connection = (HttpURLConnection) URI.create(mailSendUrl).toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(CHUNK_SIZE);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Authorization", "Bearer " + apiKey);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("Accept", "application/json");
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(connection.getOutputStream(), CHUNK_SIZE)) {
+                writeBody(out, envelope, attachments, cache);
+            }
+            return readResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    void writeBody(OutputStream out, String envelope, List<AttachmentDTO> attachments,
+                   EncodedAttachmentCache cache) throws IOException {
+        if (attachments == null || attachments.isEmpty()) {
+            out.write(envelope.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        // Re-open the envelope object and append the attachments array
+        String open = envelope.substring(0, envelope.lastIndexOf('}'));
+        out.write(open.getBytes(StandardCharsets.UTF_8));
+        out.write(",\"attachments\":[".getBytes(StandardCharsets.US_ASCII));
+
+        for (int i = 0; i < attachments.size(); i++) {
+            AttachmentDTO attachment = attachments.get(i);
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(CONTENT_PREFIX);
+            if (cache != null) {
+                out.write(cache.encoded(attachment));
+            } else {
+                try (InputStream in = attachment.openStream();
+                     OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(out))) {
+                    in.transferTo(encoder);
+                }
+            }
+            out.write('"');
+
+            String metadata = objectMapper.writeValueAsString(metadata(attachment));
+            // metadata is a JSON object; splice its members after the content member
+            if (metadata.length() > 2) {
+                out.write(',');
+                out.write(metadata.substring(1).getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write('}');
+            }
+        }
+        out.write("]}".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Map<String, String> metadata(AttachmentDTO attachment) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        putIfPresent(metadata, "filename", attachment.getFilename());
+        putIfPresent(metadata, "type", attachment.getContentType());
+        putIfPresent(metadata, "disposition", attachment.getDisposition());
+        putIfPresent(metadata, "content_id", attachment.getContentId());
+        return metadata;
+    }
+
+    private static void putIfPresent(Map<String, String> map, String key, String value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static Response readResponse(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream bodyStream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        String body = "";
+        if (bodyStream != null) {
+            try (bodyStream) {
+                body = new String(bodyStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        connection.getHeaderFields().forEach((name, values) -> {
+            if (name != null) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new Response(status, body, headers);
+    }
+}
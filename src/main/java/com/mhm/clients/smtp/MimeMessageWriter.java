@@ -0,0 +1,180 @@
+package com.mhm.clients.smtp;
+
+import com.mhm.dto.AttachmentDTO;
+import com.mhm.dto.EmailDTO;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.utils.NonClosingOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Turns an {@link EmailDTO} into an SMTP envelope and streams its MIME content.
+ *
+ * Text parts and attachments are base64 encoded, so no line ever starts with a dot
+ * and no line exceeds the 998 character limit. Addresses and attachment fields come from
+ * the caller and are checked before anything is written, so none of them can inject
+ * SMTP commands or headers; free text (display name, subject) is RFC 2047 encoded.
+ */
+public final class MimeMessageWriter {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] MIME_LINE_SEPARATOR = CRLF;
+
+    private MimeMessageWriter() {
+        // Utility class
+    }
+
+    /**
+     * @throws ValidationException if an address or attachment field could break the SMTP dialogue or the headers
+     */
+    public static SmtpMessage toMessage(EmailDTO email, String defaultFrom, String defaultFromName) {
+        String from = email.getFrom() != null ? email.getFrom() : defaultFrom;
+        String fromName = email.getFromName() != null ? email.getFromName() : defaultFromName;
+
+        List<String> recipients = new ArrayList<>();
+        recipients.add(email.getTo());
+        if (email.getCc() != null) {
+            recipients.addAll(email.getCc());
+        }
+        if (email.getBcc() != null) {
+            recipients.addAll(email.getBcc());
+        }
+
+        requireAddress("from", from);
+        recipients.forEach(recipient -> requireAddress("recipient", recipient));
+        if (email.getAttachments() != null) {
+            for (AttachmentDTO attachment : email.getAttachments()) {
+                requireHeaderSafe("attachment filename", attachment.getFilename());
+                requireHeaderSafe("attachment content type", attachment.getContentType());
+                requireHeaderSafe("attachment disposition", attachment.getDisposition());
+                requireHeaderSafe("attachment content id", attachment.getContentId());
+            }
+        }
+
+        return new SmtpMessage(from, recipients, out -> write(email, from, fromName, out));
+    }
+
+    private static void requireAddress(String field, String address) {
+        if (!SmtpMessage.isValidAddress(address)) {
+            throw new ValidationException("Invalid " + field + " address");
+        }
+    }
+
+    // Quoted into header values: no line breaks, controls or quotes
+    private static void requireHeaderSafe(String field, String value) {
+        if (value != null && !value.chars().allMatch(c -> c >= 0x20 && c != 0x7f && c != '"')) {
+            throw new ValidationException("Invalid " + field);
+        }
+    }
+
+    static void write(EmailDTO email, String from, String fromName, OutputStream out) throws IOException {
+        header(out, "From", fromName != null ? encodeWord(fromName) + " <" + from + ">" : from);
+        header(out, "To", email.getTo());
+        if (email.getCc() != null && !email.getCc().isEmpty()) {
+            header(out, "Cc", String.join(", ", email.getCc()));
+        }
+        header(out, "Subject", encodeWord(email.getSubject() != null ? email.getSubject() : ""));
+        header(out, "Date", ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME));
+        header(out, "Message-ID", "<" + UUID.randomUUID() + "@" + domainOf(from) + ">");
+        header(out, "MIME-Version", "1.0");
+
+        boolean hasAttachments = email.getAttachments() != null && !email.getAttachments().isEmpty();
+        if (!hasAttachments) {
+            writeBody(email, out);
+            return;
+        }
+
+        String boundary = "mixed_" + UUID.randomUUID();
+        header(out, "Content-Type", "multipart/mixed; boundary=\"" + boundary + "\"");
+        out.write(CRLF);
+        boundary(out, boundary, false);
+        writeBody(email, out);
+        for (AttachmentDTO attachment : email.getAttachments()) {
+            boundary(out, boundary, false);
+            writeAttachment(attachment, out);
+        }
+        boundary(out, boundary, true);
+    }
+
+    private static void writeBody(EmailDTO email, OutputStream out) throws IOException {
+        if (email.getHtmlContent() == null) {
+            textPart(out, "text/plain", email.getTextContent());
+            return;
+        }
+        if (email.getTextContent() == null) {
+            textPart(out, "text/html", email.getHtmlContent());
+            return;
+        }
+
+        String boundary = "alt_" + UUID.randomUUID();
+        header(out, "Content-Type", "multipart/alternative; boundary=\"" + boundary + "\"");
+        out.write(CRLF);
+        boundary(out, boundary, false);
+        textPart(out, "text/plain", email.getTextContent());
+        boundary(out, boundary, false);
+        textPart(out, "text/html", email.getHtmlContent());
+        boundary(out, boundary, true);
+    }
+
+    private static void textPart(OutputStream out, String contentType, String content) throws IOException {
+        header(out, "Content-Type", contentType + "; charset=UTF-8");
+        header(out, "Content-Transfer-Encoding", "base64");
+        out.write(CRLF);
+        byte[] bytes = (content != null ? content : "").getBytes(StandardCharsets.UTF_8);
+        out.write(Base64.getMimeEncoder(76, MIME_LINE_SEPARATOR).encode(bytes));
+        out.write(CRLF);
+    }
+
+    private static void writeAttachment(AttachmentDTO attachment, OutputStream out) throws IOException {
+        String contentType = attachment.getContentType() != null ? attachment.getContentType() : "application/octet-stream";
+        String disposition = attachment.getDisposition() != null ? attachment.getDisposition() : "attachment";
+
+        header(out, "Content-Type", contentType + "; name=\"" + attachment.getFilename() + "\"");
+        header(out, "Content-Disposition", disposition + "; filename=\"" + attachment.getFilename() + "\"");
+        if (attachment.getContentId() != null) {
+            header(out, "Content-ID", "<" + attachment.getContentId() + ">");
+        }
+        header(out, "Content-Transfer-Encoding", "base64");
+        out.write(CRLF);
+
+        // Stream the source through the encoder, the attachment is never fully buffered
+        try (InputStream in = attachment.openStream();
+             OutputStream encoder = Base64.getMimeEncoder(76, MIME_LINE_SEPARATOR).wrap(new NonClosingOutputStream(out))) {
+            in.transferTo(encoder);
+        }
+        out.write(CRLF);
+    }
+
+    private static void header(OutputStream out, String name, String value) throws IOException {
+        out.write((name + ": " + value).getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+
+    private static void boundary(OutputStream out, String boundary, boolean last) throws IOException {
+        out.write(("--" + boundary + (last ? "--" : "")).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    // RFC 2047 encoded-word for non-ASCII header values
+    private static String encodeWord(String value) {
+        boolean ascii = value.chars().allMatch(c -> c >= 0x20 && c < 0x7f);
+        if (ascii) {
+            return value;
+        }
+        return "=?UTF-8?B?" + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) + "?=";
+    }
+
+    private static String domainOf(String address) {
+        int at = address != null ? address.lastIndexOf('@') : -1;
+        return at >= 0 ? address.substring(at + 1) : "localhost";
+    }
+}
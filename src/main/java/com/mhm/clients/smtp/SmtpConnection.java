@@ -0,0 +1,382 @@
+package com.mhm.clients.smtp;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A single authenticated SMTP session that can deliver many messages.
+ *
+ * When the server advertises PIPELINING (RFC 2920) the envelope commands of a message
+ * are written in one batch, and the end-of-data marker of one message is grouped with
+ * the envelope of the next, so a message costs roughly one round trip instead of four.
+ * Recipients refused by the server are skipped; a message fails only when its envelope
+ * or content is rejected.
+ */
+public class SmtpConnection implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] END_OF_DATA = ".\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final SmtpSettings settings;
+    private final SSLSocketFactory sslSocketFactory;
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private final Set<String> extensions = new HashSet<>();
+    private boolean open;
+
+    private final long createdAt = System.currentTimeMillis();
+    private long lastUsedAt = createdAt;
+    private int messagesSent;
+
+    public SmtpConnection(SmtpSettings settings, SSLSocketFactory sslSocketFactory) {
+        this.settings = settings;
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    /**
+     * Open the socket, say EHLO, upgrade with STARTTLS and authenticate.
+     */
+    public void connect() throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(settings.host(), settings.port()), settings.connectTimeoutMillis());
+        socket.setSoTimeout(settings.readTimeoutMillis());
+        socket.setKeepAlive(true);
+        socket.setTcpNoDelay(true);
+        bindStreams();
+        open = true;
+
+        try {
+            readReply().expect(220, "greeting");
+            ehlo();
+
+            if (settings.startTls()) {
+                if (!extensions.contains("STARTTLS")) {
+                    throw new SmtpException("Server does not support STARTTLS", 0);
+                }
+                command("STARTTLS").expect(220, "STARTTLS");
+                SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(
+                    socket, settings.host(), settings.port(), true);
+                sslSocket.startHandshake();
+                socket = sslSocket;
+                bindStreams();
+                ehlo();
+            }
+
+            if (settings.auth()) {
+                authenticate();
+            }
+        } catch (IOException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    public boolean supportsPipelining() {
+        return extensions.contains("PIPELINING");
+    }
+
+    /**
+     * Deliver a single message on this session.
+     */
+    public void send(SmtpMessage message) throws IOException {
+        sendAll(List.of(message));
+    }
+
+    /**
+     * Deliver several messages on this session, pipelining across message boundaries
+     * when the server allows it.
+     */
+    public void sendAll(List<SmtpMessage> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!supportsPipelining()) {
+            for (SmtpMessage message : messages) {
+                sendLockstep(message);
+            }
+            return;
+        }
+
+        writeEnvelope(messages.get(0));
+        out.flush();
+        for (int i = 0; i < messages.size(); i++) {
+            SmtpMessage message = messages.get(i);
+            readEnvelopeReplies(message);
+
+            writeContent(message);
+
+            // Group the next envelope with the end of this message (RFC 2920, section 3.1)
+            SmtpMessage next = i + 1 < messages.size() ? messages.get(i + 1) : null;
+            if (next != null) {
+                writeEnvelope(next);
+            }
+            out.flush();
+
+            SmtpReply accepted = readReply();
+            if (accepted.code() != 250) {
+                if (next != null) {
+                    // The next envelope is already on the wire and its DATA may have been accepted;
+                    // the only way to end that is a body, which would deliver an empty message.
+                    // Drop the session instead: an unterminated transaction is never delivered.
+                    closeQuietly();
+                }
+                throw new SmtpException("Message rejected: " + accepted.code() + " " + accepted.text(), accepted.code());
+            }
+            messagesSent++;
+        }
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Cheap liveness probe used before handing an idle connection out again.
+     */
+    public boolean isValid() {
+        if (!open || socket.isClosed()) {
+            return false;
+        }
+        try {
+            return command("NOOP").code() == 250;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Clear any half-finished transaction so the session can be reused.
+     */
+    public void reset() throws IOException {
+        command("RSET").expect(250, "RSET");
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public int getMessagesSent() {
+        return messagesSent;
+    }
+
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        try {
+            writeLine("QUIT");
+            out.flush();
+            readReply();
+        } catch (IOException ignored) {
+            // Best effort, the socket is closed below anyway
+        }
+        closeQuietly();
+    }
+
+    // ===================================
+    // PROTOCOL HELPERS
+    // ===================================
+
+    private void sendLockstep(SmtpMessage message) throws IOException {
+        command("MAIL FROM:<" + message.sender() + ">").expect(250, "MAIL FROM");
+        int acceptedRecipients = 0;
+        for (String recipient : message.recipients()) {
+            int code = command("RCPT TO:<" + recipient + ">").code();
+            if (code == 250 || code == 251) {
+                acceptedRecipients++;
+            }
+        }
+        if (acceptedRecipients == 0) {
+            command("RSET");
+            throw new SmtpException("All recipients rejected", 550);
+        }
+        command("DATA").expect(354, "DATA");
+        writeContent(message);
+        out.flush();
+        readReply().expect(250, "end of DATA");
+        messagesSent++;
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    private void writeContent(SmtpMessage message) throws IOException {
+        DotStuffingOutputStream content = new DotStuffingOutputStream(out);
+        message.content().writeTo(content);
+        if (!content.atLineStart) {
+            out.write(CRLF);
+        }
+        out.write(END_OF_DATA);
+    }
+
+    private void writeEnvelope(SmtpMessage message) throws IOException {
+        writeLine("MAIL FROM:<" + message.sender() + ">");
+        for (String recipient : message.recipients()) {
+            writeLine("RCPT TO:<" + recipient + ">");
+        }
+        writeLine("DATA");
+    }
+
+    private void readEnvelopeReplies(SmtpMessage message) throws IOException {
+        SmtpReply mailFrom = readReply();
+        int acceptedRecipients = 0;
+        for (int i = 0; i < message.recipients().size(); i++) {
+            int code = readReply().code();
+            if (code == 250 || code == 251) {
+                acceptedRecipients++;
+            }
+        }
+        SmtpReply data = readReply();
+
+        if (data.code() != 354) {
+            command("RSET");
+            int code = mailFrom.code() != 250 ? mailFrom.code() : data.code();
+            throw new SmtpException("Envelope rejected (" + acceptedRecipients + " of "
+                + message.recipients().size() + " recipients accepted): " + code, code);
+        }
+    }
+
+    private void ehlo() throws IOException {
+        SmtpReply reply = command("EHLO " + settings.heloName()).expect(250, "EHLO");
+        extensions.clear();
+        for (int i = 1; i < reply.lines().size(); i++) {
+            String line = reply.lines().get(i).toUpperCase(Locale.ROOT);
+            extensions.add(line);
+            int space = line.indexOf(' ');
+            if (space > 0) {
+                extensions.add(line.substring(0, space));
+            }
+        }
+    }
+
+    private void authenticate() throws IOException {
+        String credentials = "\0" + settings.username() + "\0" + settings.password();
+        String encoded = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        command("AUTH PLAIN " + encoded).expect(235, "AUTH");
+    }
+
+    private SmtpReply command(String line) throws IOException {
+        writeLine(line);
+        out.flush();
+        return readReply();
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private SmtpReply readReply() throws IOException {
+        List<String> lines = new ArrayList<>(1);
+        while (true) {
+            String line = readLine();
+            if (line.length() < 3) {
+                throw new SmtpException("Malformed reply: " + line, 0);
+            }
+            lines.add(line.length() > 4 ? line.substring(4) : "");
+            if (line.length() == 3 || line.charAt(3) == ' ') {
+                return new SmtpReply(Integer.parseInt(line.substring(0, 3)), lines);
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                byte[] bytes = buffer.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+            }
+            buffer.write(b);
+        }
+        open = false;
+        throw new EOFException("SMTP server closed the connection");
+    }
+
+    private void bindStreams() throws IOException {
+        in = new BufferedInputStream(socket.getInputStream());
+        out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+    }
+
+    private void closeQuietly() {
+        open = false;
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException ignored) {
+            // Nothing left to do
+        }
+    }
+
+    /**
+     * Escapes lines starting with '.' while the message content is written (RFC 5321, 4.5.2).
+     */
+    static final class DotStuffingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private boolean atLineStart = true;
+
+        DotStuffingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (atLineStart && b == '.') {
+                delegate.write('.');
+            }
+            delegate.write(b);
+            atLineStart = b == '\n';
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int start = off;
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                if (atLineStart && b[i] == '.') {
+                    delegate.write(b, start, i - start);
+                    delegate.write('.');
+                    start = i;
+                }
+                atLineStart = b[i] == '\n';
+            }
+            delegate.write(b, start, end - start);
+        }
+
+        @Override
+        public void flush() {
+            // The connection flushes once per pipelined group
+        }
+
+        @Override
+        public void close() {
+            // Never close the underlying socket stream
+        }
+    }
+}
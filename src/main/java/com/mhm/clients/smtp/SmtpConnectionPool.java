@@ -0,0 +1,161 @@
+package com.mhm.clients.smtp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of authenticated SMTP sessions.
+ *
+ * At most {@code maxConnections} sessions exist at any time. Idle sessions are reused
+ * most-recently-used first, probed with NOOP when they have been idle longer than
+ * {@code validateAfterIdleMillis}, and retired after {@code maxIdleMillis} or
+ * {@code maxMessagesPerConnection} deliveries.
+ */
+public class SmtpConnectionPool implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        SmtpConnection open() throws IOException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxConnections;
+    private final long borrowTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final long maxIdleMillis;
+    private final int maxMessagesPerConnection;
+
+    private final Semaphore permits;
+    private final Deque<SmtpConnection> idle = new ArrayDeque<>();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private volatile boolean closed;
+
+    public SmtpConnectionPool(ConnectionFactory factory,
+                              int maxConnections,
+                              long borrowTimeoutMillis,
+                              long validateAfterIdleMillis,
+                              long maxIdleMillis,
+                              int maxMessagesPerConnection) {
+        this.factory = factory;
+        this.maxConnections = maxConnections;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Run an action on a pooled session. The session is returned to the pool when the
+     * action succeeds or fails with an SMTP reply, and discarded on I/O errors.
+     */
+    public <T> T execute(SessionAction<T> action) throws IOException {
+        SmtpConnection connection = borrow();
+        boolean reusable = false;
+        try {
+            T result = action.apply(connection);
+            reusable = true;
+            return result;
+        } catch (SmtpException e) {
+            // The server answered, so the session itself is still in a known state
+            reusable = connection.isOpen();
+            throw e;
+        } finally {
+            release(connection, reusable);
+        }
+    }
+
+    @FunctionalInterface
+    public interface SessionAction<T> {
+        T apply(SmtpConnection connection) throws IOException;
+    }
+
+    public SmtpConnection borrow() throws IOException {
+        if (closed) {
+            throw new IOException("SMTP connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for an SMTP connection (max " + maxConnections + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        try {
+            SmtpConnection connection;
+            while ((connection = pollIdle()) != null) {
+                long idleFor = System.currentTimeMillis() - connection.getLastUsedAt();
+                if (idleFor > maxIdleMillis) {
+                    connection.close();
+                } else if (idleFor > validateAfterIdleMillis && !connection.isValid()) {
+                    LOGGER.debug("Discarding stale SMTP connection idle for {} ms", idleFor);
+                    connection.close();
+                } else {
+                    return connection;
+                }
+            }
+            connection = factory.open();
+            connectionsOpened.incrementAndGet();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(SmtpConnection connection, boolean reusable) {
+        try {
+            if (!closed && reusable && connection.isOpen()
+                    && connection.getMessagesSent() < maxMessagesPerConnection) {
+                synchronized (idle) {
+                    idle.push(connection);
+                }
+            } else {
+                connection.close();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        SmtpConnection connection;
+        while ((connection = pollIdle()) != null) {
+            connection.close();
+        }
+    }
+
+    private SmtpConnection pollIdle() {
+        synchronized (idle) {
+            return idle.poll();
+        }
+    }
+}
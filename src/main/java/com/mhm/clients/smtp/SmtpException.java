@@ -0,0 +1,25 @@
+package com.mhm.clients.smtp;
+
+import java.io.IOException;
+
+/**
+ * Raised when the SMTP server answers with an unexpected reply code.
+ */
+public class SmtpException extends IOException {
+
+    private final int replyCode;
+
+    public SmtpException(String message, int replyCode) {
+        super(message);
+        this.replyCode = replyCode;
+    }
+
+    public int getReplyCode() {
+        return replyCode;
+    }
+
+    // 4xx replies are temporary, the message can be retried on another connection
+    public boolean isTransient() {
+        return replyCode >= 400 && replyCode < 500;
+    }
+}
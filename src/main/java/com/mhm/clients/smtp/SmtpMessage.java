@@ -0,0 +1,41 @@
+package com.mhm.clients.smtp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Envelope plus a writer for the RFC 5322 content of a message.
+ *
+ * Addresses are written verbatim into MAIL FROM and RCPT TO, so anything that could end the
+ * command line or the angle brackets (CR, LF, other controls, spaces, '<', '>') is rejected.
+ */
+public record SmtpMessage(String sender, List<String> recipients, ContentWriter content) {
+
+    public SmtpMessage {
+        if (!isValidAddress(sender)) {
+            throw new IllegalArgumentException("Invalid sender address");
+        }
+        if (recipients.isEmpty() || !recipients.stream().allMatch(SmtpMessage::isValidAddress)) {
+            throw new IllegalArgumentException("Invalid recipient address");
+        }
+        recipients = List.copyOf(recipients);
+    }
+
+    // Printable ASCII without spaces or brackets, with an '@' that is neither first nor last
+    public static boolean isValidAddress(String address) {
+        if (address == null || address.length() > 254) {
+            return false;
+        }
+        int at = address.lastIndexOf('@');
+        if (at <= 0 || at == address.length() - 1) {
+            return false;
+        }
+        return address.chars().allMatch(c -> c > 0x20 && c < 0x7f && c != '<' && c != '>');
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mhm.clients.smtp;
+
+import java.util.List;
+
+/**
+ * A (possibly multi-line) SMTP server reply.
+ */
+public record SmtpReply(int code, List<String> lines) {
+
+    public boolean isPositive() {
+        return code >= 200 && code < 400;
+    }
+
+    public String text() {
+        return String.join(" ", lines);
+    }
+
+    public SmtpReply expect(int expectedCode, String command) throws SmtpException {
+        if (code != expectedCode) {
+            throw new SmtpException(command + " failed: " + code + " " + text(), code);
+        }
+        return this;
+    }
+}
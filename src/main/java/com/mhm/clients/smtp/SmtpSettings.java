@@ -0,0 +1,16 @@
+package com.mhm.clients.smtp;
+
+/**
+ * Connection parameters shared by all sessions of a pool.
+ */
+public record SmtpSettings(
+        String host,
+        int port,
+        String username,
+        String password,
+        boolean auth,
+        boolean startTls,
+        String heloName,
+        int connectTimeoutMillis,
+        int readTimeoutMillis) {
+}
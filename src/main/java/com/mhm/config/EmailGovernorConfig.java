@@ -0,0 +1,44 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.email.governor")
+public interface EmailGovernorConfig {
+
+    // Concurrent provider calls allowed before any feedback arrives
+    @WithDefault("8")
+    int initialLimit();
+
+    @WithDefault("1")
+    int minLimit();
+
+    @WithDefault("64")
+    int maxLimit();
+
+    // Responses slower than this count as congestion and shrink the limit
+    @WithDefault("2000")
+    long latencyTargetMillis();
+
+    @WithDefault("0.5")
+    double decreaseFactor();
+
+    @WithDefault("5")
+    int maxAttempts();
+
+    @WithDefault("500")
+    long baseBackoffMillis();
+
+    @WithDefault("30000")
+    long maxBackoffMillis();
+
+    // Consecutive provider failures that open the circuit
+    @WithDefault("10")
+    int failureThreshold();
+
+    @WithDefault("30000")
+    long openStateMillis();
+
+    @WithDefault("60000")
+    long acquireTimeoutMillis();
+}
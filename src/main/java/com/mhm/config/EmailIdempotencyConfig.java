@@ -0,0 +1,25 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.email.idempotency")
+public interface EmailIdempotencyConfig {
+
+    @WithDefault("true")
+    boolean enabled();
+
+    // Share results across instances through Redis (the local window is set on the email-idempotency cache)
+    @WithDefault("false")
+    boolean redisEnabled();
+
+    @WithDefault("email:idempotency:")
+    String redisKeyPrefix();
+
+    @WithDefault("600")
+    long redisTtlSeconds();
+
+    // How long an in-progress claim blocks other instances if its owner dies
+    @WithDefault("60")
+    long pendingTtlSeconds();
+}
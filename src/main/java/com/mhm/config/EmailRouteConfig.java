@@ -0,0 +1,36 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.email.routes")
+public interface EmailRouteConfig {
+
+    // SEDA queue settings
+    @WithDefault("10")
+    int concurrentConsumers();
+
+    @WithDefault("1000")
+    int queueSize();
+
+    // Aggregation of async messages into bulk sends
+    @WithDefault("50")
+    int batchSize();
+
+    @WithDefault("2000")
+    long batchTimeoutMillis();
+
+    // Provider quota (requests per period)
+    @WithDefault("100")
+    int maxRequestsPerPeriod();
+
+    @WithDefault("1000")
+    long throttlePeriodMillis();
+
+    // Redelivery / dead-letter settings
+    @WithDefault("3")
+    int maximumRedeliveries();
+
+    @WithDefault("1000")
+    long redeliveryDelayMillis();
+}
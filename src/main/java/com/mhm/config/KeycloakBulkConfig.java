@@ -0,0 +1,15 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.keycloak.bulk")
+public interface KeycloakBulkConfig {
+
+    // Keycloak admin calls in flight at once for one bulk request
+    @WithDefault("16")
+    int concurrency();
+
+    @WithDefault("5000")
+    int maxUsers();
+}
@@ -0,0 +1,23 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.keycloak.cache")
+public interface KeycloakCacheConfig {
+
+    // Keep the admin token and realm metadata (roles, groups, clients, realm info) in memory
+    @WithDefault("true")
+    boolean enabled();
+
+    @WithDefault("300")
+    long metadataTtlSeconds();
+
+    // Share of the TTL after which a value in use is reloaded in the background
+    @WithDefault("0.8")
+    double refreshAhead();
+
+    // The admin token is dropped this long before Keycloak expires it
+    @WithDefault("30")
+    long tokenExpiryMarginSeconds();
+}
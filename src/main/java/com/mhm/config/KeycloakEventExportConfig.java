@@ -0,0 +1,12 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.keycloak.events")
+public interface KeycloakEventExportConfig {
+
+    // Events requested from Keycloak per page; the next page is fetched while this one is written
+    @WithDefault("500")
+    int pageSize();
+}
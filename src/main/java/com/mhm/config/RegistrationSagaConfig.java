@@ -0,0 +1,39 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.registration.saga")
+public interface RegistrationSagaConfig {
+
+    // Periodic poll that retries compensations and recovers sagas interrupted by a crash
+    @WithDefault("true")
+    boolean recoveryEnabled();
+
+    @WithDefault("10")
+    long pollIntervalSeconds();
+
+    // A saga left unfinished this long is treated as interrupted
+    @WithDefault("300")
+    long stuckAfterSeconds();
+
+    // How long a claimed compensation is hidden from other pollers (and replicas)
+    @WithDefault("60")
+    long leaseSeconds();
+
+    @WithDefault("20")
+    int batchSize();
+
+    @WithDefault("10")
+    int maxAttempts();
+
+    @WithDefault("1000")
+    long baseBackoffMillis();
+
+    @WithDefault("300000")
+    long maxBackoffMillis();
+
+    // Completed and compensated sagas are deleted after this long
+    @WithDefault("168")
+    long retentionHours();
+}
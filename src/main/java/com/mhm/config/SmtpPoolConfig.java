@@ -0,0 +1,35 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.smtp.pool")
+public interface SmtpPoolConfig {
+
+    // Hard cap on open SMTP sessions
+    @WithDefault("4")
+    int maxConnections();
+
+    @WithDefault("10000")
+    long borrowTimeoutMillis();
+
+    // Idle sessions older than this are probed with NOOP before reuse
+    @WithDefault("5000")
+    long validateAfterIdleMillis();
+
+    @WithDefault("60000")
+    long maxIdleMillis();
+
+    @WithDefault("100")
+    int maxMessagesPerConnection();
+
+    // Messages pipelined on one session per bulk group
+    @WithDefault("20")
+    int pipelineBatchSize();
+
+    @WithDefault("10000")
+    int connectTimeoutMillis();
+
+    @WithDefault("30000")
+    int readTimeoutMillis();
+}
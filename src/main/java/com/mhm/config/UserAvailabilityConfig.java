@@ -0,0 +1,27 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.user.availability")
+public interface UserAvailabilityConfig {
+
+    // Let /user/availability answer "definitely free" from in-memory filters instead of querying users
+    @WithDefault("true")
+    boolean enabled();
+
+    // Filters are sized for this many users; the false-positive rate rises beyond it
+    @WithDefault("1000000")
+    long expectedUsers();
+
+    @WithDefault("0.01")
+    double falsePositiveRate();
+
+    // Rows fetched per round trip while the filters are loaded at startup
+    @WithDefault("1000")
+    int loadFetchSize();
+
+    // Reloaded from the table this often, picking up users created on other replicas
+    @WithDefault("15")
+    int rebuildIntervalMinutes();
+}
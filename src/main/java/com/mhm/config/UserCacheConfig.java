@@ -0,0 +1,25 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.user.cache")
+public interface UserCacheConfig {
+
+    // Serve GET /user/{id} from the user-profiles cache (size and TTL are set on the cache itself)
+    @WithDefault("true")
+    boolean enabled();
+
+    // Second tier in Redis shared by all replicas, with invalidations broadcast over pub/sub
+    @WithDefault("false")
+    boolean redisEnabled();
+
+    @WithDefault("user:profile:")
+    String redisKeyPrefix();
+
+    @WithDefault("300")
+    long redisTtlSeconds();
+
+    @WithDefault("user:profile:invalidations")
+    String invalidationChannel();
+}
@@ -0,0 +1,24 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.user.export")
+public interface UserExportConfig {
+
+    // Rows fetched from the server-side cursor per round trip
+    @WithDefault("500")
+    int fetchSize();
+
+    // Rows encoded into one chunk written to the client
+    @WithDefault("100")
+    int rowsPerChunk();
+
+    // The export holds a pool connection and a transaction open: give up when the client
+    // reads nothing for this long, or when the whole export takes longer than the maximum
+    @WithDefault("30")
+    int maxIdleSeconds();
+
+    @WithDefault("900")
+    int maxDurationSeconds();
+}
@@ -0,0 +1,20 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.user.import")
+public interface UserImportConfig {
+
+    // Rows validated, checked and inserted together; one multi-row INSERT per batch
+    @WithDefault("500")
+    int batchSize();
+
+    // Keycloak user creations in flight at once
+    @WithDefault("16")
+    int keycloakConcurrency();
+
+    // Threads hashing passwords; 0 means one per CPU
+    @WithDefault("0")
+    int hashThreads();
+}
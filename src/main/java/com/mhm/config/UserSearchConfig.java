@@ -0,0 +1,29 @@
+package com.mhm.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "app.user.search")
+public interface UserSearchConfig {
+
+    enum Backend { MEMORY, ELASTICSEARCH }
+
+    @WithDefault("true")
+    boolean enabled();
+
+    // MEMORY keeps the index in this process and rebuilds it at every start
+    @WithDefault("memory")
+    Backend backend();
+
+    // Elasticsearch alias searched and written to; each rebuild loads a fresh <alias>-<timestamp> index behind it
+    @WithDefault("users")
+    String indexAlias();
+
+    // Rows read from the users table and indexed per bulk request during a rebuild
+    @WithDefault("500")
+    int rebuildBatchSize();
+
+    // Rebuild an Elasticsearch index at startup (the memory index is always rebuilt)
+    @WithDefault("false")
+    boolean rebuildOnStart();
+}
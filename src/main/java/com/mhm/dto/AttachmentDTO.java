@@ -1,9 +1,16 @@
 package com.mhm.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,6 +21,20 @@ public class AttachmentDTO {
     private String contentId; // For inline attachments
     private String disposition; // attachment or inline
     
+    // Server-side file to stream instead of in-memory content; only set through fromFile, never
+    // read from a request, or any caller could mail out files from this host
+    @JsonIgnore
+    private String filePath;
+    
+    // Programmatic stream source, never serialized
+    @JsonIgnore
+    private ContentSource contentSource;
+    
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+    
     // Convenience constructor for simple attachments
     public AttachmentDTO(String filename, String contentType, byte[] content) {
         this.filename = filename;
@@ -21,4 +42,40 @@ public class AttachmentDTO {
         this.content = content;
         this.disposition = "attachment";
     }
-} 
\ No newline at end of file
+    
+    // Attachment backed by a file, read lazily when the email is sent
+    public static AttachmentDTO fromFile(String filename, String contentType, Path file) {
+        AttachmentDTO attachment = new AttachmentDTO(filename, contentType, null);
+        attachment.setFilePath(file.toString());
+        return attachment;
+    }
+    
+    // Attachment backed by a stream supplier, opened once per send
+    public static AttachmentDTO fromStream(String filename, String contentType, ContentSource source) {
+        AttachmentDTO attachment = new AttachmentDTO(filename, contentType, null);
+        attachment.setContentSource(source);
+        return attachment;
+    }
+    
+    /**
+     * Open the raw (not encoded) attachment content
+     */
+    public InputStream openStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        if (filePath != null) {
+            return Files.newInputStream(Path.of(filePath));
+        }
+        if (contentSource != null) {
+            return contentSource.open();
+        }
+        throw new IOException("Attachment has no content: " + filename);
+    }
+    
+    // Only in-memory and file content can be read more than once
+    @JsonIgnore
+    public boolean isRepeatable() {
+        return content != null || filePath != null;
+    }
+} 
@@ -0,0 +1,13 @@
+package com.mhm.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Keycloak user ids and the realm roles (by name) or groups (by id) to give each of them
+@Data
+public class BulkMembershipDTO {
+    private List<String> userIds;
+    private List<String> roles;
+    private List<String> groupIds;
+}
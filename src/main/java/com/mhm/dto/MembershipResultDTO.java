@@ -0,0 +1,18 @@
+package com.mhm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Outcome of a bulk role/group assignment for one user
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record MembershipResultDTO(String userId, String status, List<String> failed, String error) {
+
+    public static MembershipResultDTO assigned(String userId) {
+        return new MembershipResultDTO(userId, "assigned", null, null);
+    }
+
+    public static MembershipResultDTO failed(String userId, List<String> failed, String error) {
+        return new MembershipResultDTO(userId, "failed", failed, error);
+    }
+}
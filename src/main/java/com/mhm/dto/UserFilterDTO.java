@@ -0,0 +1,13 @@
+package com.mhm.dto;
+
+import com.mhm.entities.AccountType;
+import lombok.Data;
+
+// Optional filters of the user listing, null fields are ignored
+@Data
+public class UserFilterDTO {
+    private AccountType accountType;
+    private String country;
+    private Boolean disabled;
+    private Long companyId;
+}
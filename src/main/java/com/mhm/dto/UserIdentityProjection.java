@@ -0,0 +1,5 @@
+package com.mhm.dto;
+
+// Read-only projection of the unique user identifiers, used by the duplicate probe
+public record UserIdentityProjection(String email, String username) {
+}
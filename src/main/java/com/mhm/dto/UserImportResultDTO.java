@@ -0,0 +1,21 @@
+package com.mhm.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the bulk import report
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserImportResultDTO(long line, String username, String status, Long id, String error) {
+
+    public static final String CREATED = "created";
+    public static final String INVALID = "invalid";
+    public static final String DUPLICATE = "duplicate";
+    public static final String FAILED = "failed";
+
+    public static UserImportResultDTO created(long line, String username, long id) {
+        return new UserImportResultDTO(line, username, CREATED, id, null);
+    }
+
+    public static UserImportResultDTO rejected(long line, String username, String status, String error) {
+        return new UserImportResultDTO(line, username, status, null, error);
+    }
+}
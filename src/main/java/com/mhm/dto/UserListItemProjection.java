@@ -0,0 +1,24 @@
+package com.mhm.dto;
+
+import com.mhm.entities.AccountType;
+
+// Columns of users (and its company) needed for a UserResponseDTO, selected without loading entities
+public record UserListItemProjection(
+        Long id,
+        String keycloakId,
+        AccountType accountType,
+        String firstName,
+        String lastName,
+        String username,
+        String email,
+        String phoneNumber,
+        String country,
+        boolean disabled,
+        Long companyId,
+        String companyName,
+        String pibNumber,
+        String companyPhoneNumber,
+        String companyCountry,
+        String companyCity,
+        String companyZipCode) {
+}
@@ -10,6 +10,7 @@ public class UserResponseDTO {
 
     // Explicit getters and setters to ensure compilation
     private Long id;
+    private String keycloakId;
     private AccountType accountType;
     private String firstName;
     private String lastName;
@@ -0,0 +1,5 @@
+package com.mhm.dto;
+
+// What the user search index stores per user, keyed by database id
+public record UserSearchDocument(Long id, String username, String email, String firstName, String lastName, boolean disabled) {
+}
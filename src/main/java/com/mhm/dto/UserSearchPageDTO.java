@@ -0,0 +1,21 @@
+package com.mhm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchPageDTO {
+    private List<UserSearchDocument> items;
+    
+    // Total matches, not just this page
+    private long total;
+    
+    private int from;
+    
+    private int size;
+}
@@ -2,14 +2,22 @@ package com.mhm.entities;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 @Entity
 @Data
 @Table(name = "company")
+// Lazy companies of a list of users are loaded with one IN query per 50 instead of one each
+@BatchSize(size = 50)
 public class CompanyEntity {
-    // Primary key
+    // Id sequence and block size, shared with the batch insert in UserRepository
+    public static final String ID_SEQUENCE = "company_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Primary key, allocated in blocks from company_seq so inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "company_id")
+    @SequenceGenerator(name = "company_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     // Company identification
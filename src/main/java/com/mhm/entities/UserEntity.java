@@ -1,18 +1,28 @@
 package com.mhm.entities;
 
-import io.quarkus.hibernate.reactive.panache.PanacheEntity;
+import io.quarkus.hibernate.reactive.panache.PanacheEntityBase;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 @Entity
 @Data
 @Table(name = "users")
-public class UserEntity extends PanacheEntity {
-    // Primary key first
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(columnDefinition = "BIGINT PRIMARY KEY")
+@NamedEntityGraph(name = UserEntity.GRAPH_WITH_COMPANY, attributeNodes = @NamedAttributeNode("company"))
+public class UserEntity extends PanacheEntityBase {
+    // Fetch plan for callers that need the company in the same query
+    public static final String GRAPH_WITH_COMPANY = "UserEntity.withCompany";
+
+    // Id sequence and block size, shared with the batch insert in UserRepository
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Primary key first, allocated in blocks from users_seq so inserts can be batched
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id")
+    @SequenceGenerator(name = "users_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     // Account type
@@ -27,6 +37,10 @@ public class UserEntity extends PanacheEntity {
     @Column(name = "last_name", columnDefinition = "VARCHAR(100)")
     protected String lastName;
     
+    // Keycloak user id (token subject), set once the Keycloak account exists
+    @Column(name = "keycloak_id", columnDefinition = "VARCHAR(36)")
+    protected String keycloakId;
+    
     @Column(name = "username", columnDefinition = "VARCHAR(50)")
     protected String username;
     
@@ -46,9 +60,11 @@ public class UserEntity extends PanacheEntity {
     @Column(name = "disabled", columnDefinition = "BOOLEAN DEFAULT FALSE")
     protected boolean disabled;
 
-    // Foreign key relationship
-    @OneToOne(cascade = CascadeType.ALL)
+    // Foreign key relationship; lazy, load it through GRAPH_WITH_COMPANY when it is needed
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id", referencedColumnName = "id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     protected CompanyEntity company;
     
     // Explicit getters and setters to ensure compilation
@@ -64,6 +80,9 @@ public class UserEntity extends PanacheEntity {
     public String getLastName() { return lastName; }
     public void setLastName(String lastName) { this.lastName = lastName; }
     
+    public String getKeycloakId() { return keycloakId; }
+    public void setKeycloakId(String keycloakId) { this.keycloakId = keycloakId; }
+    
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
     
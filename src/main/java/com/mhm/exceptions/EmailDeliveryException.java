@@ -0,0 +1,89 @@
+package com.mhm.exceptions;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+@Getter
+public class EmailDeliveryException extends RuntimeException {
+    
+    public static final long NO_RETRY_AFTER = -1;
+    
+    // Provider HTTP status, 0 when the request never got a response
+    private final int statusCode;
+    private final String errorCode;
+    private final long retryAfterMillis;
+    
+    public EmailDeliveryException(String message, int statusCode, String errorCode, long retryAfterMillis) {
+        super(message);
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    public EmailDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.errorCode = "EMAIL_TRANSPORT_ERROR";
+        this.retryAfterMillis = NO_RETRY_AFTER;
+    }
+    
+    // Timeouts, throttling and provider-side errors are worth another attempt
+    public boolean isRetryable() {
+        return statusCode == 0 || statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+    
+    public boolean isThrottled() {
+        return statusCode == 429;
+    }
+    
+    // Static factory methods for common delivery errors
+    public static EmailDeliveryException fromResponse(int statusCode, String body, String retryAfter) {
+        String errorCode = statusCode == 429 ? "EMAIL_RATE_LIMITED" : "EMAIL_PROVIDER_ERROR";
+        return new EmailDeliveryException("Failed to send email: " + statusCode + " " + body,
+            statusCode, errorCode, parseRetryAfter(retryAfter));
+    }
+    
+    public static EmailDeliveryException circuitOpen(long retryAfterMillis) {
+        return new EmailDeliveryException("Email provider circuit is open, not sending",
+            503, "EMAIL_CIRCUIT_OPEN", retryAfterMillis);
+    }
+    
+    public static EmailDeliveryException inProgress() {
+        return new EmailDeliveryException("An email with the same idempotency key is already being sent",
+            409, "EMAIL_SEND_IN_PROGRESS", NO_RETRY_AFTER);
+    }
+    
+    public static EmailDeliveryException keyReused() {
+        return new EmailDeliveryException("The idempotency key was already used for a different email",
+            422, "EMAIL_IDEMPOTENCY_KEY_REUSED", NO_RETRY_AFTER);
+    }
+    
+    public static EmailDeliveryException permitTimeout() {
+        return new EmailDeliveryException("Timed out waiting for an email send permit",
+            503, "EMAIL_SEND_BACKLOG", NO_RETRY_AFTER);
+    }
+    
+    /**
+     * Parse a Retry-After header, either delta-seconds or an HTTP date
+     */
+    public static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return NO_RETRY_AFTER;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds, try the date form
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return NO_RETRY_AFTER;
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class AuthenticationFilter implements ContainerRequestFilter {
         "/user/register-with-verification",
         "/user/register-keycloak-first",
         "/user/verify",
+        "/user/availability",
         "/user/login",
         "/health",
         "/q/health",
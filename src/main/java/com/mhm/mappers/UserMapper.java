@@ -44,6 +44,7 @@ public class UserMapper {
         
         UserResponseDTO dto = new UserResponseDTO();
         dto.setId(entity.getId());
+        dto.setKeycloakId(entity.getKeycloakId());
         dto.setAccountType(entity.getAccountType());
         dto.setFirstName(entity.getFirstName());
         dto.setLastName(entity.getLastName());
@@ -61,6 +62,37 @@ public class UserMapper {
         return dto;
     }
     
+    public UserResponseDTO toResponseDTO(UserListItemProjection row) {
+        if (row == null) return null;
+        
+        UserResponseDTO dto = new UserResponseDTO();
+        dto.setId(row.id());
+        dto.setKeycloakId(row.keycloakId());
+        dto.setAccountType(row.accountType());
+        dto.setFirstName(row.firstName());
+        dto.setLastName(row.lastName());
+        dto.setUsername(row.username());
+        dto.setEmail(row.email());
+        dto.setPhoneNumber(row.phoneNumber());
+        dto.setCountry(row.country());
+        dto.setDisabled(row.disabled());
+        
+        // Company columns come from a left join, all null when the user has none
+        if (row.companyId() != null) {
+            CompanyResponseDTO company = new CompanyResponseDTO();
+            company.setId(row.companyId());
+            company.setCompanyName(row.companyName());
+            company.setPibNumber(row.pibNumber());
+            company.setPhoneNumber(row.companyPhoneNumber());
+            company.setCountry(row.companyCountry());
+            company.setCity(row.companyCity());
+            company.setZipCode(row.companyZipCode());
+            dto.setCompany(company);
+        }
+        
+        return dto;
+    }
+    
     public void updateEntityFromDTO(UserEntity entity, UserUpdateDTO dto) {
         if (dto == null || entity == null) return;
         
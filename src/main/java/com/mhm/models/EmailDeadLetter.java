@@ -0,0 +1,9 @@
+package com.mhm.models;
+
+import com.mhm.dto.EmailDTO;
+
+import java.time.Instant;
+
+// One row of email_dead_letter; route is the Camel route the email failed in
+public record EmailDeadLetter(long id, String route, EmailDTO email, String lastError, Instant createdAt) {
+}
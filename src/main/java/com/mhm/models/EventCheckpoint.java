@@ -0,0 +1,7 @@
+package com.mhm.models;
+
+import java.util.Set;
+
+// Newest event time an export has delivered, with the keys of the events at exactly that time
+public record EventCheckpoint(long time, Set<String> keys) {
+}
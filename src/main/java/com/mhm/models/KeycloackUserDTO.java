@@ -1,5 +1,6 @@
 package com.mhm.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -7,6 +8,9 @@ import java.util.List;
 
 @Data
 public class KeycloackUserDTO implements Serializable {
+    // Assigned by Keycloak; only present on users read back from it
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    protected String id;
     protected String username;
     protected String email;
     protected String firstName;
@@ -15,5 +19,8 @@ public class KeycloackUserDTO implements Serializable {
     protected List<CredentialModel> credentials;
     protected boolean emailVerified;
     protected boolean enabled;
+    // Epoch millis, read back from Keycloak only
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    protected Long createdTimestamp;
 
 }
\ No newline at end of file
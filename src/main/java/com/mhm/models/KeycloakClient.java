@@ -0,0 +1,27 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Client (ClientRepresentation), reduced to what identifies and routes it.
+ * Secrets, protocol mappers and flow overrides are not kept.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KeycloakClient(String id,
+                             String clientId,
+                             String name,
+                             String description,
+                             String protocol,
+                             boolean enabled,
+                             boolean publicClient,
+                             boolean bearerOnly,
+                             boolean serviceAccountsEnabled,
+                             String rootUrl,
+                             String baseUrl,
+                             List<String> redirectUris,
+                             List<String> webOrigins) {
+}
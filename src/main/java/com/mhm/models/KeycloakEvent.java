@@ -0,0 +1,28 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * One user event from the realm's event store (GET /admin/realms/moba/events).
+ * Fields Keycloak adds in other versions are ignored; empty ones are left out when written back out.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KeycloakEvent(String id,
+                            long time,
+                            String type,
+                            String clientId,
+                            String userId,
+                            String sessionId,
+                            String ipAddress,
+                            String error,
+                            Map<String, String> details) {
+
+    // Keycloak 23 does not always return an id, so fall back to what identifies an event in practice
+    public String key() {
+        return id != null ? id : time + "|" + type + "|" + userId + "|" + sessionId + "|" + clientId + "|" + ipAddress;
+    }
+}
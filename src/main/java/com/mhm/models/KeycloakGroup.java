@@ -0,0 +1,15 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Group (GroupRepresentation); subGroups is only filled on the realm's group tree
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record KeycloakGroup(String id,
+                            String name,
+                            String path,
+                            List<KeycloakGroup> subGroups) {
+}
@@ -0,0 +1,29 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Realm settings (RealmRepresentation) that this service reports: identity, login options and
+ * token/session lifetimes in seconds. Keys, flows and the rest of the realm export are ignored.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KeycloakRealm(String id,
+                            String realm,
+                            String displayName,
+                            boolean enabled,
+                            String sslRequired,
+                            boolean registrationAllowed,
+                            boolean registrationEmailAsUsername,
+                            boolean loginWithEmailAllowed,
+                            boolean duplicateEmailsAllowed,
+                            boolean resetPasswordAllowed,
+                            boolean verifyEmail,
+                            boolean bruteForceProtected,
+                            int accessTokenLifespan,
+                            int ssoSessionIdleTimeout,
+                            int ssoSessionMaxLifespan,
+                            boolean eventsEnabled,
+                            boolean adminEventsEnabled) {
+}
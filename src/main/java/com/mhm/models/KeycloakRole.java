@@ -0,0 +1,18 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Realm or client role (RoleRepresentation), as listed by Keycloak and sent back in role mappings.
+ * Attributes and composites are only returned by the single-role lookups and are not kept.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KeycloakRole(String id,
+                           String name,
+                           String description,
+                           boolean composite,
+                           boolean clientRole,
+                           String containerId) {
+}
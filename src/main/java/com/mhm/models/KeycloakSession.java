@@ -0,0 +1,19 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+// User session (UserSessionRepresentation); clients maps client uuid to clientId
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KeycloakSession(String id,
+                              String username,
+                              String userId,
+                              String ipAddress,
+                              long start,
+                              long lastAccess,
+                              boolean rememberMe,
+                              Map<String, String> clients) {
+}
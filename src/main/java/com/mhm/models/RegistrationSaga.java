@@ -0,0 +1,20 @@
+package com.mhm.models;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// One row of registration_saga, as much of it as compensation needs
+public record RegistrationSaga(UUID id, String username, String email, String keycloakId, int attempts,
+                               Instant createdAt) {
+
+    public enum State {
+        STARTED,
+        KEYCLOAK_CREATED,
+        USER_SAVED,
+        COMPLETED,
+        COMPENSATING,
+        COMPENSATED,
+        // Terminal: Keycloak refused the user (nothing to undo) or compensation gave up
+        FAILED
+    }
+}
@@ -0,0 +1,93 @@
+package com.mhm.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.dto.EmailDTO;
+import com.mhm.models.EmailDeadLetter;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowIterator;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * email_dead_letter (V7__email_dead_letter.sql); the email is kept as JSON
+ */
+@ApplicationScoped
+public class EmailDeadLetterRepository {
+
+    private static final String COLUMNS = "id, route, email::text AS email, last_error, created_at";
+
+    @Inject
+    Pool pool;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    public Uni<Long> save(String route, EmailDTO email, String error) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(email);
+        } catch (JsonProcessingException e) {
+            return Uni.createFrom().failure(e);
+        }
+        return pool.preparedQuery("INSERT INTO email_dead_letter (route, email, last_error) VALUES ($1, $2::jsonb, $3) RETURNING id")
+                .execute(Tuple.of(route, json, error))
+                .onItem().transform(rows -> rows.iterator().next().getLong("id"));
+    }
+
+    // Not replayed yet, oldest first
+    public Uni<List<EmailDeadLetter>> findPending(int limit) {
+        return pool.preparedQuery("""
+                        SELECT %s FROM email_dead_letter
+                        WHERE replayed_at IS NULL
+                        ORDER BY created_at
+                        LIMIT $1""".formatted(COLUMNS))
+                .execute(Tuple.of(limit))
+                .onItem().transform(rows -> {
+                    List<EmailDeadLetter> pending = new ArrayList<>();
+                    for (Row row : rows) {
+                        pending.add(toDeadLetter(row));
+                    }
+                    return pending;
+                });
+    }
+
+    /**
+     * Mark a pending dead letter replayed and return it; null when it does not exist or was already
+     * replayed, so two replays of the same row never both get it
+     */
+    public Uni<EmailDeadLetter> claimForReplay(long id) {
+        return pool.preparedQuery("""
+                        UPDATE email_dead_letter SET replayed_at = now()
+                        WHERE id = $1 AND replayed_at IS NULL
+                        RETURNING %s""".formatted(COLUMNS))
+                .execute(Tuple.of(id))
+                .onItem().transform(rows -> {
+                    RowIterator<Row> iterator = rows.iterator();
+                    return iterator.hasNext() ? toDeadLetter(iterator.next()) : null;
+                });
+    }
+
+    // Give a claimed row back when it could not be queued again
+    public Uni<Void> releaseReplay(long id) {
+        return pool.preparedQuery("UPDATE email_dead_letter SET replayed_at = NULL WHERE id = $1")
+                .execute(Tuple.of(id))
+                .replaceWithVoid();
+    }
+
+    private EmailDeadLetter toDeadLetter(Row row) {
+        try {
+            return new EmailDeadLetter(row.getLong("id"), row.getString("route"),
+                    objectMapper.readValue(row.getString("email"), EmailDTO.class),
+                    row.getString("last_error"), row.getOffsetDateTime("created_at").toInstant());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable dead-lettered email " + row.getLong("id"), e);
+        }
+    }
+}
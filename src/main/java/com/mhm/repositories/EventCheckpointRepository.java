@@ -0,0 +1,46 @@
+package com.mhm.repositories;
+
+import com.mhm.models.EventCheckpoint;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowIterator;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * event_export_checkpoint (V6__event_export_checkpoint.sql)
+ */
+@ApplicationScoped
+public class EventCheckpointRepository {
+
+    @Inject
+    Pool pool;
+
+    // Null if the export has never completed
+    public Uni<EventCheckpoint> find(String name) {
+        return pool.preparedQuery("SELECT last_time, last_keys FROM event_export_checkpoint WHERE name = $1")
+                .execute(Tuple.of(name))
+                .onItem().transform(rows -> {
+                    RowIterator<Row> iterator = rows.iterator();
+                    if (!iterator.hasNext()) {
+                        return null;
+                    }
+                    Row row = iterator.next();
+                    return new EventCheckpoint(row.getLong("last_time"), new HashSet<>(Arrays.asList(row.getArrayOfStrings("last_keys"))));
+                });
+    }
+
+    public Uni<Void> save(String name, EventCheckpoint checkpoint) {
+        return pool.preparedQuery("""
+                        INSERT INTO event_export_checkpoint (name, last_time, last_keys) VALUES ($1, $2, $3)
+                        ON CONFLICT (name) DO UPDATE
+                        SET last_time = EXCLUDED.last_time, last_keys = EXCLUDED.last_keys, updated_at = now()""")
+                .execute(Tuple.of(name, checkpoint.time(), checkpoint.keys().toArray(String[]::new)))
+                .replaceWithVoid();
+    }
+}
@@ -0,0 +1,143 @@
+package com.mhm.repositories;
+
+import com.mhm.models.RegistrationSaga;
+import com.mhm.models.RegistrationSaga.State;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * registration_saga (V5__registration_saga.sql). Every transition is one auto-committed statement,
+ * so no connection is held while the saga waits on Keycloak or the mail provider.
+ */
+@ApplicationScoped
+public class RegistrationSagaRepository {
+
+    private static final String UNFINISHED = "('STARTED', 'KEYCLOAK_CREATED', 'USER_SAVED')";
+
+    @Inject
+    Pool pool;
+
+    // The saga's created_at, which bounds what an unknown Keycloak outcome may have created
+    public Uni<Instant> start(UUID id, String username, String email) {
+        return pool.preparedQuery("INSERT INTO registration_saga (id, username, email, state) VALUES ($1, $2, $3, $4) RETURNING created_at")
+                .execute(Tuple.of(id, username, email, State.STARTED.name()))
+                .onItem().transform(rows -> rows.iterator().next().getOffsetDateTime("created_at").toInstant());
+    }
+
+    public Uni<Void> markKeycloakCreated(UUID id, String keycloakId) {
+        return execute("UPDATE registration_saga SET state = $2, keycloak_id = $3, updated_at = now() WHERE id = $1",
+                Tuple.of(id, State.KEYCLOAK_CREATED.name(), keycloakId));
+    }
+
+    public Uni<Void> markUserSaved(UUID id, Long userId) {
+        return execute("UPDATE registration_saga SET state = $2, user_id = $3, updated_at = now() WHERE id = $1",
+                Tuple.of(id, State.USER_SAVED.name(), userId));
+    }
+
+    public Uni<Void> markCompleted(UUID id) {
+        return setState(id, State.COMPLETED);
+    }
+
+    public Uni<Void> markCompensated(UUID id) {
+        return setState(id, State.COMPENSATED);
+    }
+
+    public Uni<Void> markFailed(UUID id, String error) {
+        return execute("UPDATE registration_saga SET state = $2, last_error = $3, next_attempt_at = NULL, updated_at = now() WHERE id = $1",
+                Tuple.of(id, State.FAILED.name(), error));
+    }
+
+    // Compensation is about to be attempted in-process; the lease keeps pollers away meanwhile
+    public Uni<Void> markCompensating(UUID id, String error, long leaseSeconds) {
+        return execute("""
+                        UPDATE registration_saga
+                        SET state = $2, last_error = $3, next_attempt_at = now() + $4 * interval '1 second', updated_at = now()
+                        WHERE id = $1""",
+                Tuple.of(id, State.COMPENSATING.name(), error, leaseSeconds));
+    }
+
+    public Uni<Void> scheduleRetry(UUID id, int attempts, long delayMillis, String error) {
+        return execute("""
+                        UPDATE registration_saga
+                        SET attempts = $2, last_error = $3, next_attempt_at = now() + $4 * interval '1 millisecond', updated_at = now()
+                        WHERE id = $1""",
+                Tuple.of(id, attempts, error, delayMillis));
+    }
+
+    // Interrupted sagas whose user row did get saved only missed their last transitions
+    public Uni<Integer> completeInterrupted(long stuckAfterSeconds) {
+        return pool.preparedQuery("""
+                        UPDATE registration_saga s SET state = $1, updated_at = now()
+                        WHERE s.state IN %s
+                          AND s.updated_at < now() - $2 * interval '1 second'
+                          AND EXISTS (SELECT 1 FROM users u WHERE u.username = s.username)""".formatted(UNFINISHED))
+                .execute(Tuple.of(State.COMPLETED.name(), stuckAfterSeconds))
+                .onItem().transform(rows -> rows.rowCount());
+    }
+
+    /**
+     * Claim compensations that are due, plus interrupted sagas that never saved their user, moving them
+     * to COMPENSATING under a lease. SKIP LOCKED lets several replicas poll without taking the same rows.
+     */
+    public Uni<List<RegistrationSaga>> claimDue(long stuckAfterSeconds, long leaseSeconds, int limit) {
+        return pool.preparedQuery("""
+                        WITH due AS (
+                            SELECT id FROM registration_saga s
+                            WHERE (s.state = $1 AND s.next_attempt_at <= now())
+                               OR (s.state IN %s
+                                   AND s.updated_at < now() - $2 * interval '1 second'
+                                   AND NOT EXISTS (SELECT 1 FROM users u WHERE u.username = s.username))
+                            ORDER BY s.updated_at
+                            LIMIT $4
+                            FOR UPDATE SKIP LOCKED)
+                        UPDATE registration_saga s
+                        SET state = $1, next_attempt_at = now() + $3 * interval '1 second', updated_at = now()
+                        FROM due WHERE s.id = due.id
+                        RETURNING s.id, s.username, s.email, s.keycloak_id, s.attempts, s.created_at""".formatted(UNFINISHED))
+                .execute(Tuple.of(State.COMPENSATING.name(), stuckAfterSeconds, leaseSeconds, limit))
+                .onItem().transform(rows -> {
+                    List<RegistrationSaga> claimed = new ArrayList<>();
+                    rows.forEach(row -> claimed.add(new RegistrationSaga(row.getUUID("id"), row.getString("username"),
+                            row.getString("email"), row.getString("keycloak_id"), row.getInteger("attempts"),
+                            row.getOffsetDateTime("created_at").toInstant())));
+                    return claimed;
+                });
+    }
+
+    public Uni<Integer> deleteFinished(long retentionHours) {
+        return pool.preparedQuery("""
+                        DELETE FROM registration_saga
+                        WHERE state IN ($1, $2) AND updated_at < now() - $3 * interval '1 hour'""")
+                .execute(Tuple.of(State.COMPLETED.name(), State.COMPENSATED.name(), retentionHours))
+                .onItem().transform(rows -> rows.rowCount());
+    }
+
+    public Uni<Map<String, Long>> countByState() {
+        return pool.query("SELECT state, count(*) AS sagas FROM registration_saga GROUP BY state ORDER BY state")
+                .execute()
+                .onItem().transform(rows -> {
+                    Map<String, Long> counts = new LinkedHashMap<>();
+                    rows.forEach(row -> counts.put(row.getString("state"), row.getLong("sagas")));
+                    return counts;
+                });
+    }
+
+    private Uni<Void> setState(UUID id, State state) {
+        return execute("UPDATE registration_saga SET state = $2, next_attempt_at = NULL, updated_at = now() WHERE id = $1",
+                Tuple.of(id, state.name()));
+    }
+
+    private Uni<Void> execute(String sql, Tuple params) {
+        return pool.preparedQuery(sql).execute(params).replaceWithVoid();
+    }
+}
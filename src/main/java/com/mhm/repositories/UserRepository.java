@@ -1,18 +1,44 @@
 package com.mhm.repositories;
 
+import com.mhm.dto.UserFilterDTO;
+import com.mhm.dto.UserIdentityProjection;
+import com.mhm.dto.UserListItemProjection;
+import com.mhm.entities.CompanyEntity;
 import com.mhm.entities.UserEntity;
 import io.quarkus.hibernate.reactive.panache.PanacheRepository;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import io.vertx.mutiny.sqlclient.Tuple;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.hibernate.reactive.mutiny.Mutiny;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @ApplicationScoped
 public class UserRepository implements PanacheRepository<UserEntity> {
 
-    // Save a User
+    // Unique indexes created by V2__user_lookup_indexes.sql
+    public static final String EMAIL_UNIQUE_INDEX = "users_email_lower_uk";
+    public static final String USERNAME_UNIQUE_INDEX = "users_username_uk";
+
+    @Inject
+    Pool pool;
+
+    // Save a User. Flushed right away: with pooled sequence ids the INSERT would otherwise wait for
+    // the commit, after callers have already indexed the user, created it in Keycloak or sent email,
+    // and a unique violation would escape their error mapping
     public Uni<UserEntity> createUser(UserEntity user) {
-        return persist(user);
+        return persistAndFlush(user);
     }
 
     // Find a User by ID
@@ -20,9 +46,58 @@ public class UserRepository implements PanacheRepository<UserEntity> {
         return findById(id);
     }
 
-    // Find all Users
-    public Uni<List<UserEntity>> findAllUsers() {
-        return findAll().list();
+    // One page of users after the given id (keyset pagination), as projections with the company columns;
+    // cost does not grow with page depth since the primary key index seeks straight to afterId
+    public Uni<List<UserListItemProjection>> findPageAfter(long afterId, int limit, UserFilterDTO filter) {
+        StringBuilder hql = new StringBuilder("""
+                select new com.mhm.dto.UserListItemProjection(
+                    u.id, u.keycloakId, u.accountType, u.firstName, u.lastName, u.username, u.email, u.phoneNumber, u.country,
+                    u.disabled, c.id, c.companyName, c.pibNumber, c.phoneNumber, c.country, c.city, c.zipCode)
+                from UserEntity u left join u.company c
+                where u.id > :afterId""");
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterId", afterId);
+        if (filter != null) {
+            if (filter.getAccountType() != null) {
+                hql.append(" and u.accountType = :accountType");
+                params.put("accountType", filter.getAccountType());
+            }
+            if (filter.getCountry() != null) {
+                hql.append(" and u.country = :country");
+                params.put("country", filter.getCountry());
+            }
+            if (filter.getDisabled() != null) {
+                hql.append(" and u.disabled = :disabled");
+                params.put("disabled", filter.getDisabled());
+            }
+            if (filter.getCompanyId() != null) {
+                hql.append(" and c.id = :companyId");
+                params.put("companyId", filter.getCompanyId());
+            }
+        }
+        hql.append(" order by u.id");
+
+        return getSession().chain(session -> {
+            Mutiny.SelectionQuery<UserListItemProjection> query =
+                    session.createSelectionQuery(hql.toString(), UserListItemProjection.class);
+            params.forEach(query::setParameter);
+            return query.setMaxResults(limit).getResultList();
+        });
+    }
+
+    // Find a User by ID together with its company, in one query
+    public Uni<UserEntity> findByIdWithCompany(Long id) {
+        return getSession().chain(session ->
+                session.find(session.getEntityGraph(UserEntity.class, UserEntity.GRAPH_WITH_COMPANY), id));
+    }
+
+    // Existence checks count on the unique indexes without loading the user
+    public Uni<Boolean> existsByUsername(String username) {
+        return count("username", username).onItem().transform(count -> count > 0);
+    }
+
+    public Uni<Boolean> existsByEmail(String email) {
+        return count("lower(email) = lower(?1)", email).onItem().transform(count -> count > 0);
     }
 
     // Find a User by name
@@ -30,10 +105,186 @@ public class UserRepository implements PanacheRepository<UserEntity> {
         return find("name", name).firstResult();
     }
 
+    // Find a User by email, case-insensitive (served by the lower(email) unique index)
+    public Uni<UserEntity> findByEmail(String email) {
+        return find("lower(email) = lower(?1)", email).firstResult();
+    }
+
+    // Find a User by its Keycloak id (served by the keycloak_id unique index)
+    public Uni<UserEntity> findByKeycloakId(String keycloakId) {
+        return find("keycloakId", keycloakId).firstResult();
+    }
+
+    // Record the Keycloak id of an existing user
+    public Uni<Integer> updateKeycloakId(Long id, String keycloakId) {
+        return update("keycloakId = ?1 where id = ?2", keycloakId, id);
+    }
+
+    // Find a User by username (served by the username unique index)
+    public Uni<UserEntity> findByUsername(String username) {
+        return find("username", username).firstResult();
+    }
+
+    // Which of email/username already belong to a user, in one index-served query
+    public Uni<Conflicts> findConflicts(String email, String username) {
+        return find("lower(email) = lower(?1) or username = ?2", email, username)
+                .project(UserIdentityProjection.class)
+                .page(0, 2)
+                .list()
+                .onItem().transform(matches -> new Conflicts(
+                        matches.stream().anyMatch(match -> email != null && email.equalsIgnoreCase(match.email())),
+                        matches.stream().anyMatch(match -> username != null && username.equals(match.username()))));
+    }
+
+    // Stream rows of a read-only query through a server-side cursor, fetchSize rows per round trip,
+    // without loading the result or creating entities
+    public Multi<Row> streamRows(String sql, Tuple params, int fetchSize) {
+        return Multi.createFrom().resourceFromUni(pool::getConnection,
+                        connection -> connection.begin().onItem().transformToMulti(transaction ->
+                                connection.prepare(sql)
+                                        .onItem().transformToMulti(statement -> statement.createStream(fetchSize, params).toMulti())
+                                        .onTermination().call(transaction::rollback)))
+                .withFinalizer(SqlConnection::close);
+    }
+
+    // Which of the given lower-cased emails and usernames are already taken, in one query
+    public Uni<List<UserIdentityProjection>> findTakenIdentities(String[] lowerEmails, String[] usernames) {
+        return pool.preparedQuery("SELECT lower(email) AS email, username FROM users WHERE lower(email) = ANY($1) OR username = ANY($2)")
+                .execute(Tuple.of(lowerEmails, usernames))
+                .onItem().transform(rows -> {
+                    List<UserIdentityProjection> taken = new ArrayList<>();
+                    rows.forEach(row -> taken.add(new UserIdentityProjection(row.getString("email"), row.getString("username"))));
+                    return taken;
+                });
+    }
+
+    // Insert users (and their companies) in one transaction with one multi-row INSERT per table.
+    // Ids are allocated up front from the entity sequences so users can reference their companies;
+    // rows hitting a unique index are skipped, and the ids of the users actually inserted are returned
+    public Uni<Set<Long>> insertBatch(List<UserEntity> users) {
+        List<CompanyEntity> companies = users.stream()
+                .map(UserEntity::getCompany)
+                .filter(Objects::nonNull)
+                .toList();
+
+        return pool.withTransaction(connection -> allocateIds(connection, CompanyEntity.ID_SEQUENCE, CompanyEntity.ID_ALLOCATION_SIZE, companies.size())
+                .chain(companyIds -> {
+                    for (int i = 0; i < companies.size(); i++) {
+                        companies.get(i).setId(companyIds.get(i));
+                    }
+                    return allocateIds(connection, UserEntity.ID_SEQUENCE, UserEntity.ID_ALLOCATION_SIZE, users.size());
+                })
+                .chain(userIds -> {
+                    for (int i = 0; i < users.size(); i++) {
+                        users.get(i).setId(userIds.get(i));
+                    }
+                    return companies.isEmpty() ? Uni.createFrom().voidItem() : insertCompanies(connection, companies);
+                })
+                .chain(() -> insertUsers(connection, users))
+                .call(inserted -> inserted.size() < users.size() && !companies.isEmpty()
+                        ? deleteUnreferencedCompanies(connection, companies)
+                        : Uni.createFrom().voidItem()));
+    }
+
+    // Companies of users skipped by ON CONFLICT would otherwise be left behind
+    private static Uni<Void> deleteUnreferencedCompanies(SqlConnection connection, List<CompanyEntity> companies) {
+        Long[] ids = companies.stream().map(CompanyEntity::getId).toArray(Long[]::new);
+        return connection.preparedQuery("DELETE FROM company c WHERE c.id = ANY($1) AND NOT EXISTS (SELECT 1 FROM users u WHERE u.company_id = c.id)")
+                .execute(Tuple.of(ids))
+                .replaceWithVoid();
+    }
+
+    // Reserve ids the same way the entities' pooled generators do: each sequence value v is the
+    // top of the block v-(allocationSize-1)..v, so these never collide with ids Hibernate hands out
+    private static Uni<List<Long>> allocateIds(SqlConnection connection, String sequence, int allocationSize, int count) {
+        if (count == 0) {
+            return Uni.createFrom().item(List.of());
+        }
+        int blocks = (count + allocationSize - 1) / allocationSize;
+        return connection.preparedQuery("SELECT nextval($1::text) AS hi FROM generate_series(1, $2)")
+                .execute(Tuple.of(sequence, blocks))
+                .onItem().transform(rows -> {
+                    List<Long> ids = new ArrayList<>(blocks * allocationSize);
+                    rows.forEach(row -> {
+                        long hi = row.getLong("hi");
+                        for (long id = hi - allocationSize + 1; id <= hi; id++) {
+                            ids.add(id);
+                        }
+                    });
+                    return ids.subList(0, count);
+                });
+    }
+
+    private static Uni<Void> insertCompanies(SqlConnection connection, List<CompanyEntity> companies) {
+        int size = companies.size();
+        Long[] ids = new Long[size];
+        String[] names = new String[size], pibs = new String[size], phones = new String[size],
+                countries = new String[size], cities = new String[size], zipCodes = new String[size];
+        for (int i = 0; i < size; i++) {
+            CompanyEntity company = companies.get(i);
+            ids[i] = company.getId();
+            names[i] = company.getCompanyName();
+            pibs[i] = company.getPibNumber();
+            phones[i] = company.getPhoneNumber();
+            countries[i] = company.getCountry();
+            cities[i] = company.getCity();
+            zipCodes[i] = company.getZipCode();
+        }
+        return connection.preparedQuery("""
+                        INSERT INTO company (id, company_name, pib_number, phone_number, country, city, zip_code)
+                        SELECT * FROM unnest($1::bigint[], $2::varchar[], $3::varchar[], $4::varchar[], $5::varchar[], $6::varchar[], $7::varchar[])""")
+                .execute(Tuple.tuple().addValue(ids).addValue(names).addValue(pibs).addValue(phones)
+                        .addValue(countries).addValue(cities).addValue(zipCodes))
+                .replaceWithVoid();
+    }
+
+    private static Uni<Set<Long>> insertUsers(SqlConnection connection, List<UserEntity> users) {
+        int size = users.size();
+        Long[] ids = new Long[size], companyIds = new Long[size];
+        String[] keycloakIds = new String[size], accountTypes = new String[size], firstNames = new String[size], lastNames = new String[size],
+                usernames = new String[size], emails = new String[size], phones = new String[size],
+                passwordHashes = new String[size], countries = new String[size];
+        Boolean[] disabled = new Boolean[size];
+        for (int i = 0; i < size; i++) {
+            UserEntity user = users.get(i);
+            ids[i] = user.getId();
+            keycloakIds[i] = user.getKeycloakId();
+            accountTypes[i] = user.getAccountType() != null ? user.getAccountType().name() : null;
+            firstNames[i] = user.getFirstName();
+            lastNames[i] = user.getLastName();
+            usernames[i] = user.getUsername();
+            emails[i] = user.getEmail();
+            phones[i] = user.getPhoneNumber();
+            passwordHashes[i] = user.getPasswordHash();
+            countries[i] = user.getCountry();
+            disabled[i] = user.isDisabled();
+            companyIds[i] = user.getCompany() != null ? user.getCompany().getId() : null;
+        }
+        return connection.preparedQuery("""
+                        INSERT INTO users (id, account_type, first_name, last_name, username, email, phone_number,
+                                           password_hash, country, disabled, company_id, keycloak_id)
+                        SELECT * FROM unnest($1::bigint[], $2::varchar[], $3::varchar[], $4::varchar[], $5::varchar[], $6::varchar[],
+                                             $7::varchar[], $8::varchar[], $9::varchar[], $10::boolean[], $11::bigint[], $12::varchar[])
+                        ON CONFLICT DO NOTHING
+                        RETURNING id""")
+                .execute(Tuple.tuple().addValue(ids).addValue(accountTypes).addValue(firstNames).addValue(lastNames)
+                        .addValue(usernames).addValue(emails).addValue(phones).addValue(passwordHashes)
+                        .addValue(countries).addValue(disabled).addValue(companyIds).addValue(keycloakIds))
+                .onItem().transform(rows -> {
+                    Set<Long> inserted = new HashSet<>();
+                    rows.forEach(row -> inserted.add(row.getLong("id")));
+                    return inserted;
+                });
+    }
+
     // Delete a User by ID
     public Uni<Boolean> deleteUserById(Long id) {
         return deleteById(id);
     }
 
-
+    public record Conflicts(boolean emailTaken, boolean usernameTaken) {
+        public boolean any() {
+            return emailTaken || usernameTaken;
+        }
+    }
 }
@@ -0,0 +1,226 @@
+package com.mhm.resources;
+
+import com.mhm.dto.BulkMembershipDTO;
+import com.mhm.dto.MembershipResultDTO;
+import com.mhm.dto.UserFilterDTO;
+import com.mhm.dto.UserSearchPageDTO;
+import com.mhm.entities.AccountType;
+import com.mhm.models.EmailDeadLetter;
+import com.mhm.services.BulkMembershipService;
+import com.mhm.services.EmailDeadLetterService;
+import com.mhm.services.KeycloakEventExportService;
+import com.mhm.services.PipelineTimings;
+import com.mhm.services.RegistrationSagaService;
+import com.mhm.services.UserExportService;
+import com.mhm.services.UserImportService;
+import com.mhm.services.UserSearchService;
+import com.mhm.services.UserService;
+import com.mhm.utils.LatencyReservoir;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.RestMulti;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Realm administration; everything under /admin requires the admin role (see AuthenticationFilter)
+ */
+@Path("/admin")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class AdminResource {
+
+    @Inject
+    BulkMembershipService bulkMembershipService;
+
+    @Inject
+    UserSearchService userSearchService;
+
+    @Inject
+    RegistrationSagaService registrationSagaService;
+
+    @Inject
+    PipelineTimings pipelineTimings;
+
+    @Inject
+    KeycloakEventExportService keycloakEventExportService;
+
+    @Inject
+    UserExportService userExportService;
+
+    @Inject
+    UserImportService userImportService;
+
+    @Inject
+    UserService userService;
+
+    @Inject
+    EmailDeadLetterService emailDeadLetterService;
+
+    /**
+     * Give every listed user the listed realm roles; one NDJSON result line per user, in completion order
+     */
+    @POST
+    @Path("/roles/bulk-assign")
+    @Produces("application/x-ndjson")
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<MembershipResultDTO> bulkAssignRoles(BulkMembershipDTO request) {
+        return bulkMembershipService.assignRoles(request);
+    }
+
+    /**
+     * Add every listed user to the listed groups; one NDJSON result line per user, in completion order
+     */
+    @POST
+    @Path("/groups/bulk-assign")
+    @Produces("application/x-ndjson")
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<MembershipResultDTO> bulkAssignGroups(BulkMembershipDTO request) {
+        return bulkMembershipService.assignGroups(request);
+    }
+
+    /**
+     * List users page by page; pass the returned nextCursor to get the following page. Contact details
+     * included, hence admin only
+     */
+    @GET
+    @Path("/users")
+    public Uni<Response> listUsers(@QueryParam("cursor") String cursor,
+                                   @QueryParam("limit") @DefaultValue("20") int limit,
+                                   @QueryParam("accountType") AccountType accountType,
+                                   @QueryParam("country") String country,
+                                   @QueryParam("disabled") Boolean disabled,
+                                   @QueryParam("companyId") Long companyId) {
+        UserFilterDTO filter = new UserFilterDTO();
+        filter.setAccountType(accountType);
+        filter.setCountry(country);
+        filter.setDisabled(disabled);
+        filter.setCompanyId(companyId);
+        return userService.listUsers(cursor, limit, filter);
+    }
+
+    /**
+     * Prefix/fuzzy search over username, email and name, served from the user search index
+     */
+    @GET
+    @Path("/users/search")
+    public Uni<UserSearchPageDTO> searchUsers(@QueryParam("q") String query,
+                                              @QueryParam("from") @DefaultValue("0") int from,
+                                              @QueryParam("size") @DefaultValue("20") int size) {
+        return userSearchService.search(query, from, size);
+    }
+
+    /**
+     * Stream every user as NDJSON (default) or CSV; contact details included, hence admin only
+     */
+    @GET
+    @Path("/users/export")
+    @Produces({"application/x-ndjson", "text/csv"})
+    public RestMulti<byte[]> exportUsers(@QueryParam("format") @DefaultValue("ndjson") String format) {
+        UserExportService.Format exportFormat = UserExportService.Format.parse(format);
+        return RestMulti.fromMultiData(userExportService.export(exportFormat))
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"users." + exportFormat.getExtension() + "\"")
+                .build();
+    }
+
+    /**
+     * Create users (and their Keycloak accounts) from an NDJSON or CSV body; the response is an
+     * NDJSON report with one line per row
+     */
+    @POST
+    @Path("/users/import")
+    @Blocking
+    @Consumes({"application/x-ndjson", "text/csv"})
+    @Produces("application/x-ndjson")
+    public RestMulti<byte[]> importUsers(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+                                         @QueryParam("welcomeEmails") @DefaultValue("false") boolean welcomeEmails,
+                                         InputStream body) {
+        UserImportService.Format format = UserImportService.Format.fromMediaType(contentType);
+        return RestMulti.fromMultiData(userImportService.importUsers(body, format, welcomeEmails))
+                .header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+                .build();
+    }
+
+    /**
+     * Reload the user search index from the database in the background
+     */
+    @POST
+    @Path("/users/search/rebuild")
+    public Response rebuildUserSearch() {
+        if (!userSearchService.startRebuild()) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(Map.of("error", "A rebuild is already running"))
+                    .build();
+        }
+        return Response.accepted(Map.of("message", "Rebuild started")).build();
+    }
+
+    @GET
+    @Path("/users/search/status")
+    public Uni<Map<String, Object>> userSearchStatus() {
+        return userSearchService.getStatus();
+    }
+
+    /**
+     * Registration sagas per state; COMPENSATING and FAILED ones are Keycloak accounts still to clean up
+     */
+    @GET
+    @Path("/registration-sagas/stats")
+    public Uni<Map<String, Long>> registrationSagaStats() {
+        return registrationSagaService.getStats();
+    }
+
+    /**
+     * Latency percentiles per registration pipeline and stage, over the most recent runs
+     */
+    @GET
+    @Path("/pipeline-timings")
+    public Map<String, Map<String, LatencyReservoir.Snapshot>> pipelineTimings() {
+        return pipelineTimings.snapshot();
+    }
+
+    /**
+     * Queued emails that failed after redelivery and were not replayed yet, oldest first
+     */
+    @GET
+    @Path("/email-dead-letters")
+    public Uni<List<EmailDeadLetter>> emailDeadLetters(@QueryParam("limit") @DefaultValue("50") int limit) {
+        return emailDeadLetterService.pending(limit);
+    }
+
+    /**
+     * Queue a dead-lettered email again through the route it failed in
+     */
+    @POST
+    @Path("/email-dead-letters/{id}/replay")
+    public Uni<Response> replayEmailDeadLetter(@PathParam("id") long id) {
+        return emailDeadLetterService.replay(id);
+    }
+
+    /**
+     * Stream the realm's user events as NDJSON, newest first. With a checkpoint name only events newer
+     * than the last completed export under that name are returned; keep the filters the same per name.
+     */
+    @GET
+    @Path("/events/export")
+    @Produces("application/x-ndjson")
+    public RestMulti<byte[]> exportEvents(@QueryParam("type") String type,
+                                          @QueryParam("client") String client,
+                                          @QueryParam("user") String user,
+                                          @QueryParam("checkpoint") String checkpoint) {
+        return RestMulti.fromMultiData(keycloakEventExportService.export(type, client, user, checkpoint))
+                .header(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+                .header("Content-Disposition", "attachment; filename=\"events.ndjson\"")
+                .build();
+    }
+}
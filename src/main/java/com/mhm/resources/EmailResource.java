@@ -1,11 +1,18 @@
 package com.mhm.resources;
 
 import com.mhm.dto.EmailDTO;
+import com.mhm.exceptions.EmailDeliveryException;
+import com.mhm.routes.EmailRoutes;
+import com.mhm.services.EmailIdempotencyService;
+import com.mhm.services.EmailIdempotencyService.IdempotentResult;
 import com.mhm.services.TwilioEmailService;
 import org.apache.camel.CamelContext;
+import org.apache.camel.ExchangePattern;
 import org.apache.camel.ProducerTemplate;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.slf4j.Logger;
@@ -21,9 +28,14 @@ public class EmailResource {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(EmailResource.class);
     
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    
     @Inject
     TwilioEmailService twilioEmailService;
     
+    @Inject
+    EmailIdempotencyService idempotencyService;
+    
     @Inject
     CamelContext camelContext;
     
@@ -31,13 +43,19 @@ public class EmailResource {
     ProducerTemplate producerTemplate;
     
     /**
-     * Send email using Camel route
+     * Send email using Camel route (async=true queues the email and returns 202; the queue is in
+     * memory, so a queued email can be dropped on restart, failed ones are kept as dead letters)
      */
     @POST
     @Path("/send")
-    public Response sendEmail(EmailDTO emailDTO) {
+    public Response sendEmail(EmailDTO emailDTO, @QueryParam("async") boolean async) {
         try {
-            String result = producerTemplate.requestBody("direct:send-email", emailDTO, String.class);
+            if (async) {
+                producerTemplate.sendBody(EmailRoutes.SEND_EMAIL, ExchangePattern.InOnly, emailDTO);
+                return Response.accepted(Map.of("message", "Email queued for delivery")).build();
+            }
+            
+            String result = producerTemplate.requestBody(EmailRoutes.SEND_EMAIL, emailDTO, String.class);
             return Response.ok(Map.of("message", result)).build();
         } catch (Exception e) {
             LOGGER.error("Error sending email via Camel route", e);
@@ -48,14 +66,18 @@ public class EmailResource {
     }
     
     /**
-     * Send email directly using TwilioEmailService
+     * Send email directly using TwilioEmailService (deduplicated by Idempotency-Key or content)
      */
     @POST
     @Path("/send-direct")
-    public Response sendEmailDirect(EmailDTO emailDTO) {
+    public Response sendEmailDirect(EmailDTO emailDTO, @HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey,
+                                    @Context ContainerRequestContext request) {
         try {
-            String result = twilioEmailService.sendEmail(emailDTO);
-            return Response.ok(Map.of("message", result)).build();
+            IdempotentResult result = idempotencyService.execute("send-direct", idempotencyKey, caller(request), emailDTO,
+                () -> twilioEmailService.sendEmail(emailDTO));
+            return ok(result);
+        } catch (EmailDeliveryException e) {
+            return deliveryFailure(e);
         } catch (Exception e) {
             LOGGER.error("Error sending email directly", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -65,13 +87,18 @@ public class EmailResource {
     }
     
     /**
-     * Send email using SMTP route
+     * Send email using SMTP route (async=true queues the email and returns 202, same caveat as /send)
      */
     @POST
     @Path("/send-smtp")
-    public Response sendEmailSmtp(EmailDTO emailDTO) {
+    public Response sendEmailSmtp(EmailDTO emailDTO, @QueryParam("async") boolean async) {
         try {
-            String result = producerTemplate.requestBody("direct:send-email-smtp", emailDTO, String.class);
+            if (async) {
+                producerTemplate.sendBody(EmailRoutes.SEND_EMAIL_SMTP, ExchangePattern.InOnly, emailDTO);
+                return Response.accepted(Map.of("message", "Email queued for delivery via SMTP")).build();
+            }
+            
+            String result = producerTemplate.requestBody(EmailRoutes.SEND_EMAIL_SMTP, emailDTO, String.class);
             return Response.ok(Map.of("message", result)).build();
         } catch (Exception e) {
             LOGGER.error("Error sending email via SMTP route", e);
@@ -86,7 +113,9 @@ public class EmailResource {
      */
     @POST
     @Path("/welcome")
-    public Response sendWelcomeEmail(@QueryParam("email") String email, @QueryParam("name") String name) {
+    public Response sendWelcomeEmail(@QueryParam("email") String email, @QueryParam("name") String name,
+                                     @HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey,
+                                     @Context ContainerRequestContext request) {
         try {
             if (email == null || email.trim().isEmpty()) {
                 return Response.status(Response.Status.BAD_REQUEST)
@@ -94,8 +123,13 @@ public class EmailResource {
                     .build();
             }
             
-            String result = twilioEmailService.sendWelcomeEmail(email, name != null ? name : "User");
-            return Response.ok(Map.of("message", result)).build();
+            String userName = name != null ? name : "User";
+            IdempotentResult result = idempotencyService.execute("welcome", idempotencyKey, caller(request),
+                Map.of("email", email, "name", userName),
+                () -> twilioEmailService.sendWelcomeEmail(email, userName));
+            return ok(result);
+        } catch (EmailDeliveryException e) {
+            return deliveryFailure(e);
         } catch (Exception e) {
             LOGGER.error("Error sending welcome email", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -109,7 +143,9 @@ public class EmailResource {
      */
     @POST
     @Path("/password-reset")
-    public Response sendPasswordResetEmail(@QueryParam("email") String email, @QueryParam("token") String token) {
+    public Response sendPasswordResetEmail(@QueryParam("email") String email, @QueryParam("token") String token,
+                                           @HeaderParam(IDEMPOTENCY_KEY) String idempotencyKey,
+                                           @Context ContainerRequestContext request) {
         try {
             if (email == null || email.trim().isEmpty()) {
                 return Response.status(Response.Status.BAD_REQUEST)
@@ -123,8 +159,12 @@ public class EmailResource {
                     .build();
             }
             
-            String result = twilioEmailService.sendPasswordResetEmail(email, token);
-            return Response.ok(Map.of("message", result)).build();
+            IdempotentResult result = idempotencyService.execute("password-reset", idempotencyKey, caller(request),
+                Map.of("email", email, "token", token),
+                () -> twilioEmailService.sendPasswordResetEmail(email, token));
+            return ok(result);
+        } catch (EmailDeliveryException e) {
+            return deliveryFailure(e);
         } catch (Exception e) {
             LOGGER.error("Error sending password reset email", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -146,7 +186,7 @@ public class EmailResource {
                     .build();
             }
             
-            String result = producerTemplate.requestBody("direct:send-bulk-emails", emails, String.class);
+            String result = producerTemplate.requestBody(EmailRoutes.SEND_BULK_EMAILS, emails, String.class);
             return Response.ok(Map.of("message", result)).build();
         } catch (Exception e) {
             LOGGER.error("Error sending bulk emails", e);
@@ -202,10 +242,15 @@ public class EmailResource {
                 "status", "running",
                 "camel_context", camelContextRunning ? "running" : "stopped",
                 "routes", camelContext.getRoutes().size(),
+                "sendgrid_governor", Map.of(
+                    "limit", twilioEmailService.getGovernor().getLimit(),
+                    "in_flight", twilioEmailService.getGovernor().getInFlight(),
+                    "circuit", twilioEmailService.getGovernor().getCircuitState().name()
+                ),
                 "endpoints", List.of(
-                    "POST /email/send - Send email via Camel route",
+                    "POST /email/send - Send email via Camel route (?async=true to queue)",
                     "POST /email/send-direct - Send email directly",
-                    "POST /email/send-smtp - Send email via SMTP",
+                    "POST /email/send-smtp - Send email via SMTP (?async=true to queue)",
                     "POST /email/welcome - Send welcome email",
                     "POST /email/password-reset - Send password reset email",
                     "POST /email/bulk - Send bulk emails",
@@ -254,4 +299,38 @@ public class EmailResource {
                 .build();
         }
     }
-} 
\ No newline at end of file
+    
+    // Subject set by AuthenticationFilter
+    private static String caller(ContainerRequestContext request) {
+        Object userId = request.getProperty("user.id");
+        return userId != null ? userId.toString() : null;
+    }
+    
+    private Response ok(IdempotentResult result) {
+        Response.ResponseBuilder response = Response.ok(Map.of("message", result.value()));
+        if (result.replayed()) {
+            response.header("Idempotent-Replayed", "true");
+        }
+        return response.build();
+    }
+    
+    private Response deliveryFailure(EmailDeliveryException e) {
+        LOGGER.error("Email delivery failed: {}", e.getMessage());
+        // 409/422 are about this request's idempotency key; other codes are the provider's. Only a failure
+        // worth retrying is 503, a refusal (bad payload, revoked key) is 502 and says nothing about retrying
+        int status;
+        if (e.getStatusCode() == 409 || e.getStatusCode() == 422) {
+            status = e.getStatusCode();
+        } else if (e.isRetryable()) {
+            status = Response.Status.SERVICE_UNAVAILABLE.getStatusCode();
+        } else {
+            status = Response.Status.BAD_GATEWAY.getStatusCode();
+        }
+        Response.ResponseBuilder response = Response.status(status)
+            .entity(Map.of("error", e.getMessage(), "error_code", e.getErrorCode()));
+        if (e.isRetryable() && e.getRetryAfterMillis() > 0) {
+            response.header("Retry-After", Math.max(1, e.getRetryAfterMillis() / 1000));
+        }
+        return response.build();
+    }
+}
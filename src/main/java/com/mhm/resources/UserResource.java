@@ -4,6 +4,7 @@ import com.mhm.dto.UserCreateDTO;
 import com.mhm.dto.UserUpdateDTO;
 import com.mhm.models.TokenModel;
 import com.mhm.models.UserLoginDTO;
+import com.mhm.services.UserCacheService;
 import com.mhm.services.UserService;
 import io.quarkus.security.identity.SecurityIdentity;
 import io.smallrye.mutiny.Uni;
@@ -20,6 +21,7 @@ import java.util.Map;
 public class UserResource {
 
     @Inject public UserService userService;
+    @Inject UserCacheService userCacheService;
     @Inject JsonWebToken jwtToken;
     @Inject SecurityIdentity securityIdentity;
 
@@ -61,6 +63,20 @@ public class UserResource {
         return userService.registerUserWithEmailVerification(userCreateDTO);
     }
 
+    /**
+     * Check whether a username and/or email can still be registered
+     */
+    @GET
+    @Path("/availability")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> checkAvailability(@QueryParam("username") String username, @QueryParam("email") String email) {
+        if (username == null && email == null) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "Username or email is required")).build());
+        }
+        return userService.checkAvailability(username, email);
+    }
+
     /**
      * Verify user email with token
      */
@@ -91,6 +107,16 @@ public class UserResource {
         return userService.updateUser(id, userUpdateDTO);
     }
 
+    /**
+     * Hit/miss statistics of the user profile cache
+     */
+    @GET
+    @Path("/cache/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getUserCacheStats() {
+        return userCacheService.getStats();
+    }
+
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -102,7 +128,7 @@ public class UserResource {
     @Path("/delete/{id}")
     @Produces(MediaType.APPLICATION_JSON)
     Uni<Response> deleteUserById(@PathParam("id") Long id) {
-        return userService.deleteUser(id.toString());
+        return userService.deleteUserById(id);
     }
 
     @DELETE
@@ -0,0 +1,159 @@
+package com.mhm.routes;
+
+import com.mhm.config.EmailRouteConfig;
+import com.mhm.services.EmailDeadLetterService;
+import com.mhm.services.PooledSmtpEmailService;
+import com.mhm.services.TwilioEmailService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.LoggingLevel;
+import org.apache.camel.builder.DeadLetterChannelBuilder;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.processor.aggregate.GroupedBodyAggregationStrategy;
+
+/**
+ * Camel routes backing the /email endpoints.
+ *
+ * Synchronous (InOut) requests go through a SEDA queue and wait for the reply,
+ * asynchronous (InOnly) requests are queued, aggregated into batches and sent as bulk.
+ * Failed async messages end up on the dead-letter queue after redelivery and are stored in
+ * email_dead_letter, from where they can be replayed (/admin/email-dead-letters).
+ *
+ * The SEDA queues are in memory: async emails still queued or waiting for a batch when the
+ * application stops or crashes are dropped, even though the caller already got a 202.
+ */
+@ApplicationScoped
+public class EmailRoutes extends RouteBuilder {
+
+    public static final String SEND_EMAIL = "direct:send-email";
+    public static final String SEND_EMAIL_SMTP = "direct:send-email-smtp";
+    public static final String SEND_BULK_EMAILS = "direct:send-bulk-emails";
+
+    static final String SENDGRID_QUEUE = "seda:email-sendgrid";
+    static final String SENDGRID_BATCH_QUEUE = "seda:email-sendgrid-batch";
+    static final String SMTP_QUEUE = "seda:email-smtp";
+    static final String SMTP_ASYNC_QUEUE = "seda:email-smtp-async";
+    static final String SMTP_DELIVER = "direct:smtp-deliver";
+    static final String DEAD_LETTER_QUEUE = "seda:email-dead-letter";
+
+    @Inject
+    EmailRouteConfig config;
+
+    @Inject
+    TwilioEmailService twilioEmailService;
+
+    @Inject
+    PooledSmtpEmailService pooledSmtpEmailService;
+
+    @Inject
+    EmailDeadLetterService deadLetterService;
+
+    @Override
+    public void configure() {
+        // ===================================
+        // ENTRY POINTS
+        // ===================================
+
+        from(SEND_EMAIL).routeId("send-email")
+            .choice()
+                .when(exchange -> exchange.getPattern() == ExchangePattern.InOnly)
+                    .to(queue(SENDGRID_BATCH_QUEUE))
+                .otherwise()
+                    .to(queue(SENDGRID_QUEUE))
+            .end();
+
+        from(SEND_EMAIL_SMTP).routeId("send-email-smtp")
+            .choice()
+                .when(exchange -> exchange.getPattern() == ExchangePattern.InOnly)
+                    .to(queue(SMTP_ASYNC_QUEUE))
+                .otherwise()
+                    .to(queue(SMTP_QUEUE))
+            .end();
+
+        from(SEND_BULK_EMAILS).routeId("send-bulk-emails")
+            .throttle(constant(config.maxRequestsPerPeriod())).totalRequestsMode()
+                .timePeriodMillis(config.throttlePeriodMillis())
+            .bean(twilioEmailService, "sendBulkEmails");
+
+        // ===================================
+        // SENDGRID PIPELINE
+        // ===================================
+
+        // Single messages; the caller waits for the reply when the exchange is InOut
+        from(consumer(SENDGRID_QUEUE)).routeId("sendgrid-single")
+            .throttle(constant(config.maxRequestsPerPeriod())).totalRequestsMode()
+                .timePeriodMillis(config.throttlePeriodMillis())
+            .bean(twilioEmailService, "sendEmail");
+
+        // Fire-and-forget messages are batched into bulk sends; emails that still fail after the
+        // governor's retries are dead-lettered one by one, the rest of the batch is not resent
+        from(consumer(SENDGRID_BATCH_QUEUE)).routeId("sendgrid-batch")
+            .errorHandler(deadLetter())
+            .aggregate(constant(true), new GroupedBodyAggregationStrategy())
+                .completionSize(config.batchSize())
+                .completionTimeout(config.batchTimeoutMillis())
+            .log(LoggingLevel.DEBUG, "Sending batch of ${body.size()} queued emails")
+            .throttle(constant(config.maxRequestsPerPeriod())).totalRequestsMode()
+                .timePeriodMillis(config.throttlePeriodMillis())
+            .bean(twilioEmailService, "sendBatch")
+            .split(body())
+                .process(exchange -> {
+                    TwilioEmailService.FailedEmail failed = exchange.getIn().getBody(TwilioEmailService.FailedEmail.class);
+                    exchange.setProperty(Exchange.EXCEPTION_CAUGHT, failed.cause());
+                    exchange.setProperty(Exchange.FAILURE_ROUTE_ID, "sendgrid-batch");
+                    exchange.getIn().setBody(failed.email());
+                })
+                .to(DEAD_LETTER_QUEUE)
+            .end();
+
+        // ===================================
+        // SMTP PIPELINE
+        // ===================================
+
+        from(consumer(SMTP_QUEUE)).routeId("smtp-single")
+            .to(SMTP_DELIVER);
+
+        from(consumer(SMTP_ASYNC_QUEUE)).routeId("smtp-async")
+            .errorHandler(deadLetter())
+            .to(SMTP_DELIVER);
+
+        from(SMTP_DELIVER).routeId("smtp-deliver")
+            .throttle(constant(config.maxRequestsPerPeriod())).totalRequestsMode()
+                .timePeriodMillis(config.throttlePeriodMillis())
+            .bean(pooledSmtpEmailService, "sendEmail");
+
+        // ===================================
+        // DEAD LETTER CHANNEL
+        // ===================================
+
+        from(DEAD_LETTER_QUEUE).routeId("email-dead-letter")
+            .log(LoggingLevel.ERROR,
+                "Email delivery failed after redelivery, route: ${exchangeProperty.CamelFailureRouteId}, "
+                    + "error: ${exchangeProperty.CamelExceptionCaught.message}")
+            .process(exchange -> deadLetterService.record(
+                exchange.getProperty(Exchange.FAILURE_ROUTE_ID, String.class),
+                exchange.getIn().getBody(),
+                exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Throwable.class)));
+    }
+
+    // Configured step by step: the fluent setters return the generic error handler definition
+    private DeadLetterChannelBuilder deadLetter() {
+        DeadLetterChannelBuilder builder = deadLetterChannel(DEAD_LETTER_QUEUE);
+        builder.maximumRedeliveries(config.maximumRedeliveries());
+        builder.redeliveryDelay(config.redeliveryDelayMillis());
+        builder.useExponentialBackOff();
+        builder.useOriginalMessage();
+        builder.logExhausted(true);
+        return builder;
+    }
+
+    private String queue(String endpoint) {
+        return endpoint + "?size=" + config.queueSize();
+    }
+
+    private String consumer(String endpoint) {
+        return queue(endpoint) + "&concurrentConsumers=" + config.concurrentConsumers();
+    }
+}
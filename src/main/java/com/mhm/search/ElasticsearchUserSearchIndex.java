@@ -0,0 +1,199 @@
+package com.mhm.search;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.dto.UserSearchDocument;
+import com.mhm.dto.UserSearchPageDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * User search index in Elasticsearch, always read and written through an alias.
+ *
+ * A rebuild loads a new concrete index (alias-timestamp) with refresh disabled, then moves the alias
+ * onto it in one atomic alias update and drops the old index, so searches never see a half-loaded copy.
+ */
+public class ElasticsearchUserSearchIndex implements UserSearchIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchUserSearchIndex.class);
+
+    private static final List<String> FIELDS = List.of("username^3", "email^2", "firstName", "lastName");
+
+    private final ElasticsearchAsyncClient client;
+    private final String alias;
+    private volatile String building;
+
+    public ElasticsearchUserSearchIndex(RestClient restClient, ObjectMapper objectMapper, String alias) {
+        this.client = new ElasticsearchAsyncClient(new RestClientTransport(restClient, new JacksonJsonpMapper(objectMapper)));
+        this.alias = alias;
+    }
+
+    @Override
+    public Uni<Void> open() {
+        return call(() -> client.indices().existsAlias(e -> e.name(alias)))
+                .chain(exists -> {
+                    if (exists.value()) {
+                        return Uni.createFrom().voidItem();
+                    }
+                    // First start: an empty index behind the alias, filled by the next rebuild
+                    String index = newIndexName();
+                    return createIndex(index, "1s")
+                            .chain(() -> call(() -> client.indices().putAlias(a -> a.index(index).name(alias))))
+                            .invoke(() -> LOGGER.info("Created user search index {} behind alias {}", index, alias))
+                            .replaceWithVoid();
+                });
+    }
+
+    @Override
+    public Uni<Void> upsert(List<UserSearchDocument> documents) {
+        if (documents.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        String rebuilding = building;
+        Uni<Void> write = bulkIndex(alias, documents);
+        return rebuilding == null ? write : write.chain(() -> bulkIndex(rebuilding, documents));
+    }
+
+    @Override
+    public Uni<Void> remove(Long id) {
+        String rebuilding = building;
+        Uni<Void> delete = deleteDocument(alias, id);
+        return rebuilding == null ? delete : delete.chain(() -> deleteDocument(rebuilding, id));
+    }
+
+    @Override
+    public Uni<UserSearchPageDTO> search(String query, int from, int size) {
+        List<String> terms = InMemoryUserSearchIndex.terms(query);
+        if (terms.isEmpty()) {
+            return Uni.createFrom().item(new UserSearchPageDTO(List.of(), 0, from, size));
+        }
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        for (String term : terms) {
+            // Each term: a prefix of some field, or that field within AUTO fuzziness
+            bool.must(m -> m.bool(b -> b
+                    .should(s -> s.multiMatch(mm -> mm.query(term).type(TextQueryType.BoolPrefix).fields(FIELDS)))
+                    .should(s -> s.multiMatch(mm -> mm.query(term).fuzziness("AUTO").fields(FIELDS)))));
+        }
+        Query filter = bool.build()._toQuery();
+
+        return call(() -> client.search(s -> s
+                        .index(alias)
+                        .query(filter)
+                        .from(from)
+                        .size(size)
+                        .trackTotalHits(t -> t.enabled(true))
+                        .sort(sort -> sort.score(score -> score.order(SortOrder.Desc)))
+                        .sort(sort -> sort.field(field -> field.field("username.keyword").order(SortOrder.Asc))),
+                UserSearchDocument.class))
+                .onItem().transform(response -> new UserSearchPageDTO(
+                        response.hits().hits().stream().map(Hit::source).filter(Objects::nonNull).toList(),
+                        response.hits().total() == null ? response.hits().hits().size() : response.hits().total().value(),
+                        from, size));
+    }
+
+    @Override
+    public Uni<Long> rebuild(Multi<List<UserSearchDocument>> batches) {
+        String index = newIndexName();
+        AtomicLong loaded = new AtomicLong();
+        return createIndex(index, "-1")
+                .invoke(() -> building = index)
+                .chain(() -> batches
+                        .onItem().transformToUniAndConcatenate(batch -> bulkIndex(index, batch)
+                                .invoke(() -> loaded.addAndGet(batch.size())))
+                        .collect().last())
+                .chain(() -> call(() -> client.indices().putSettings(p -> p.index(index)
+                        .settings(s -> s.refreshInterval(r -> r.time("1s"))))))
+                .chain(() -> call(() -> client.indices().refresh(r -> r.index(index))))
+                .chain(() -> swapAlias(index))
+                .onTermination().invoke(() -> building = null)
+                .onFailure().call(failure -> call(() -> client.indices().delete(d -> d.index(index)))
+                        .onFailure().recoverWithNull())
+                .replaceWith(loaded::get);
+    }
+
+    @Override
+    public Uni<Long> count() {
+        return call(() -> client.count(c -> c.index(alias)))
+                .onItem().transform(response -> response.count());
+    }
+
+    // ===================================
+    // INDEX MANAGEMENT
+    // ===================================
+
+    private String newIndexName() {
+        return alias + "-" + System.currentTimeMillis();
+    }
+
+    // A rebuild creates its index with refresh off ("-1") until loaded; username.keyword is the tie-breaking sort key
+    private Uni<Void> createIndex(String index, String refreshInterval) {
+        return call(() -> client.indices().create(c -> c
+                .index(index)
+                .settings(s -> s.refreshInterval(r -> r.time(refreshInterval)))
+                .mappings(m -> m
+                        .properties("id", p -> p.long_(l -> l))
+                        .properties("username", p -> p.text(t -> t.fields("keyword", k -> k.keyword(kw -> kw))))
+                        .properties("email", p -> p.text(t -> t))
+                        .properties("firstName", p -> p.text(t -> t))
+                        .properties("lastName", p -> p.text(t -> t))
+                        .properties("disabled", p -> p.boolean_(b -> b)))))
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> swapAlias(String index) {
+        return call(() -> client.indices().getAlias(g -> g.name(alias)))
+                .onItem().transform(response -> List.copyOf(response.result().keySet()))
+                .chain(previous -> call(() -> client.indices().updateAliases(u -> {
+                            previous.forEach(old -> u.actions(a -> a.remove(r -> r.index(old).alias(alias))));
+                            return u.actions(a -> a.add(add -> add.index(index).alias(alias)));
+                        }))
+                        .chain(() -> previous.isEmpty()
+                                ? Uni.createFrom().voidItem()
+                                : call(() -> client.indices().delete(d -> d.index(previous))).replaceWithVoid()))
+                .invoke(() -> LOGGER.info("User search alias {} now points to {}", alias, index));
+    }
+
+    // ===================================
+    // DOCUMENTS
+    // ===================================
+
+    private Uni<Void> bulkIndex(String index, List<UserSearchDocument> documents) {
+        BulkRequest.Builder request = new BulkRequest.Builder().index(index);
+        for (UserSearchDocument document : documents) {
+            request.operations(op -> op.index(i -> i.id(document.id().toString()).document(document)));
+        }
+        return call(() -> client.bulk(request.build()))
+                .invoke(response -> {
+                    if (response.errors()) {
+                        long failed = response.items().stream().filter(item -> item.error() != null).count();
+                        throw new IllegalStateException(failed + " of " + documents.size() + " documents were not indexed into " + index);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> deleteDocument(String index, Long id) {
+        return call(() -> client.delete(d -> d.index(index).id(id.toString()))).replaceWithVoid();
+    }
+
+    private static <T> Uni<T> call(Supplier<CompletableFuture<T>> request) {
+        return Uni.createFrom().completionStage(request);
+    }
+}
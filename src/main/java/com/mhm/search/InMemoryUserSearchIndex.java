@@ -0,0 +1,255 @@
+package com.mhm.search;
+
+import com.mhm.dto.UserSearchDocument;
+import com.mhm.dto.UserSearchPageDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * User search index held in this process: a sorted token dictionary with posting sets.
+ *
+ * Every field value is indexed whole and split into its letter/digit runs, so "john.doe@mail.com"
+ * matches "john", "doe", "mail" and the full address. Prefixes are a range scan over the dictionary;
+ * fuzzy matches scan the dictionary with a bounded edit distance (1 edit for terms of 3-5 characters,
+ * 2 above, as Elasticsearch's AUTO fuzziness). Meant for tests and single-instance deployments.
+ */
+public class InMemoryUserSearchIndex implements UserSearchIndex {
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    private volatile Store current = new Store();
+    private Store building;
+
+    @Override
+    public Uni<Void> upsert(List<UserSearchDocument> documents) {
+        return Uni.createFrom().item(() -> {
+            for (Store store : targets()) {
+                store.upsert(documents);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<Void> remove(Long id) {
+        return Uni.createFrom().item(() -> {
+            for (Store store : targets()) {
+                store.remove(id);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Uni<UserSearchPageDTO> search(String query, int from, int size) {
+        return Uni.createFrom().item(() -> current.search(terms(query), from, size));
+    }
+
+    @Override
+    public Uni<Long> rebuild(Multi<List<UserSearchDocument>> batches) {
+        return Uni.createFrom().deferred(() -> {
+            Store fresh = new Store();
+            synchronized (this) {
+                building = fresh;
+            }
+            AtomicLong loaded = new AtomicLong();
+            return batches
+                    .onItem().invoke(batch -> {
+                        fresh.upsert(batch);
+                        loaded.addAndGet(batch.size());
+                    })
+                    .collect().last()
+                    .onItemOrFailure().transform((ignored, failure) -> {
+                        synchronized (this) {
+                            if (building == fresh) {
+                                building = null;
+                                if (failure == null) {
+                                    current = fresh;
+                                }
+                            }
+                        }
+                        if (failure != null) {
+                            throw failure instanceof RuntimeException runtime ? runtime : new IllegalStateException(failure);
+                        }
+                        return loaded.get();
+                    });
+        });
+    }
+
+    @Override
+    public Uni<Long> count() {
+        return Uni.createFrom().item(() -> (long) current.size());
+    }
+
+    private synchronized List<Store> targets() {
+        return building == null ? List.of(current) : List.of(current, building);
+    }
+
+    static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query != null) {
+            for (String term : query.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    // ===================================
+    // STORE
+    // ===================================
+
+    private static class Store {
+
+        private final Map<Long, UserSearchDocument> documents = new HashMap<>();
+        private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+
+        synchronized void upsert(List<UserSearchDocument> batch) {
+            for (UserSearchDocument document : batch) {
+                removeDocument(document.id());
+                documents.put(document.id(), document);
+                for (String token : tokens(document)) {
+                    postings.computeIfAbsent(token, key -> new HashSet<>()).add(document.id());
+                }
+            }
+        }
+
+        synchronized void remove(Long id) {
+            removeDocument(id);
+        }
+
+        synchronized int size() {
+            return documents.size();
+        }
+
+        synchronized UserSearchPageDTO search(List<String> terms, int from, int size) {
+            if (terms.isEmpty()) {
+                return new UserSearchPageDTO(List.of(), 0, from, size);
+            }
+            Map<Long, Integer> scores = null;
+            for (String term : terms) {
+                Map<Long, Integer> termScores = match(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Every term has to match
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+
+            Map<Long, Integer> finalScores = scores;
+            List<UserSearchDocument> matches = finalScores.keySet().stream()
+                    .map(documents::get)
+                    .sorted(Comparator.<UserSearchDocument>comparingInt(document -> -finalScores.get(document.id()))
+                            .thenComparing(UserSearchDocument::username, Comparator.nullsLast(Comparator.naturalOrder()))
+                            .thenComparing(UserSearchDocument::id))
+                    .toList();
+            List<UserSearchDocument> page = from >= matches.size()
+                    ? List.of()
+                    : matches.subList(from, Math.min(matches.size(), from + size));
+            return new UserSearchPageDTO(List.copyOf(page), matches.size(), from, size);
+        }
+
+        // Best score per document for one term
+        private Map<Long, Integer> match(String term) {
+            Map<Long, Integer> scores = new HashMap<>();
+            for (Map.Entry<String, Set<Long>> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                int score = entry.getKey().equals(term) ? EXACT_SCORE : PREFIX_SCORE;
+                entry.getValue().forEach(id -> scores.merge(id, score, Math::max));
+            }
+            int maxEdits = term.length() < 3 ? 0 : term.length() <= 5 ? 1 : 2;
+            if (maxEdits > 0) {
+                for (Map.Entry<String, Set<Long>> entry : postings.entrySet()) {
+                    if (withinDistance(term, entry.getKey(), maxEdits)) {
+                        entry.getValue().forEach(id -> scores.merge(id, FUZZY_SCORE, Math::max));
+                    }
+                }
+            }
+            return scores;
+        }
+
+        private void removeDocument(Long id) {
+            UserSearchDocument previous = documents.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String token : tokens(previous)) {
+                Set<Long> ids = postings.get(token);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    static Set<String> tokens(UserSearchDocument document) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String value : new String[]{document.username(), document.email(), document.firstName(), document.lastName()}) {
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            String lower = value.toLowerCase(Locale.ROOT).trim();
+            tokens.add(lower);
+            for (String part : lower.split("[^\\p{L}\\p{N}]+")) {
+                if (!part.isEmpty()) {
+                    tokens.add(part);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    // Optimal string alignment distance (a transposition counts as one edit), abandoned once it exceeds maxEdits
+    static boolean withinDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            int rowMin = row[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, previousPrevious[j - 2] + 1);
+                }
+                row[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = row;
+            row = recycled;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mhm.search;
+
+import com.mhm.dto.UserSearchDocument;
+import com.mhm.dto.UserSearchPageDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+
+/**
+ * Full-text index over user profiles.
+ *
+ * A query is split into terms on whitespace; every term has to match some field (username, email,
+ * first or last name) as a prefix or within a small edit distance. Results are ordered by relevance,
+ * then username.
+ */
+public interface UserSearchIndex {
+
+    /**
+     * Prepare the index for reads and writes (create it if it does not exist yet)
+     */
+    default Uni<Void> open() {
+        return Uni.createFrom().voidItem();
+    }
+
+    Uni<Void> upsert(List<UserSearchDocument> documents);
+
+    Uni<Void> remove(Long id);
+
+    Uni<UserSearchPageDTO> search(String query, int from, int size);
+
+    /**
+     * Build a fresh copy from the given batches and swap it in once complete; searches keep using
+     * the current copy until then, and writes made meanwhile go to both. Returns the documents loaded.
+     */
+    Uni<Long> rebuild(Multi<List<UserSearchDocument>> batches);
+
+    Uni<Long> count();
+}
@@ -0,0 +1,151 @@
+package com.mhm.services;
+
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.config.KeycloakBulkConfig;
+import com.mhm.dto.BulkMembershipDTO;
+import com.mhm.dto.MembershipResultDTO;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.models.KeycloakRole;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns realm roles or groups to many users at once.
+ *
+ * Role representations and the admin token are resolved once per request, then the
+ * per-user Keycloak calls fan out with bounded concurrency. Results are emitted per user
+ * as soon as that user is done, so they arrive in completion order.
+ */
+@ApplicationScoped
+public class BulkMembershipService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkMembershipService.class);
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    KeycloakRealmCache keycloakRealmCache;
+
+    @Inject
+    UserPermissionCache userPermissionCache;
+
+    @Inject
+    KeycloakBulkConfig config;
+
+    public Multi<MembershipResultDTO> assignRoles(BulkMembershipDTO request) {
+        List<String> userIds = validate(request, request.getRoles(), "roles");
+
+        return Uni.combine().all().unis(keycloakRealmCache.adminToken(), resolveRoles(request.getRoles())).asTuple()
+                .onItem().transformToMulti(resolved -> {
+                    String authorization = UserService.BEARER_PREFIX + resolved.getItem1().getAccess_token();
+                    List<KeycloakRole> roles = resolved.getItem2();
+                    // One call per user carries every role
+                    return Multi.createFrom().iterable(userIds)
+                            .onItem().transformToUni(userId -> call(keycloakAdminClient.addRolesToUser(authorization, userId, roles))
+                                    .onItem().transformToUni(error -> error == null
+                                            ? finish(userId, List.of())
+                                            : Uni.createFrom().item(MembershipResultDTO.failed(userId, request.getRoles(), error))))
+                            .merge(config.concurrency());
+                });
+    }
+
+    public Multi<MembershipResultDTO> assignGroups(BulkMembershipDTO request) {
+        List<String> userIds = validate(request, request.getGroupIds(), "groupIds");
+        List<String> groupIds = request.getGroupIds().stream().distinct().toList();
+
+        return keycloakRealmCache.adminToken()
+                .onItem().transformToMulti(adminToken -> {
+                    String authorization = UserService.BEARER_PREFIX + adminToken.getAccess_token();
+                    // Keycloak takes one group per call, so the fan-out is over user/group pairs; one merge
+                    // over all of them keeps the calls in flight at the configured concurrency
+                    Map<String, Pending> pending = new ConcurrentHashMap<>();
+                    userIds.forEach(userId -> pending.put(userId, new Pending(groupIds.size())));
+                    return Multi.createFrom().iterable(userIds)
+                            .onItem().transformToIterable(userId -> groupIds.stream().map(groupId -> new Assignment(userId, groupId)).toList())
+                            .onItem().transformToUni(assignment -> call(keycloakAdminClient.addUserToGroup(authorization, assignment.userId(), assignment.groupId()))
+                                    .onItem().transformToUni(error -> {
+                                        Pending user = pending.get(assignment.userId());
+                                        if (error != null) {
+                                            user.failedGroups().add(assignment.groupId());
+                                        }
+                                        // Null until the user's last group is done, and nulls drop out
+                                        return user.remaining().decrementAndGet() == 0
+                                                ? finish(assignment.userId(), List.copyOf(user.failedGroups()))
+                                                : Uni.createFrom().<MembershipResultDTO>nullItem();
+                                    }))
+                            .merge(config.concurrency());
+                });
+    }
+
+    private record Assignment(String userId, String groupId) {
+    }
+
+    // Calls still running for a user and the groups that failed so far
+    private record Pending(AtomicInteger remaining, Queue<String> failedGroups) {
+        Pending(int calls) {
+            this(new AtomicInteger(calls), new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    private List<String> validate(BulkMembershipDTO request, List<String> targets, String field) {
+        List<String> userIds = request.getUserIds();
+        if (userIds == null || userIds.isEmpty() || targets == null || targets.isEmpty()) {
+            throw new ValidationException("userIds and " + field + " are required");
+        }
+        if (userIds.size() > config.maxUsers()) {
+            throw new ValidationException("At most " + config.maxUsers() + " users per request");
+        }
+        return userIds.stream().distinct().toList();
+    }
+
+    // Representations from the cached catalog, falling back to a lookup for roles it does not have yet
+    private Uni<List<KeycloakRole>> resolveRoles(List<String> roleNames) {
+        return Multi.createFrom().iterable(roleNames.stream().distinct().toList())
+                .onItem().transformToUniAndConcatenate(name -> keycloakRealmCache.role(name)
+                        .onItem().ifNull().switchTo(() -> keycloakRealmCache.adminToken()
+                                .chain(adminToken -> keycloakAdminClient.getRoleByName(
+                                        UserService.BEARER_PREFIX + adminToken.getAccess_token(), name)))
+                        // The REST client reports a 404 as a plain WebApplicationException
+                        .onFailure(failure -> failure instanceof WebApplicationException notFound
+                                && notFound.getResponse().getStatus() == Response.Status.NOT_FOUND.getStatusCode())
+                        .transform(failure -> new ValidationException("Unknown role: " + name)))
+                .collect().asList();
+    }
+
+    // Null on success, otherwise a short reason; one user's failure never fails the stream
+    private Uni<String> call(Uni<Response> request) {
+        return request
+                .onItem().transform(response -> response.getStatus() < 300 ? null : "Keycloak returned " + response.getStatus())
+                .onFailure(WebApplicationException.class).recoverWithItem(failure ->
+                        "Keycloak returned " + ((WebApplicationException) failure).getResponse().getStatus())
+                .onFailure().recoverWithItem(failure -> {
+                    LOGGER.warn("Keycloak membership call failed", failure);
+                    return failure.getMessage();
+                });
+    }
+
+    private Uni<MembershipResultDTO> finish(String userId, List<String> failed) {
+        // Even a partial assignment changed the user's memberships
+        return userPermissionCache.invalidate(userId)
+                .replaceWith(failed.isEmpty()
+                        ? MembershipResultDTO.assigned(userId)
+                        : MembershipResultDTO.failed(userId, new ArrayList<>(failed), "Some assignments failed"));
+    }
+}
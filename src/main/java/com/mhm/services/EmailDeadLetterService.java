@@ -0,0 +1,112 @@
+package com.mhm.services;
+
+import com.mhm.dto.AttachmentDTO;
+import com.mhm.dto.EmailDTO;
+import com.mhm.models.EmailDeadLetter;
+import com.mhm.repositories.EmailDeadLetterRepository;
+import com.mhm.routes.EmailRoutes;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.ProducerTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps queued emails that failed after redelivery in email_dead_letter, so they are not lost with
+ * the 202 the caller already got, and queues them again on request
+ */
+@ApplicationScoped
+public class EmailDeadLetterService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailDeadLetterService.class);
+
+    private static final Duration STORE_TIMEOUT = Duration.ofSeconds(10);
+
+    @Inject
+    EmailDeadLetterRepository deadLetterRepository;
+
+    @Inject
+    ProducerTemplate producerTemplate;
+
+    /**
+     * Store a dead-lettered body; called on the dead-letter consumer thread, so it waits for the insert.
+     * The body is one email, or the whole list when a batch failed before it was split.
+     */
+    public void record(String route, Object body, Throwable cause) {
+        if (body instanceof List<?> emails) {
+            emails.forEach(email -> record(route, email, cause));
+            return;
+        }
+        if (!(body instanceof EmailDTO email)) {
+            LOGGER.error("Dead-lettered message from route {} is not an email, dropped: {}", route, body);
+            return;
+        }
+
+        String error = cause != null ? cause.getMessage() : null;
+        try {
+            materializeAttachments(email);
+            Long id = deadLetterRepository.save(route != null ? route : "unknown", email, error)
+                    .await().atMost(STORE_TIMEOUT);
+            LOGGER.warn("Dead-lettered email to {} stored as {}", email.getTo(), id);
+        } catch (Exception e) {
+            // Nothing else holds the email at this point
+            LOGGER.error("Could not store dead-lettered email to {} (subject '{}'), it is lost: {}",
+                    email.getTo(), email.getSubject(), e.getMessage(), e);
+        }
+    }
+
+    public Uni<List<EmailDeadLetter>> pending(int limit) {
+        return deadLetterRepository.findPending(Math.max(1, Math.min(limit, 500)));
+    }
+
+    /**
+     * Queue a stored email again through the route it failed in; a row is replayed at most once
+     * unless queueing it fails
+     */
+    public Uni<Response> replay(long id) {
+        return deadLetterRepository.claimForReplay(id)
+                .onItem().transformToUni(deadLetter -> {
+                    if (deadLetter == null) {
+                        return Uni.createFrom().item(Response.status(Response.Status.NOT_FOUND)
+                                .entity(Map.of("error", "No pending dead letter " + id))
+                                .build());
+                    }
+                    String endpoint = "smtp-async".equals(deadLetter.route())
+                            ? EmailRoutes.SEND_EMAIL_SMTP : EmailRoutes.SEND_EMAIL;
+                    return Uni.createFrom().item(() -> {
+                                producerTemplate.sendBody(endpoint, ExchangePattern.InOnly, deadLetter.email());
+                                return Response.accepted(Map.of("message", "Email queued for delivery")).build();
+                            })
+                            .onFailure().call(failure -> {
+                                LOGGER.error("Could not queue dead letter {} again", id, failure);
+                                return deadLetterRepository.releaseReplay(id);
+                            })
+                            .onFailure().recoverWithItem(failure -> Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                    .entity(Map.of("error", "Could not queue email: " + failure.getMessage()))
+                                    .build());
+                });
+    }
+
+    // File and stream attachments are not serialized; keep their bytes so the stored email is complete
+    private static void materializeAttachments(EmailDTO email) throws IOException {
+        if (email.getAttachments() == null) {
+            return;
+        }
+        for (AttachmentDTO attachment : email.getAttachments()) {
+            if (attachment.getContent() == null) {
+                try (InputStream in = attachment.openStream()) {
+                    attachment.setContent(in.readAllBytes());
+                }
+            }
+        }
+    }
+}
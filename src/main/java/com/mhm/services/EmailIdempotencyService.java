@@ -0,0 +1,156 @@
+package com.mhm.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.config.EmailIdempotencyConfig;
+import com.mhm.exceptions.EmailDeliveryException;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.value.ValueCommands;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates email sends that are retried by clients.
+ *
+ * A send is keyed by the caller and the Idempotency-Key header, or by a hash of its content when the
+ * header is missing. The first call sends and its result is kept for the cache window; concurrent and
+ * later calls with the same key get that result without another provider request. The content hash is
+ * kept with the result, and a key reused for different content is refused with 422. With the Redis tier
+ * enabled the result is shared across instances and a send in progress elsewhere is reported as 409.
+ */
+@ApplicationScoped
+public class EmailIdempotencyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailIdempotencyService.class);
+
+    private static final String PENDING = "\u0000pending";
+
+    // Redis values are "<content hash>\n<result or PENDING>"
+    private static final char SEPARATOR = '\n';
+
+    @Inject
+    @CacheName("email-idempotency")
+    Cache cache;
+
+    @Inject
+    EmailIdempotencyConfig config;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Instance<RedisDataSource> redis;
+
+    public record IdempotentResult(String value, boolean replayed) {
+    }
+
+    // A completed send and the hash of the content it was made for
+    private record Sent(String contentHash, String value) {
+    }
+
+    /**
+     * Run the send once per key within the dedup window
+     */
+    public IdempotentResult execute(String scope, String idempotencyKey, String caller, Object content,
+                                    Supplier<String> send) {
+        if (!config.enabled()) {
+            return new IdempotentResult(send.get(), false);
+        }
+
+        String contentHash = contentHash(scope, content);
+        String key = key(scope, idempotencyKey, caller, contentHash);
+        AtomicBoolean executed = new AtomicBoolean();
+
+        // Concurrent callers with the same key share one load; failures are not cached
+        Sent sent = cache.get(key, k -> {
+            executed.set(true);
+            String value = config.redisEnabled() ? sendThroughRedis(k, contentHash, send) : send.get();
+            return new Sent(contentHash, value);
+        }).await().indefinitely();
+
+        if (!sent.contentHash().equals(contentHash)) {
+            LOGGER.warn("Idempotency key reused for different {} email content, key: {}", scope, key);
+            throw EmailDeliveryException.keyReused();
+        }
+        if (!executed.get()) {
+            LOGGER.info("Duplicate {} email suppressed, key: {}", scope, key);
+        }
+        return new IdempotentResult(sent.value(), !executed.get());
+    }
+
+    // ===================================
+    // REDIS TIER
+    // ===================================
+
+    private String sendThroughRedis(String key, String contentHash, Supplier<String> send) {
+        ValueCommands<String, String> values = redis.get().value(String.class);
+        String redisKey = config.redisKeyPrefix() + key;
+
+        // Claim and TTL in one command, so a claim never outlives a dead owner
+        Response claimed = redis.get().execute("SET", redisKey,
+            contentHash + SEPARATOR + PENDING, "NX", "EX", String.valueOf(config.pendingTtlSeconds()));
+        if (claimed == null) {
+            String existing = values.get(redisKey);
+            if (existing == null) {
+                throw EmailDeliveryException.inProgress();
+            }
+            int separator = existing.indexOf(SEPARATOR);
+            if (separator < 0 || !existing.substring(0, separator).equals(contentHash)) {
+                throw EmailDeliveryException.keyReused();
+            }
+            String result = existing.substring(separator + 1);
+            if (PENDING.equals(result)) {
+                throw EmailDeliveryException.inProgress();
+            }
+            LOGGER.info("Email already sent by another instance, key: {}", key);
+            return result;
+        }
+
+        try {
+            String result = send.get();
+            values.setex(redisKey, config.redisTtlSeconds(), contentHash + SEPARATOR + result);
+            return result;
+        } catch (RuntimeException e) {
+            // Release the claim so a retry can send
+            redis.get().key().del(redisKey);
+            throw e;
+        }
+    }
+
+    // ===================================
+    // KEYS
+    // ===================================
+
+    // Keys belong to the caller, so one client cannot replay or block another's sends
+    private String key(String scope, String idempotencyKey, String caller, String contentHash) {
+        String owner = caller != null ? caller : "anonymous";
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            return scope + ":" + owner + ":key:" + idempotencyKey.trim();
+        }
+        return scope + ":" + owner + ":sha256:" + contentHash;
+    }
+
+    private String contentHash(String scope, Object content) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(content);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to derive idempotency key", e);
+        }
+    }
+}
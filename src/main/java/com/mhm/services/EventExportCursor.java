@@ -0,0 +1,86 @@
+package com.mhm.services;
+
+import com.mhm.models.EventCheckpoint;
+import com.mhm.models.KeycloakEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filters Keycloak's event pages (newest first, paged by offset) into an export without gaps or repeats.
+ *
+ * Events recorded while the export runs push older ones to higher offsets, so a page can start with
+ * events the previous page already returned: anything newer than the oldest event emitted so far, or
+ * at the same time and already emitted, is dropped. New events are left for the next incremental run.
+ * With a checkpoint, paging stops at the first event at or before it.
+ */
+class EventExportCursor {
+
+    private final EventCheckpoint since;
+
+    // Oldest time emitted so far and the keys emitted at it
+    private long boundaryTime = Long.MAX_VALUE;
+    private final Set<String> boundaryKeys = new HashSet<>();
+
+    // Newest time emitted and its keys: the next checkpoint
+    private long newestTime = -1;
+    private final Set<String> newestKeys = new HashSet<>();
+
+    private boolean reachedCheckpoint;
+    private long emitted;
+
+    EventExportCursor(EventCheckpoint since) {
+        this.since = since;
+    }
+
+    List<KeycloakEvent> accept(List<KeycloakEvent> page) {
+        List<KeycloakEvent> fresh = new ArrayList<>(page.size());
+        for (KeycloakEvent event : page) {
+            String key = event.key();
+            if (since != null && (event.time() < since.time() || (event.time() == since.time() && since.keys().contains(key)))) {
+                reachedCheckpoint |= event.time() < since.time();
+                continue;
+            }
+            if (event.time() > boundaryTime || (event.time() == boundaryTime && boundaryKeys.contains(key))) {
+                continue;
+            }
+            if (event.time() < boundaryTime) {
+                boundaryTime = event.time();
+                boundaryKeys.clear();
+            }
+            boundaryKeys.add(key);
+            if (newestTime < 0) {
+                newestTime = event.time();
+            }
+            if (event.time() == newestTime) {
+                newestKeys.add(key);
+            }
+            fresh.add(event);
+        }
+        emitted += fresh.size();
+        return fresh;
+    }
+
+    // Everything after this page is older than the checkpoint
+    boolean reachedCheckpoint() {
+        return reachedCheckpoint;
+    }
+
+    long emitted() {
+        return emitted;
+    }
+
+    // Where the next incremental export starts; the old checkpoint if nothing new was emitted
+    EventCheckpoint checkpoint() {
+        if (newestTime < 0) {
+            return since;
+        }
+        Set<String> keys = new HashSet<>(newestKeys);
+        if (since != null && since.time() == newestTime) {
+            keys.addAll(since.keys());
+        }
+        return new EventCheckpoint(newestTime, keys);
+    }
+}
@@ -0,0 +1,156 @@
+package com.mhm.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.config.KeycloakEventExportConfig;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.models.EventCheckpoint;
+import com.mhm.models.KeycloakEvent;
+import com.mhm.repositories.EventCheckpointRepository;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static com.mhm.services.UserService.BEARER_PREFIX;
+
+/**
+ * Streams the realm's user events as NDJSON, walking Keycloak's offset paging as a Multi.
+ *
+ * Pages are decoded into KeycloakEvent records and written as they arrive; while one page is being
+ * written the next is already requested, and nothing beyond that is fetched until the client keeps up.
+ * A named checkpoint makes the export incremental: only events newer than the last completed run
+ * with that name are returned, and the checkpoint only moves when a run completes.
+ */
+@ApplicationScoped
+public class KeycloakEventExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakEventExportService.class);
+
+    private static final int MAX_CHECKPOINT_NAME = 100;
+
+    @Inject
+    KeycloakEventExportConfig config;
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    KeycloakRealmCache keycloakRealmCache;
+
+    @Inject
+    EventCheckpointRepository checkpointRepository;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    public Multi<byte[]> export(String type, String client, String user, String checkpointName) {
+        if (checkpointName != null && (checkpointName.isBlank() || checkpointName.length() > MAX_CHECKPOINT_NAME)) {
+            throw new ValidationException("checkpoint must be 1 to " + MAX_CHECKPOINT_NAME + " characters");
+        }
+        ObjectWriter writer = objectMapper.writerFor(KeycloakEvent.class);
+        long start = System.currentTimeMillis();
+
+        Uni<EventCheckpoint> since = checkpointName == null
+                ? Uni.createFrom().nullItem()
+                : checkpointRepository.find(checkpointName);
+        return since.onItem().transformToMulti(checkpoint -> {
+            EventExportCursor cursor = new EventExportCursor(checkpoint);
+            // Keycloak filters by whole days only; the cursor does the exact cut
+            String dateFrom = checkpoint == null
+                    ? null
+                    : LocalDate.ofInstant(Instant.ofEpochMilli(checkpoint.time()), ZoneOffset.UTC).minusDays(1).toString();
+            return pages(new Query(type, client, user, dateFrom), cursor)
+                    .filter(events -> !events.isEmpty())
+                    .map(events -> ndjson(writer, events))
+                    .onCompletion().call(() -> checkpointName == null || cursor.checkpoint() == null
+                            ? Uni.createFrom().voidItem()
+                            : checkpointRepository.save(checkpointName, cursor.checkpoint()))
+                    .onTermination().invoke((failure, cancelled) -> {
+                        if (failure != null) {
+                            LOGGER.error("Event export failed after {} events", cursor.emitted(), failure);
+                        } else {
+                            LOGGER.info("Event export {}: {} events in {} ms{}", cancelled ? "cancelled by client" : "completed",
+                                    cursor.emitted(), System.currentTimeMillis() - start,
+                                    checkpointName == null ? "" : " (checkpoint " + checkpointName + ")");
+                        }
+                    });
+        });
+    }
+
+    // ===================================
+    // PAGING
+    // ===================================
+
+    private record Query(String type, String client, String user, String dateFrom) {
+    }
+
+    private record Page(List<KeycloakEvent> events, boolean last) {
+    }
+
+    private static class Paging {
+        int first;
+        Uni<List<KeycloakEvent>> next;
+    }
+
+    private Multi<List<KeycloakEvent>> pages(Query query, EventExportCursor cursor) {
+        int pageSize = config.pageSize();
+        return Multi.createBy().repeating()
+                .uni(Paging::new, paging -> {
+                    Uni<List<KeycloakEvent>> page = paging.next != null ? paging.next : fetch(query, paging.first, pageSize);
+                    return page.onItem().transform(events -> {
+                        List<KeycloakEvent> fresh = cursor.accept(events);
+                        paging.first += pageSize;
+                        boolean last = events.size() < pageSize || cursor.reachedCheckpoint();
+                        paging.next = last ? null : prefetch(fetch(query, paging.first, pageSize));
+                        return new Page(fresh, last);
+                    });
+                })
+                .whilst(page -> !page.last())
+                .map(Page::events);
+    }
+
+    // Token per page: a long export can outlive one admin token, the cache refreshes it ahead of expiry
+    private Uni<List<KeycloakEvent>> fetch(Query query, int first, int max) {
+        return keycloakRealmCache.adminToken()
+                .chain(token -> keycloakAdminClient.getEvents(BEARER_PREFIX + token.getAccess_token(),
+                        query.type(), query.client(), query.user(), query.dateFrom(), first, max));
+    }
+
+    // Start the request now; its result (or failure) is replayed to whoever subscribes next
+    private static <T> Uni<T> prefetch(Uni<T> request) {
+        Uni<T> memoized = request.memoize().indefinitely();
+        memoized.subscribe().with(item -> { }, failure -> { });
+        return memoized;
+    }
+
+    private static byte[] ndjson(ObjectWriter writer, List<KeycloakEvent> events) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(events.size() * 256);
+        try (JsonGenerator json = writer.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            for (KeycloakEvent event : events) {
+                writer.writeValue(json, event);
+                json.flush();
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package com.mhm.services;
+
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.config.KeycloakCacheConfig;
+import com.mhm.models.KeycloakClient;
+import com.mhm.models.KeycloakGroup;
+import com.mhm.models.KeycloakRealm;
+import com.mhm.models.KeycloakRole;
+import com.mhm.models.TokenModel;
+import com.mhm.utils.CachedValue;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of the Keycloak admin token and the realm metadata that rarely changes.
+ *
+ * The token is kept until shortly before it expires; roles, groups, clients and realm info for
+ * the metadata TTL. Values in use are refreshed in the background before they expire, and the
+ * mutations made through this service (createRole, createGroup) invalidate what they change.
+ */
+@ApplicationScoped
+public class KeycloakRealmCache {
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    KeycloakCacheConfig config;
+
+    private CachedValue<TokenModel> adminToken;
+    private CachedValue<List<KeycloakRole>> roles;
+    private CachedValue<List<KeycloakGroup>> groups;
+    private CachedValue<List<KeycloakClient>> clients;
+    private CachedValue<KeycloakRealm> realmInfo;
+
+    @PostConstruct
+    void init() {
+        long metadataTtl = config.metadataTtlSeconds() * 1000;
+        adminToken = new CachedValue<>("Keycloak admin token", keycloakAdminClient::getAdminToken,
+                token -> token.getExpires_in() == null ? 0 : (token.getExpires_in() - config.tokenExpiryMarginSeconds()) * 1000,
+                config.refreshAhead());
+        roles = metadata("realm roles", keycloakAdminClient::getRoles, metadataTtl);
+        groups = metadata("groups", keycloakAdminClient::getGroups, metadataTtl);
+        clients = metadata("clients", keycloakAdminClient::getClients, metadataTtl);
+        realmInfo = metadata("realm info", keycloakAdminClient::getRealmInfo, metadataTtl);
+    }
+
+    public Uni<TokenModel> adminToken() {
+        return config.enabled() ? adminToken.get() : keycloakAdminClient.getAdminToken();
+    }
+
+    public Uni<List<KeycloakRole>> roles() {
+        return roles.get();
+    }
+
+    public Uni<List<KeycloakGroup>> groups() {
+        return groups.get();
+    }
+
+    public Uni<List<KeycloakClient>> clients() {
+        return clients.get();
+    }
+
+    public Uni<KeycloakRealm> realmInfo() {
+        return realmInfo.get();
+    }
+
+    /**
+     * Realm role with the given name from the cached catalog, or null if it is not there
+     */
+    public Uni<KeycloakRole> role(String roleName) {
+        return roles().onItem().transform(all -> all.stream()
+                .filter(role -> roleName.equals(role.name()))
+                .findFirst()
+                .orElse(null));
+    }
+
+    public void invalidateRoles() {
+        roles.invalidate();
+    }
+
+    public void invalidateGroups() {
+        groups.invalidate();
+    }
+
+    public void invalidateAdminToken() {
+        adminToken.invalidate();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", config.enabled());
+        status.put("adminToken", adminToken.isLoaded());
+        status.put("roles", roles.isLoaded());
+        status.put("groups", groups.isLoaded());
+        status.put("clients", clients.isLoaded());
+        status.put("realmInfo", realmInfo.isLoaded());
+        return status;
+    }
+
+    private <T> CachedValue<T> metadata(String name, Function<String, Uni<T>> fetch, long ttlMillis) {
+        return new CachedValue<>(name,
+                () -> adminToken().chain(token -> fetch.apply(UserService.BEARER_PREFIX + token.getAccess_token())),
+                // With the cache disabled nothing is kept
+                value -> config.enabled() ? ttlMillis : 0,
+                config.refreshAhead());
+    }
+}
@@ -0,0 +1,99 @@
+package com.mhm.services;
+
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.models.KeycloackUserDTO;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Username to Keycloak user id.
+ *
+ * Ids are remembered in the bounded keycloak-user-ids cache as createUser responses come back
+ * (from their Location header), so compensation right after a registration needs no search.
+ * Misses do one exact username lookup, shared by concurrent callers; unknown usernames are not cached.
+ * Keycloak stores usernames lower-cased, and so does the cache.
+ */
+@ApplicationScoped
+public class KeycloakUserIdResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeycloakUserIdResolver.class);
+
+    @Inject
+    @CacheName("keycloak-user-ids")
+    Cache cache;
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    KeycloakRealmCache keycloakRealmCache;
+
+    /**
+     * Keycloak id of the user, or null if Keycloak has no such username
+     */
+    public Uni<String> resolve(String username) {
+        if (username == null || username.isBlank()) {
+            return Uni.createFrom().nullItem();
+        }
+        return cache.<String, String>getAsync(key(username), this::lookup)
+                .onFailure(NotFoundException.class).recoverWithNull();
+    }
+
+    /**
+     * Remember the id of a user just created, if the createUser response carries one
+     */
+    public void record(String username, Response createResponse) {
+        if (username == null || createResponse.getStatus() != Response.Status.CREATED.getStatusCode()) {
+            return;
+        }
+        String id = idFromLocation(createResponse);
+        if (id != null) {
+            cache.as(CaffeineCache.class).put(key(username), CompletableFuture.completedFuture(id));
+        }
+    }
+
+    public Uni<Void> forget(String username) {
+        return username == null ? Uni.createFrom().voidItem() : cache.invalidate(key(username));
+    }
+
+    // Keycloak answers 201 with Location: .../users/{id}
+    public static String idFromLocation(Response response) {
+        URI location = response.getLocation();
+        if (location == null || location.getPath() == null) {
+            return null;
+        }
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    // Fails with NotFoundException for unknown usernames, so nothing is cached for them
+    private Uni<String> lookup(String username) {
+        return keycloakRealmCache.adminToken()
+                .chain(adminToken -> keycloakAdminClient.findUsersByUsername(
+                        UserService.BEARER_PREFIX + adminToken.getAccess_token(), username, true))
+                .onItem().transform(users -> users.stream()
+                        .filter(user -> username.equalsIgnoreCase(user.getUsername()))
+                        .map(KeycloackUserDTO::getId)
+                        .findFirst()
+                        .orElseThrow(() -> new NotFoundException("Keycloak user not found: " + username)))
+                .invoke(id -> LOGGER.debug("Resolved Keycloak user {} to {}", username, id));
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
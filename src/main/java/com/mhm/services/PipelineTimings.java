@@ -0,0 +1,55 @@
+package com.mhm.services;
+
+import com.mhm.utils.LatencyReservoir;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stage-level latency of the registration pipelines.
+ *
+ * Every stage is timed from subscription to termination, and the whole pipeline under "total".
+ * Stages that run concurrently overlap, so comparing their p50 with the total shows which of them
+ * is on the critical path (GET /admin/pipeline-timings).
+ */
+@ApplicationScoped
+public class PipelineTimings {
+
+    public static final String TOTAL = "total";
+
+    // Percentiles are taken over this many recent runs per stage
+    private static final int WINDOW = 1024;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyReservoir>> pipelines = new ConcurrentHashMap<>();
+
+    public <T> Uni<T> stage(String pipeline, String stage, Uni<T> step) {
+        LatencyReservoir reservoir = reservoir(pipeline, stage);
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return step.onTermination().invoke(() -> reservoir.record(System.nanoTime() - start));
+        });
+    }
+
+    public <T> Uni<T> pipeline(String pipeline, Uni<T> flow) {
+        return stage(pipeline, TOTAL, flow);
+    }
+
+    public Map<String, Map<String, LatencyReservoir.Snapshot>> snapshot() {
+        Map<String, Map<String, LatencyReservoir.Snapshot>> snapshot = new TreeMap<>();
+        pipelines.forEach((pipeline, stages) -> {
+            Map<String, LatencyReservoir.Snapshot> perStage = new TreeMap<>();
+            stages.forEach((stage, reservoir) -> perStage.put(stage, reservoir.snapshot()));
+            snapshot.put(pipeline, perStage);
+        });
+        return snapshot;
+    }
+
+    private LatencyReservoir reservoir(String pipeline, String stage) {
+        return pipelines.computeIfAbsent(pipeline, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stage, key -> new LatencyReservoir(WINDOW));
+    }
+}
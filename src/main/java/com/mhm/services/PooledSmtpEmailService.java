@@ -0,0 +1,180 @@
+package com.mhm.services;
+
+import com.mhm.clients.smtp.MimeMessageWriter;
+import com.mhm.clients.smtp.SmtpConnection;
+import com.mhm.clients.smtp.SmtpConnectionPool;
+import com.mhm.clients.smtp.SmtpMessage;
+import com.mhm.clients.smtp.SmtpSettings;
+import com.mhm.config.SmtpPoolConfig;
+import com.mhm.dto.EmailDTO;
+import com.mhm.exceptions.ValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends email over a pool of persistent, authenticated SMTP sessions.
+ */
+@ApplicationScoped
+public class PooledSmtpEmailService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledSmtpEmailService.class);
+
+    @ConfigProperty(name = "mail.smtp.host")
+    String host;
+
+    @ConfigProperty(name = "mail.smtp.port")
+    int port;
+
+    @ConfigProperty(name = "mail.smtp.username")
+    String username;
+
+    @ConfigProperty(name = "mail.smtp.password")
+    String password;
+
+    @ConfigProperty(name = "mail.smtp.auth", defaultValue = "true")
+    boolean auth;
+
+    @ConfigProperty(name = "mail.smtp.starttls.enable", defaultValue = "true")
+    boolean startTls;
+
+    @ConfigProperty(name = "sendgrid.from.email")
+    String defaultFromEmail;
+
+    @ConfigProperty(name = "sendgrid.from.name")
+    String defaultFromName;
+
+    @Inject
+    SmtpPoolConfig poolConfig;
+
+    SmtpConnectionPool pool;
+
+    @PostConstruct
+    void init() {
+        SmtpSettings settings = new SmtpSettings(host, port, username, password, auth, startTls,
+            "moba-authorization", poolConfig.connectTimeoutMillis(), poolConfig.readTimeoutMillis());
+        SSLSocketFactory sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+
+        pool = new SmtpConnectionPool(
+            () -> {
+                SmtpConnection connection = new SmtpConnection(settings, sslSocketFactory);
+                connection.connect();
+                return connection;
+            },
+            poolConfig.maxConnections(),
+            poolConfig.borrowTimeoutMillis(),
+            poolConfig.validateAfterIdleMillis(),
+            poolConfig.maxIdleMillis(),
+            poolConfig.maxMessagesPerConnection());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.close();
+    }
+
+    /**
+     * Send a single email on a pooled session
+     */
+    public String sendEmail(EmailDTO emailDTO) {
+        SmtpMessage message = MimeMessageWriter.toMessage(emailDTO, defaultFromEmail, defaultFromName);
+        try {
+            pool.execute(connection -> {
+                connection.send(message);
+                return null;
+            });
+            LOGGER.debug("Email sent via SMTP to: {}", emailDTO.getTo());
+            return "Email sent successfully via SMTP";
+        } catch (IOException e) {
+            LOGGER.error("Error sending email via SMTP to: {}", emailDTO.getTo(), e);
+            throw new UncheckedIOException("Failed to send email via SMTP", e);
+        }
+    }
+
+    /**
+     * Send bulk emails, pipelining groups of messages per session
+     */
+    public String sendBulkEmails(List<EmailDTO> emails) {
+        List<List<EmailDTO>> groups = new ArrayList<>();
+        for (int i = 0; i < emails.size(); i += poolConfig.pipelineBatchSize()) {
+            groups.add(emails.subList(i, Math.min(i + poolConfig.pipelineBatchSize(), emails.size())));
+        }
+
+        int successCount = 0;
+        int failureCount = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (List<EmailDTO> group : groups) {
+                results.add(executor.submit(() -> sendGroup(group)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                int sent = results.get(i).get();
+                successCount += sent;
+                failureCount += groups.get(i).size() - sent;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Bulk SMTP send interrupted", e);
+            failureCount = emails.size() - successCount;
+        }
+
+        return String.format("Bulk email completed. Success: %d, Failures: %d", successCount, failureCount);
+    }
+
+    public SmtpConnectionPool getPool() {
+        return pool;
+    }
+
+    private int sendGroup(List<EmailDTO> emails) {
+        // Invalid emails count as failures without holding up the rest of the group
+        List<EmailDTO> group = new ArrayList<>();
+        List<SmtpMessage> messages = new ArrayList<>();
+        for (EmailDTO email : emails) {
+            try {
+                messages.add(MimeMessageWriter.toMessage(email, defaultFromEmail, defaultFromName));
+                group.add(email);
+            } catch (ValidationException e) {
+                LOGGER.error("Skipping bulk email: {}", e.getMessage());
+            }
+        }
+        int[] delivered = {0};
+        try {
+            pool.execute(connection -> {
+                int before = connection.getMessagesSent();
+                try {
+                    connection.sendAll(messages);
+                } finally {
+                    delivered[0] = connection.getMessagesSent() - before;
+                }
+                return null;
+            });
+            return messages.size();
+        } catch (IOException e) {
+            // Retry the undelivered remainder one at a time so a single bad message doesn't fail the group
+            LOGGER.warn("Pipelined SMTP group failed after {} messages, retrying individually: {}",
+                delivered[0], e.getMessage());
+            int sent = delivered[0];
+            for (EmailDTO email : group.subList(delivered[0], group.size())) {
+                try {
+                    sendEmail(email);
+                    sent++;
+                } catch (UncheckedIOException ex) {
+                    LOGGER.error("Failed to send bulk email to: {}", email.getTo());
+                }
+            }
+            return sent;
+        }
+    }
+}
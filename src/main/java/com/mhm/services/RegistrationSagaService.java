@@ -0,0 +1,371 @@
+package com.mhm.services;
+
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.config.RegistrationSagaConfig;
+import com.mhm.dto.UserCreateDTO;
+import com.mhm.entities.UserEntity;
+import com.mhm.mappers.UserMapper;
+import com.mhm.models.KeycloackUserDTO;
+import com.mhm.models.RegistrationSaga;
+import com.mhm.models.TokenModel;
+import com.mhm.repositories.RegistrationSagaRepository;
+import com.mhm.repositories.UserRepository;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.mhm.services.UserService.BEARER_PREFIX;
+
+/**
+ * Keycloak-first registration as a saga persisted in registration_saga.
+ *
+ * Each step records its outcome before the next one starts: Keycloak create, user row (in its own
+ * short transaction), welcome email. When the user row cannot be saved the Keycloak account is deleted
+ * in the background; a failed delete is retried with exponential backoff by a periodic poll, which also
+ * picks up sagas a crash left half way (see RegistrationSagaConfig).
+ */
+@ApplicationScoped
+public class RegistrationSagaService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistrationSagaService.class);
+
+    private static final String PIPELINE = "register-keycloak-first";
+
+    @Inject
+    RegistrationSagaConfig config;
+
+    @Inject
+    RegistrationSagaRepository sagaRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    UserMapper userMapper;
+
+    @Inject
+    UserService userService;
+
+    @Inject
+    UserAvailabilityService userAvailabilityService;
+
+    @Inject
+    UserSearchService userSearchService;
+
+    @Inject
+    KeycloakUserIdResolver keycloakUserIdResolver;
+
+    @Inject
+    TwilioEmailService twilioEmailService;
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    PipelineTimings pipelineTimings;
+
+    @Inject
+    Vertx vertx;
+
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private volatile Long timerId;
+
+    void onStart(@Observes StartupEvent event) {
+        if (config.recoveryEnabled()) {
+            timerId = vertx.setPeriodic(config.pollIntervalSeconds() * 1000, id -> poll());
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        Long id = timerId;
+        if (id != null) {
+            vertx.cancelTimer(id);
+        }
+    }
+
+    public Uni<Response> register(UserCreateDTO userCreateDTO) {
+        if (userCreateDTO.getEmail() == null || userCreateDTO.getUsername() == null) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "User data, email, and username are required")).build());
+        }
+
+        // The duplicate probe and the admin token do not depend on each other; a token failure only
+        // matters once there is no conflict, so it fails the Keycloak step rather than the probe
+        Uni<Optional<Response>> duplicateCheck = pipelineTimings.stage(PIPELINE, "duplicate-check",
+                Panache.withSession(() -> userService.duplicateUserResponse(userCreateDTO))
+                        .onItem().transform(Optional::ofNullable));
+        Uni<Optional<TokenModel>> adminToken = pipelineTimings.stage(PIPELINE, "admin-token",
+                userService.getAdminToken().onItem().transform(Optional::ofNullable)
+                        .onFailure().recoverWithItem(failure -> {
+                            LOGGER.warn("Could not get a Keycloak admin token: {}", failure.getMessage());
+                            return Optional.empty();
+                        }));
+
+        return pipelineTimings.pipeline(PIPELINE, Uni.combine().all().unis(duplicateCheck, adminToken).asTuple()
+                .chain(checks -> {
+                    if (checks.getItem1().isPresent()) {
+                        LOGGER.warn("User already exists in database: {}", userCreateDTO.getEmail());
+                        return Uni.createFrom().item(checks.getItem1().get());
+                    }
+                    return startSaga(userCreateDTO, checks.getItem2().orElse(null));
+                })
+                .onFailure().recoverWithUni(throwable -> {
+                    LOGGER.error("Registration failed for email: {}", userCreateDTO.getEmail(), throwable);
+                    return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(Map.of("error", "Registration failed: " + throwable.getMessage()))
+                            .build());
+                }));
+    }
+
+    public Uni<Map<String, Long>> getStats() {
+        return sagaRepository.countByState();
+    }
+
+    // ===================================
+    // STEPS
+    // ===================================
+
+    Uni<Response> startSaga(UserCreateDTO userCreateDTO, TokenModel adminToken) {
+        UUID sagaId = UUID.randomUUID();
+        return pipelineTimings.stage(PIPELINE, "saga-start",
+                        sagaRepository.start(sagaId, userCreateDTO.getUsername(), userCreateDTO.getEmail()))
+                .onItemOrFailure().transformToUni((createdAt, startFailure) -> {
+                    if (startFailure != null) {
+                        // Nothing was created and there is no saga row, so there is nothing to compensate
+                        LOGGER.error("Could not start registration saga for user: {}", userCreateDTO.getUsername(), startFailure);
+                        return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                                .entity(Map.of("error", "Registration failed: " + startFailure.getMessage()))
+                                .build());
+                    }
+                    RegistrationSaga saga = new RegistrationSaga(sagaId, userCreateDTO.getUsername(), userCreateDTO.getEmail(),
+                            null, 0, createdAt);
+                    return pipelineTimings.stage(PIPELINE, "keycloak-create", createInKeycloak(adminToken, userCreateDTO))
+                            .onItemOrFailure().transformToUni((keycloakResponse, failure) -> {
+                                if (failure == null) {
+                                    return afterKeycloak(saga, userCreateDTO, keycloakResponse);
+                                }
+                                // Keycloak may or may not have created the account; compensation finds out by username
+                                LOGGER.error("Keycloak registration failed for user: {}", userCreateDTO.getUsername(), failure);
+                                compensateLater(saga, failure);
+                                return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                                        .entity(Map.of("error", "Registration failed: " + failure.getMessage(),
+                                                       "sagaId", sagaId))
+                                        .build());
+                            });
+                });
+    }
+
+    private Uni<Response> createInKeycloak(TokenModel adminToken, UserCreateDTO userCreateDTO) {
+        if (adminToken == null || adminToken.getAccess_token() == null) {
+            return Uni.createFrom().failure(new IllegalStateException("Failed to obtain Keycloak admin token"));
+        }
+        KeycloackUserDTO keycloakUser = userService.convertToKeycloackUserDTO(userCreateDTO);
+        return userService.createKeycloakUser(adminToken, keycloakUser)
+                .onFailure(WebApplicationException.class)
+                .recoverWithItem(failure -> ((WebApplicationException) failure).getResponse());
+    }
+
+    private Uni<Response> afterKeycloak(RegistrationSaga saga, UserCreateDTO userCreateDTO, Response keycloakResponse) {
+        UUID sagaId = saga.id();
+        int status = keycloakResponse.getStatus();
+        LOGGER.info("Keycloak registration response for {}: {}", userCreateDTO.getUsername(), status);
+        if (status == Response.Status.CONFLICT.getStatusCode()) {
+            LOGGER.warn("User already exists in Keycloak: {}", userCreateDTO.getUsername());
+            return sagaRepository.markFailed(sagaId, "Keycloak returned 409")
+                    .replaceWith(Response.status(Response.Status.CONFLICT)
+                            .entity(Map.of("error", "User already exists in Keycloak")).build());
+        }
+        if (status != Response.Status.CREATED.getStatusCode()) {
+            LOGGER.error("Keycloak registration failed with status: {}", status);
+            return sagaRepository.markFailed(sagaId, "Keycloak returned " + status)
+                    .replaceWith(Response.status(Response.Status.BAD_REQUEST)
+                            .entity(Map.of("error", "Keycloak registration failed", "status", status)).build());
+        }
+
+        String keycloakId = KeycloakUserIdResolver.idFromLocation(keycloakResponse);
+        return sagaRepository.markKeycloakCreated(sagaId, keycloakId)
+                .chain(() -> pipelineTimings.stage(PIPELINE, "save-user", saveUser(userCreateDTO, keycloakId)))
+                .onItemOrFailure().transformToUni((savedUser, dbError) -> {
+                    if (dbError == null) {
+                        return bookkeeping(sagaId, sagaRepository.markUserSaved(sagaId, savedUser.getId()))
+                                .chain(() -> pipelineTimings.stage(PIPELINE, "welcome-email", sendWelcomeEmail(savedUser)))
+                                .call(() -> bookkeeping(sagaId, sagaRepository.markCompleted(sagaId)))
+                                .onItem().transform(emailSent -> created(savedUser, emailSent));
+                    }
+                    LOGGER.error("Database save failed, scheduling Keycloak cleanup for: {}", userCreateDTO.getEmail(), dbError);
+                    compensateLater(new RegistrationSaga(sagaId, saga.username(), saga.email(), keycloakId, 0, saga.createdAt()), dbError);
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("error", "Registration failed during database save");
+                    errorResponse.put("message", "Database error occurred, the Keycloak user will be removed");
+                    errorResponse.put("keycloakCleanup", "scheduled");
+                    errorResponse.put("sagaId", sagaId);
+                    errorResponse.put("originalError", String.valueOf(dbError.getMessage()));
+                    return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(errorResponse)
+                            .build());
+                });
+    }
+
+    // Once the user is saved the registration stands; a lost transition is repaired by the poller
+    private static Uni<Void> bookkeeping(UUID sagaId, Uni<Void> transition) {
+        return transition.onFailure().recoverWithUni(failure -> {
+            LOGGER.warn("Could not record progress of registration saga {}: {}", sagaId, failure.getMessage());
+            return Uni.createFrom().voidItem();
+        });
+    }
+
+    // The only step that touches the users table, and the only one holding a connection in a transaction
+    private Uni<UserEntity> saveUser(UserCreateDTO userCreateDTO, String keycloakId) {
+        UserEntity userEntity = userMapper.toEntity(userCreateDTO);
+        userEntity.setKeycloakId(keycloakId);
+        return Panache.withTransaction(() -> userRepository.createUser(userEntity))
+                .invoke(userAvailabilityService::recordUser)
+                .invoke(userSearchService::index)
+                .invoke(savedUser -> LOGGER.info("User saved to database successfully: {}", savedUser.getEmail()));
+    }
+
+    // The mail client blocks, so it runs on a worker thread; a failed email does not fail the registration
+    private Uni<Boolean> sendWelcomeEmail(UserEntity user) {
+        return Uni.createFrom().item(() -> {
+                    try {
+                        twilioEmailService.sendWelcomeEmail(user.getEmail(), user.getFirstName());
+                        LOGGER.info("Welcome email sent successfully to: {}", user.getEmail());
+                        return true;
+                    } catch (Exception e) {
+                        LOGGER.warn("Failed to send welcome email to {}: {}", user.getEmail(), e.getMessage());
+                        return false;
+                    }
+                })
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    private Response created(UserEntity savedUser, boolean emailSent) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("user", userMapper.toResponseDTO(savedUser));
+        response.put("message", "User registered successfully");
+        response.put("keycloakRegistered", true);
+        response.put("databaseSaved", true);
+        response.put("emailSent", emailSent);
+        LOGGER.info("Registration completed successfully for: {}", savedUser.getEmail());
+        return Response.status(Response.Status.CREATED).entity(response).build();
+    }
+
+    // ===================================
+    // COMPENSATION
+    // ===================================
+
+    // Persist the intent first, so a crash before the delete still leaves it to the poller
+    private void compensateLater(RegistrationSaga saga, Throwable cause) {
+        UUID sagaId = saga.id();
+        sagaRepository.markCompensating(sagaId, String.valueOf(cause.getMessage()), config.leaseSeconds())
+                .chain(() -> compensate(saga))
+                .subscribe().with(
+                        done -> { },
+                        failure -> LOGGER.error("Could not start compensation of registration saga {}, the poller will retry", sagaId, failure));
+    }
+
+    private Uni<Void> compensate(RegistrationSaga saga) {
+        return userService.getAdminToken()
+                .chain(adminToken -> {
+                    String authorization = BEARER_PREFIX + adminToken.getAccess_token();
+                    return keycloakIdOf(saga, authorization)
+                            .chain(keycloakId -> keycloakId == null
+                                    ? Uni.createFrom().item(Response.Status.NOT_FOUND.getStatusCode())
+                                    : keycloakAdminClient.deleteUser(authorization, keycloakId)
+                                            .onItem().transform(Response::getStatus)
+                                            .onFailure(WebApplicationException.class)
+                                            .recoverWithItem(failure -> ((WebApplicationException) failure).getResponse().getStatus()));
+                })
+                .chain(status -> {
+                    // Already gone counts as undone
+                    if (status >= 300 && status != Response.Status.NOT_FOUND.getStatusCode()) {
+                        return Uni.createFrom().failure(new IllegalStateException("Keycloak delete returned " + status));
+                    }
+                    LOGGER.info("Compensated registration saga {}: Keycloak user {} removed", saga.id(), saga.username());
+                    return keycloakUserIdResolver.forget(saga.username())
+                            .chain(() -> sagaRepository.markCompensated(saga.id()));
+                })
+                .onFailure().recoverWithUni(failure -> retryOrGiveUp(saga, failure));
+    }
+
+    private Uni<String> keycloakIdOf(RegistrationSaga saga, String authorization) {
+        if (saga.keycloakId() != null) {
+            return Uni.createFrom().item(saga.keycloakId());
+        }
+        return keycloakAdminClient.findUsersByUsername(authorization, saga.username(), true)
+                .onItem().transform(users -> createdBy(saga, users));
+    }
+
+    /**
+     * The account an unknown Keycloak outcome left behind, if any: same username and email, and created
+     * after the saga started. An older account with the same name belongs to someone else.
+     */
+    static String createdBy(RegistrationSaga saga, List<KeycloackUserDTO> users) {
+        long sagaStarted = saga.createdAt().toEpochMilli();
+        return users.stream()
+                .filter(user -> saga.username().equalsIgnoreCase(user.getUsername()))
+                .filter(user -> saga.email() == null || saga.email().equalsIgnoreCase(user.getEmail()))
+                .filter(user -> user.getCreatedTimestamp() != null && user.getCreatedTimestamp() > sagaStarted)
+                .map(KeycloackUserDTO::getId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Uni<Void> retryOrGiveUp(RegistrationSaga saga, Throwable failure) {
+        int attempts = saga.attempts() + 1;
+        String error = String.valueOf(failure.getMessage());
+        if (attempts >= config.maxAttempts()) {
+            LOGGER.error("CRITICAL: giving up compensation of registration saga {} after {} attempts, Keycloak user {} needs manual cleanup",
+                    saga.id(), attempts, saga.username(), failure);
+            return sagaRepository.markFailed(saga.id(), error);
+        }
+        long delay = Math.min(config.maxBackoffMillis(), config.baseBackoffMillis() << Math.min(attempts - 1, 30));
+        LOGGER.warn("Compensation of registration saga {} failed (attempt {}), retrying in {} ms: {}", saga.id(), attempts, delay, error);
+        return sagaRepository.scheduleRetry(saga.id(), attempts, delay, error);
+    }
+
+    // ===================================
+    // RECOVERY
+    // ===================================
+
+    void poll() {
+        if (!polling.compareAndSet(false, true)) {
+            return;
+        }
+        sagaRepository.completeInterrupted(config.stuckAfterSeconds())
+                .invoke(completed -> {
+                    if (completed > 0) {
+                        LOGGER.info("Marked {} interrupted registration sagas completed, their users were saved", completed);
+                    }
+                })
+                .chain(() -> sagaRepository.claimDue(config.stuckAfterSeconds(), config.leaseSeconds(), config.batchSize()))
+                .chain(claimed -> Multi.createFrom().iterable(claimed)
+                        .onItem().transformToUniAndConcatenate(this::compensate)
+                        .collect().last())
+                .chain(() -> sagaRepository.deleteFinished(config.retentionHours()))
+                .onTermination().invoke(() -> polling.set(false))
+                .subscribe().with(
+                        deleted -> { },
+                        failure -> LOGGER.warn("Registration saga recovery poll failed", failure));
+    }
+}
@@ -1,21 +1,33 @@
 package com.mhm.services;
 
-import com.mhm.dto.AttachmentDTO;
+import com.mhm.clients.sendgrid.AdaptiveSendGovernor;
+import com.mhm.clients.sendgrid.EncodedAttachmentCache;
+import com.mhm.clients.sendgrid.SendGovernorSettings;
+import com.mhm.clients.sendgrid.SendGridStreamingClient;
+import com.mhm.config.EmailGovernorConfig;
 import com.mhm.dto.EmailDTO;
+import com.mhm.exceptions.EmailDeliveryException;
 import com.sendgrid.*;
 import com.sendgrid.helpers.mail.Mail;
-import com.sendgrid.helpers.mail.objects.Attachments;
 import com.sendgrid.helpers.mail.objects.Content;
 import com.sendgrid.helpers.mail.objects.Email;
 import com.sendgrid.helpers.mail.objects.Personalization;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 @ApplicationScoped
 public class TwilioEmailService {
@@ -31,10 +43,39 @@ public class TwilioEmailService {
     @ConfigProperty(name = "sendgrid.from.name")
     String defaultFromName;
     
+    @Inject
+    SendGridStreamingClient streamingClient;
+    
+    @Inject
+    EmailGovernorConfig governorConfig;
+    
+    AdaptiveSendGovernor governor;
+    
+    @PostConstruct
+    void init() {
+        governor = new AdaptiveSendGovernor(new SendGovernorSettings(
+            governorConfig.initialLimit(),
+            governorConfig.minLimit(),
+            governorConfig.maxLimit(),
+            governorConfig.latencyTargetMillis(),
+            governorConfig.decreaseFactor(),
+            governorConfig.maxAttempts(),
+            governorConfig.baseBackoffMillis(),
+            governorConfig.maxBackoffMillis(),
+            governorConfig.failureThreshold(),
+            governorConfig.openStateMillis(),
+            governorConfig.acquireTimeoutMillis()));
+    }
+    
     /**
-     * Send email using Twilio SendGrid API
+     * Send email using Twilio SendGrid API, paced and retried by the send governor
      */
     public String sendEmail(EmailDTO emailDTO) {
+        return governor.execute(() -> send(emailDTO, null));
+    }
+    
+    // Attachments are streamed into the request body; a bulk job shares one encoded copy per distinct content
+    private String send(EmailDTO emailDTO, EncodedAttachmentCache attachmentCache) {
         try {
             LOGGER.info("SendGrid API Key format check - Length: {}, Starts with SG.: {}", 
                        sendGridApiKey.length(), sendGridApiKey.startsWith("SG."));
@@ -43,8 +84,6 @@ public class TwilioEmailService {
                 LOGGER.error("Invalid SendGrid API key format detected!");
             }
             
-            SendGrid sg = new SendGrid(sendGridApiKey);
-            
             // Create email components
             Email from = new Email(
                 emailDTO.getFrom() != null ? emailDTO.getFrom() : defaultFromEmail,
@@ -91,30 +130,8 @@ public class TwilioEmailService {
                 }
             }
             
-            // Add attachments
-            if (emailDTO.getAttachments() != null && !emailDTO.getAttachments().isEmpty()) {
-                for (AttachmentDTO attachmentDTO : emailDTO.getAttachments()) {
-                    Attachments attachment = new Attachments();
-                    attachment.setFilename(attachmentDTO.getFilename());
-                    attachment.setType(attachmentDTO.getContentType());
-                    attachment.setDisposition(attachmentDTO.getDisposition());
-                    attachment.setContent(java.util.Base64.getEncoder().encodeToString(attachmentDTO.getContent()));
-                    
-                    if (attachmentDTO.getContentId() != null) {
-                        attachment.setContentId(attachmentDTO.getContentId());
-                    }
-                    
-                    mail.addAttachments(attachment);
-                }
-            }
-            
-            // Send email
-            Request request = new Request();
-            request.setMethod(Method.POST);
-            request.setEndpoint("mail/send");
-            request.setBody(mail.build());
-            
-            Response response = sg.api(request);
+            // Send email, attachments are encoded while the request body is written
+            Response response = streamingClient.send(mail, emailDTO.getAttachments(), attachmentCache);
             
             LOGGER.info("Email sent successfully. Status code: {}", response.getStatusCode());
             LOGGER.debug("Response body: {}", response.getBody());
@@ -124,12 +141,13 @@ public class TwilioEmailService {
             } else {
                 LOGGER.error("Failed to send email. Status code: {}, Body: {}", 
                            response.getStatusCode(), response.getBody());
-                throw new RuntimeException("Failed to send email: " + response.getBody());
+                throw EmailDeliveryException.fromResponse(response.getStatusCode(), response.getBody(),
+                                                          header(response, "Retry-After"));
             }
             
         } catch (IOException e) {
             LOGGER.error("Error sending email", e);
-            throw new RuntimeException("Failed to send email", e);
+            throw new EmailDeliveryException("Failed to send email", e);
         }
     }
     
@@ -175,23 +193,63 @@ public class TwilioEmailService {
     }
     
     /**
-     * Send bulk emails
+     * Send bulk emails concurrently; the governor decides how many are in flight
      */
     public String sendBulkEmails(List<EmailDTO> emails) {
-        int successCount = 0;
-        int failureCount = 0;
+        List<FailedEmail> failures = sendAll(emails);
+        return String.format("Bulk email completed. Success: %d, Failures: %d",
+                             emails.size() - failures.size(), failures.size());
+    }
+    
+    /**
+     * Send a batch of queued emails and return the ones that still failed after the governor's retries,
+     * so the route can hand them to the dead-letter queue
+     */
+    public List<FailedEmail> sendBatch(List<EmailDTO> emails) {
+        return sendAll(emails);
+    }
+    
+    public record FailedEmail(EmailDTO email, Exception cause) {
+    }
+    
+    private List<FailedEmail> sendAll(List<EmailDTO> emails) {
+        List<FailedEmail> failures = new ArrayList<>();
         
-        for (EmailDTO email : emails) {
-            try {
-                sendEmail(email);
-                successCount++;
-            } catch (Exception e) {
-                LOGGER.error("Failed to send bulk email to: {}", email.getTo(), e);
-                failureCount++;
+        // Identical attachments across the job are read and encoded only once
+        EncodedAttachmentCache attachmentCache = new EncodedAttachmentCache();
+        
+        // Emails are handed over no faster than the governor could ever run them, so none of them
+        // waits for a permit long enough to time out however large the job is
+        Semaphore feed = new Semaphore(governorConfig.maxLimit());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (EmailDTO email : emails) {
+                feed.acquireUninterruptibly();
+                results.add(executor.submit(() -> {
+                    try {
+                        return governor.execute(() -> send(email, attachmentCache));
+                    } finally {
+                        feed.release();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("Failed to send bulk email to: {}", emails.get(i).getTo(), e.getCause());
+                    failures.add(new FailedEmail(emails.get(i),
+                        e.getCause() instanceof Exception cause ? cause : e));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.add(new FailedEmail(emails.get(i), e));
+                }
             }
         }
         
-        return String.format("Bulk email completed. Success: %d, Failures: %d", successCount, failureCount);
+        LOGGER.info("Bulk job finished at send limit {}, circuit {}", governor.getLimit(), governor.getCircuitState());
+        LOGGER.debug("Bulk job encoded {} distinct attachments, {} reused", attachmentCache.size(), attachmentCache.getHits());
+        return failures;
     }
     
     /**
@@ -231,17 +289,36 @@ public class TwilioEmailService {
             request.setEndpoint("mail/send");
             request.setBody(mail.build());
             
-            Response response = sg.api(request);
-            
-            if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
-                return "Templated email sent successfully";
-            } else {
-                throw new RuntimeException("Failed to send templated email: " + response.getBody());
-            }
+            return governor.execute(() -> {
+                Response response = sg.api(request);
+                
+                if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
+                    return "Templated email sent successfully";
+                } else {
+                    throw EmailDeliveryException.fromResponse(response.getStatusCode(), response.getBody(),
+                                                              header(response, "Retry-After"));
+                }
+            });
             
         } catch (IOException e) {
             LOGGER.error("Error sending templated email", e);
             throw new RuntimeException("Failed to send templated email", e);
         }
     }
+    
+    public AdaptiveSendGovernor getGovernor() {
+        return governor;
+    }
+    
+    // Header names keep the provider's casing
+    private static String header(Response response, String name) {
+        if (response.getHeaders() == null) {
+            return null;
+        }
+        return response.getHeaders().entrySet().stream()
+            .filter(entry -> name.equalsIgnoreCase(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(null);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.mhm.services;
+
+import com.mhm.config.UserAvailabilityConfig;
+import com.mhm.entities.UserEntity;
+import com.mhm.repositories.UserRepository;
+import com.mhm.utils.CountingBloomFilter;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-memory front for the username/email availability endpoint.
+ *
+ * Counting Bloom filters of every username and lower-cased email are streamed from the users
+ * table at startup and rebuilt periodically; in between they follow the creates, email changes
+ * and deletes made on this replica. Users created on other replicas only show up after the next
+ * rebuild, so answers are advisory: a miss lets /user/availability say "free" without a query,
+ * but registration always asks the database. Until loading has finished every answer is "maybe".
+ */
+@ApplicationScoped
+public class UserAvailabilityService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAvailabilityService.class);
+
+    @Inject
+    UserAvailabilityConfig config;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    Vertx vertx;
+
+    private record Filters(CountingBloomFilter usernames, CountingBloomFilter emails) {
+    }
+
+    private volatile Filters current;
+    // Filters being loaded; local changes go to both so none is lost when they are swapped in
+    private volatile Filters loading;
+    private volatile Long timerId;
+
+    private final AtomicLong skippedQueries = new AtomicLong();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.enabled()) {
+            return;
+        }
+        reload();
+        timerId = vertx.setPeriodic(config.rebuildIntervalMinutes() * 60_000L, id -> reload());
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        Long id = timerId;
+        if (id != null) {
+            vertx.cancelTimer(id);
+        }
+    }
+
+    private synchronized void reload() {
+        if (loading != null) {
+            return;
+        }
+        Filters filters = new Filters(new CountingBloomFilter(config.expectedUsers(), config.falsePositiveRate()),
+                new CountingBloomFilter(config.expectedUsers(), config.falsePositiveRate()));
+        loading = filters;
+
+        long start = System.currentTimeMillis();
+        AtomicLong loaded = new AtomicLong();
+        userRepository.streamRows("SELECT username, email FROM users", Tuple.tuple(), config.loadFetchSize())
+                .subscribe().with(
+                        row -> {
+                            add(filters, row.getString("username"), row.getString("email"));
+                            loaded.incrementAndGet();
+                        },
+                        failure -> {
+                            loading = null;
+                            LOGGER.error("Failed to load user availability filters, checks will query the database", failure);
+                        },
+                        () -> {
+                            current = filters;
+                            loading = null;
+                            LOGGER.info("User availability filters loaded: {} users in {} ms, {} KB each, {} hashes",
+                                    loaded.get(), System.currentTimeMillis() - start,
+                                    filters.usernames().getSizeInBytes() / 1024, filters.usernames().getHashCount());
+                            if (loaded.get() > config.expectedUsers()) {
+                                LOGGER.warn("{} users exceed app.user.availability.expected-users={}, false-positive rate is above {}",
+                                        loaded.get(), config.expectedUsers(), config.falsePositiveRate());
+                            }
+                        });
+    }
+
+    /**
+     * False means the username was not taken when this replica last looked; advisory only
+     */
+    public boolean mightHaveUsername(String username) {
+        Filters filters = current;
+        if (filters == null || username == null) {
+            return true;
+        }
+        return countSkip(filters.usernames().mightContain(username));
+    }
+
+    /**
+     * False means the email was not taken when this replica last looked (case-insensitive, like the unique index)
+     */
+    public boolean mightHaveEmail(String email) {
+        Filters filters = current;
+        if (filters == null || email == null) {
+            return true;
+        }
+        return countSkip(filters.emails().mightContain(normalizeEmail(email)));
+    }
+
+    public void recordUser(UserEntity user) {
+        forEachFilter(filters -> add(filters, user.getUsername(), user.getEmail()));
+    }
+
+    public void removeUser(UserEntity user) {
+        forEachFilter(filters -> {
+            remove(filters.usernames(), user.getUsername());
+            remove(filters.emails(), user.getEmail() != null ? normalizeEmail(user.getEmail()) : null);
+        });
+    }
+
+    /**
+     * Swap the email of an existing user
+     */
+    public void replaceEmail(String oldEmail, String newEmail) {
+        if (oldEmail == null || newEmail == null || normalizeEmail(oldEmail).equals(normalizeEmail(newEmail))) {
+            return;
+        }
+        forEachFilter(filters -> {
+            filters.emails().add(normalizeEmail(newEmail));
+            remove(filters.emails(), normalizeEmail(oldEmail));
+        });
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public long getSkippedQueries() {
+        return skippedQueries.get();
+    }
+
+    private void forEachFilter(Consumer<Filters> update) {
+        Filters filters = current;
+        Filters pending = loading;
+        if (filters != null) {
+            update.accept(filters);
+        }
+        if (pending != null && pending != filters) {
+            update.accept(pending);
+        }
+    }
+
+    private static void add(Filters filters, String username, String email) {
+        if (username != null) {
+            filters.usernames().add(username);
+        }
+        if (email != null) {
+            filters.emails().add(normalizeEmail(email));
+        }
+    }
+
+    // Removing a value that was never added (a user created on another replica since the last
+    // rebuild) would decrement other values' counters; a definite miss proves it was never added.
+    // The rare false positive can still cost a counter, which the next rebuild restores.
+    private static void remove(CountingBloomFilter filter, String value) {
+        if (value != null && filter.mightContain(value)) {
+            filter.remove(value);
+        }
+    }
+
+    private boolean countSkip(boolean mightContain) {
+        if (!mightContain) {
+            skippedQueries.incrementAndGet();
+        }
+        return mightContain;
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,143 @@
+package com.mhm.services;
+
+import com.mhm.config.UserCacheConfig;
+import com.mhm.dto.UserResponseDTO;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of user profiles (UserResponseDTO, never entities).
+ *
+ * The local tier is the user-profiles Caffeine cache: concurrent misses for the same id share a
+ * single load, and failed loads (e.g. user not found) are not cached. With Redis enabled, misses
+ * check a shared second tier before the database, and evictions are broadcast so every replica
+ * drops its local copy.
+ */
+@ApplicationScoped
+public class UserCacheService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserCacheService.class);
+
+    @Inject
+    @CacheName("user-profiles")
+    Cache cache;
+
+    @Inject
+    UserCacheConfig config;
+
+    @Inject
+    Instance<ReactiveRedisDataSource> redis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.enabled() || !config.redisEnabled()) {
+            return;
+        }
+        redis.get().pubsub(String.class).subscribe(config.invalidationChannel())
+                .subscribe().with(
+                        id -> cache.invalidate(Long.valueOf(id)).subscribe().with(
+                                ignored -> LOGGER.debug("User {} evicted by another replica", id),
+                                failure -> LOGGER.warn("Failed to evict user {}", id, failure)),
+                        failure -> LOGGER.error("User cache invalidation subscription failed, entries expire by TTL only", failure));
+    }
+
+    /**
+     * Cached profile of the user, loading it on a miss
+     */
+    public Uni<UserResponseDTO> get(Long id, Supplier<Uni<UserResponseDTO>> loader) {
+        if (!config.enabled()) {
+            return loader.get();
+        }
+        AtomicBoolean loaded = new AtomicBoolean();
+        return cache.<Long, UserResponseDTO>getAsync(id, key -> {
+                    loaded.set(true);
+                    misses.incrementAndGet();
+                    return config.redisEnabled() ? loadThroughRedis(key, loader) : loader.get();
+                })
+                .invoke(() -> {
+                    if (!loaded.get()) {
+                        hits.incrementAndGet();
+                    }
+                });
+    }
+
+    /**
+     * Drop the user from every tier; call after the change is committed
+     */
+    public Uni<Void> evict(Long id) {
+        if (!config.enabled()) {
+            return Uni.createFrom().voidItem();
+        }
+        Uni<Void> local = cache.invalidate(id);
+        if (!config.redisEnabled()) {
+            return local;
+        }
+        String key = config.redisKeyPrefix() + id;
+        return local
+                .chain(() -> redis.get().key().del(key))
+                .chain(() -> redis.get().pubsub(String.class).publish(config.invalidationChannel(), id.toString()))
+                .onFailure().recoverWithItem(failure -> {
+                    LOGGER.warn("Failed to evict user {} from Redis, replicas may serve it until it expires", id, failure);
+                    return null;
+                });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        stats.put("enabled", config.enabled());
+        stats.put("size", cache.as(CaffeineCache.class).keySet().size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        if (config.redisEnabled()) {
+            stats.put("redisHits", redisHits.get());
+        }
+        return stats;
+    }
+
+    // ===================================
+    // REDIS TIER
+    // ===================================
+
+    private Uni<UserResponseDTO> loadThroughRedis(Long id, Supplier<Uni<UserResponseDTO>> loader) {
+        String key = config.redisKeyPrefix() + id;
+        return redis.get().value(UserResponseDTO.class).get(key)
+                .onFailure().recoverWithItem(failure -> {
+                    LOGGER.warn("Redis read failed for user {}, loading from the database", id, failure);
+                    return null;
+                })
+                .chain(cached -> {
+                    if (cached != null) {
+                        redisHits.incrementAndGet();
+                        return Uni.createFrom().item(cached);
+                    }
+                    return loader.get().call(loaded -> redis.get().value(UserResponseDTO.class)
+                            .setex(key, config.redisTtlSeconds(), loaded)
+                            .onFailure().recoverWithItem(failure -> {
+                                LOGGER.warn("Redis write failed for user {}", id, failure);
+                                return null;
+                            }));
+                });
+    }
+}
@@ -0,0 +1,197 @@
+package com.mhm.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.config.UserExportConfig;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.repositories.UserRepository;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.TimeoutException;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams every user as NDJSON or CSV without loading entities.
+ *
+ * Rows come from a server-side cursor on the reactive PG client and are encoded straight to
+ * bytes in small chunks. The cursor is only advanced when the client has taken the previous
+ * chunks, so memory stays flat however large the table is and a slow client slows the query;
+ * a client that stalls or takes too long is cut off so it cannot pin a connection.
+ */
+@ApplicationScoped
+public class UserExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserExportService.class);
+
+    private static final String EXPORT_SQL = """
+            SELECT u.id, u.account_type, u.first_name, u.last_name, u.username, u.email, u.phone_number,
+                   u.country, u.disabled, c.id AS company_id, c.company_name, c.pib_number
+            FROM users u LEFT JOIN company c ON c.id = u.company_id
+            ORDER BY u.id""";
+
+    private static final String[] COLUMNS = {
+            "id", "accountType", "firstName", "lastName", "username", "email", "phoneNumber",
+            "country", "disabled", "companyId", "companyName", "pibNumber"
+    };
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new ValidationException("Unsupported export format: " + value + " (use ndjson or csv)");
+            }
+        }
+    }
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    UserExportConfig config;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    public Multi<byte[]> export(Format format) {
+        long start = System.currentTimeMillis();
+        long deadline = start + config.maxDurationSeconds() * 1000L;
+        // A failed stream closes the cursor, rolls back and returns the connection to the pool
+        Multi<byte[]> rows = userRepository.streamRows(EXPORT_SQL, Tuple.tuple(), config.fetchSize())
+                .group().intoLists().of(config.rowsPerChunk())
+                .map(chunk -> format == Format.CSV ? csv(chunk) : ndjson(chunk))
+                .ifNoItem().after(Duration.ofSeconds(config.maxIdleSeconds())).fail()
+                .onItem().invoke(chunk -> {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new TimeoutException();
+                    }
+                });
+
+        Multi<byte[]> body = format == Format.CSV
+                ? Multi.createBy().concatenating().streams(Multi.createFrom().item(csvHeader()), rows)
+                : rows;
+        return body.onTermination().invoke((failure, cancelled) -> {
+            if (failure != null) {
+                LOGGER.error("User export ({}) failed", format, failure);
+            } else {
+                LOGGER.info("User export ({}) {} after {} ms", format,
+                        cancelled ? "cancelled by client" : "completed", System.currentTimeMillis() - start);
+            }
+        });
+    }
+
+    // ===================================
+    // NDJSON
+    // ===================================
+
+    private byte[] ndjson(List<Row> chunk) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chunk.size() * 256);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            for (Row row : chunk) {
+                json.writeStartObject();
+                json.writeNumberField("id", row.getLong("id"));
+                writeString(json, "accountType", row.getString("account_type"));
+                writeString(json, "firstName", row.getString("first_name"));
+                writeString(json, "lastName", row.getString("last_name"));
+                writeString(json, "username", row.getString("username"));
+                writeString(json, "email", row.getString("email"));
+                writeString(json, "phoneNumber", row.getString("phone_number"));
+                writeString(json, "country", row.getString("country"));
+                json.writeBooleanField("disabled", Boolean.TRUE.equals(row.getBoolean("disabled")));
+                Long companyId = row.getLong("company_id");
+                if (companyId != null) {
+                    json.writeNumberField("companyId", companyId);
+                    writeString(json, "companyName", row.getString("company_name"));
+                    writeString(json, "pibNumber", row.getString("pib_number"));
+                }
+                json.writeEndObject();
+                json.flush();
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeString(JsonGenerator json, String field, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(field, value);
+        }
+    }
+
+    // ===================================
+    // CSV
+    // ===================================
+
+    private static byte[] csvHeader() {
+        return (String.join(",", COLUMNS) + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] csv(List<Row> chunk) {
+        StringBuilder out = new StringBuilder(chunk.size() * 128);
+        for (Row row : chunk) {
+            out.append(row.getLong("id")).append(',');
+            appendCsv(out, row.getString("account_type")).append(',');
+            appendCsv(out, row.getString("first_name")).append(',');
+            appendCsv(out, row.getString("last_name")).append(',');
+            appendCsv(out, row.getString("username")).append(',');
+            appendCsv(out, row.getString("email")).append(',');
+            appendCsv(out, row.getString("phone_number")).append(',');
+            appendCsv(out, row.getString("country")).append(',');
+            out.append(Boolean.TRUE.equals(row.getBoolean("disabled"))).append(',');
+            Long companyId = row.getLong("company_id");
+            if (companyId != null) {
+                out.append(companyId);
+            }
+            out.append(',');
+            appendCsv(out, row.getString("company_name")).append(',');
+            appendCsv(out, row.getString("pib_number")).append("\r\n");
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // RFC 4180 quoting: fields with separators, quotes or line breaks are quoted, quotes doubled
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+        return out.append(value);
+    }
+}
@@ -0,0 +1,591 @@
+package com.mhm.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.config.UserImportConfig;
+import com.mhm.dto.CompanyCreateDTO;
+import com.mhm.dto.UserCreateDTO;
+import com.mhm.dto.UserIdentityProjection;
+import com.mhm.dto.UserImportResultDTO;
+import com.mhm.entities.AccountType;
+import com.mhm.entities.UserEntity;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.mappers.UserMapper;
+import com.mhm.repositories.UserRepository;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk user import from streamed NDJSON or CSV.
+ *
+ * The body is read lazily and processed in batches: rows are validated and their passwords hashed
+ * in parallel on a dedicated pool, duplicates are rejected with one query per batch, Keycloak users
+ * are created with bounded concurrency, and the batch is written with one multi-row INSERT. Like the
+ * Keycloak-first registration, users that cannot be stored are removed from Keycloak again. Every row
+ * gets a line in the NDJSON report, streamed back one batch at a time.
+ */
+@ApplicationScoped
+public class UserImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format fromMediaType(String mediaType) {
+            if (mediaType != null) {
+                String type = mediaType.toLowerCase(Locale.ROOT);
+                if (type.startsWith("text/csv")) {
+                    return CSV;
+                }
+                if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+                    return NDJSON;
+                }
+            }
+            throw new ValidationException("Unsupported import content type: " + mediaType + " (use application/x-ndjson or text/csv)");
+        }
+    }
+
+    // A parsed input line; user is null when the line could not be parsed
+    private record ImportRow(long line, UserCreateDTO user, String error) {
+    }
+
+    // A row that passed validation, carried through Keycloak and the insert
+    private static final class Candidate {
+        final long line;
+        final UserCreateDTO user;
+        final UserEntity entity;
+        String keycloakId;
+
+        Candidate(long line, UserCreateDTO user, UserEntity entity) {
+            this.line = line;
+            this.user = user;
+            this.entity = entity;
+        }
+    }
+
+    @Inject
+    UserImportConfig config;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    UserMapper userMapper;
+
+    @Inject
+    UserService userService;
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    UserAvailabilityService userAvailabilityService;
+
+    @Inject
+    UserSearchService userSearchService;
+
+    @Inject
+    KeycloakUserIdResolver keycloakUserIdResolver;
+
+    @Inject
+    TwilioEmailService twilioEmailService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private ExecutorService hashPool;
+
+    @PostConstruct
+    void init() {
+        int threads = config.hashThreads() > 0 ? config.hashThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        hashPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    /**
+     * Import every row of the body and stream the per-row report as NDJSON
+     */
+    public Multi<byte[]> importUsers(InputStream body, Format format, boolean welcomeEmails) {
+        Map<String, Integer> counts = new ConcurrentHashMap<>();
+        long start = System.currentTimeMillis();
+
+        return Multi.createFrom().iterable(() -> new RowReader(body, format))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .group().intoLists().of(config.batchSize())
+                // The next batch is read on a worker thread, never on the event loop
+                .onItem().transformToUniAndConcatenate(batch -> importBatch(batch, welcomeEmails)
+                        .emitOn(Infrastructure.getDefaultWorkerPool()))
+                .map(results -> report(results, counts))
+                .onTermination().invoke((failure, cancelled) -> {
+                    closeQuietly(body);
+                    if (failure != null) {
+                        LOGGER.error("User import aborted after {} ms, results so far: {}",
+                                System.currentTimeMillis() - start, counts, failure);
+                    } else {
+                        LOGGER.info("User import {} in {} ms: {}", cancelled ? "cancelled" : "completed",
+                                System.currentTimeMillis() - start, counts);
+                    }
+                });
+    }
+
+    // ===================================
+    // BATCH PIPELINE
+    // ===================================
+
+    private Uni<List<UserImportResultDTO>> importBatch(List<ImportRow> batch, boolean welcomeEmails) {
+        ConcurrentLinkedQueue<UserImportResultDTO> results = new ConcurrentLinkedQueue<>();
+
+        // Validation and password hashing are CPU-bound, so they run in parallel off the event loop
+        List<Uni<Candidate>> prepared = batch.stream()
+                .map(row -> Uni.createFrom().item(() -> prepare(row, results)).runSubscriptionOn(hashPool))
+                .toList();
+
+        return Uni.join().all(prepared).andFailFast()
+                .chain(candidates -> rejectDuplicates(candidates, results))
+                .chain(candidates -> createInKeycloak(candidates, results))
+                .chain(created -> store(created, results, welcomeEmails))
+                .map(ignored -> results.stream()
+                        .sorted(Comparator.comparingLong(UserImportResultDTO::line))
+                        .toList());
+    }
+
+    // Returns null (filtered out later) for rows that are rejected
+    private Candidate prepare(ImportRow row, ConcurrentLinkedQueue<UserImportResultDTO> results) {
+        String error = row.user() == null ? row.error() : validate(row.user());
+        if (error != null) {
+            results.add(UserImportResultDTO.rejected(row.line(), row.user() != null ? row.user().getUsername() : null,
+                    UserImportResultDTO.INVALID, error));
+            return null;
+        }
+        return new Candidate(row.line(), row.user(), userMapper.toEntity(row.user()));
+    }
+
+    private Uni<List<Candidate>> rejectDuplicates(List<Candidate> prepared, ConcurrentLinkedQueue<UserImportResultDTO> results) {
+        // Duplicates inside the batch: the first occurrence wins
+        Set<String> emails = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        List<Candidate> unique = new ArrayList<>();
+        for (Candidate candidate : prepared) {
+            if (candidate == null) {
+                continue;
+            }
+            String email = candidate.user.getEmail().toLowerCase(Locale.ROOT);
+            if (!emails.add(email)) {
+                results.add(duplicate(candidate, "Email appears more than once in the import"));
+            } else if (!usernames.add(candidate.user.getUsername())) {
+                results.add(duplicate(candidate, "Username appears more than once in the import"));
+            } else {
+                unique.add(candidate);
+            }
+        }
+        if (unique.isEmpty()) {
+            return Uni.createFrom().item(unique);
+        }
+
+        // Duplicates of existing users, one query for the whole batch
+        return userRepository.findTakenIdentities(emails.toArray(String[]::new), usernames.toArray(String[]::new))
+                .map(taken -> {
+                    Set<String> takenEmails = new HashSet<>();
+                    Set<String> takenUsernames = new HashSet<>();
+                    for (UserIdentityProjection identity : taken) {
+                        takenEmails.add(identity.email());
+                        takenUsernames.add(identity.username());
+                    }
+                    List<Candidate> available = new ArrayList<>(unique.size());
+                    for (Candidate candidate : unique) {
+                        if (takenEmails.contains(candidate.user.getEmail().toLowerCase(Locale.ROOT))) {
+                            results.add(duplicate(candidate, "Email already registered"));
+                        } else if (takenUsernames.contains(candidate.user.getUsername())) {
+                            results.add(duplicate(candidate, "Username already taken"));
+                        } else {
+                            available.add(candidate);
+                        }
+                    }
+                    return available;
+                });
+    }
+
+    private Uni<List<Candidate>> createInKeycloak(List<Candidate> candidates, ConcurrentLinkedQueue<UserImportResultDTO> results) {
+        if (candidates.isEmpty()) {
+            return Uni.createFrom().item(candidates);
+        }
+        return userService.getAdminToken()
+                .chain(adminToken -> {
+                    if (adminToken == null || adminToken.getAccess_token() == null) {
+                        return Uni.createFrom().failure(new RuntimeException("Failed to obtain Keycloak admin token"));
+                    }
+                    String authorization = UserService.BEARER_PREFIX + adminToken.getAccess_token();
+                    // Null items (rejected rows) are dropped by the merge
+                    return Multi.createFrom().iterable(candidates)
+                            .onItem().transformToUni(candidate -> createKeycloakUser(authorization, candidate, results))
+                            .merge(config.keycloakConcurrency())
+                            .collect().asList();
+                })
+                .onFailure().recoverWithItem(failure -> {
+                    LOGGER.error("Keycloak unavailable, rejecting {} imported users", candidates.size(), failure);
+                    candidates.forEach(candidate -> results.add(failed(candidate, "Keycloak registration failed: " + failure.getMessage())));
+                    return List.of();
+                });
+    }
+
+    private Uni<Candidate> createKeycloakUser(String authorization, Candidate candidate, ConcurrentLinkedQueue<UserImportResultDTO> results) {
+        return keycloakAdminClient.createUser(authorization, userService.convertToKeycloackUserDTO(candidate.user))
+                .onFailure(WebApplicationException.class).recoverWithItem(failure -> ((WebApplicationException) failure).getResponse())
+                .map(response -> {
+                    if (response.getStatus() == 201) {
+                        candidate.keycloakId = KeycloakUserIdResolver.idFromLocation(response);
+                        candidate.entity.setKeycloakId(candidate.keycloakId);
+                        keycloakUserIdResolver.record(candidate.user.getUsername(), response);
+                        return candidate;
+                    }
+                    if (response.getStatus() == 409) {
+                        results.add(duplicate(candidate, "User already exists in Keycloak"));
+                    } else {
+                        results.add(failed(candidate, "Keycloak registration failed with status " + response.getStatus()));
+                    }
+                    return (Candidate) null;
+                })
+                .onFailure().recoverWithItem(failure -> {
+                    results.add(failed(candidate, "Keycloak registration failed: " + failure.getMessage()));
+                    return null;
+                });
+    }
+
+    private Uni<Void> store(List<Candidate> created, ConcurrentLinkedQueue<UserImportResultDTO> results, boolean welcomeEmails) {
+        if (created.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<UserEntity> users = created.stream().map(candidate -> candidate.entity).toList();
+
+        return userRepository.insertBatch(users)
+                .chain(inserted -> {
+                    List<Candidate> skipped = new ArrayList<>();
+                    List<UserEntity> stored = new ArrayList<>();
+                    for (Candidate candidate : created) {
+                        if (inserted.contains(candidate.entity.getId())) {
+                            results.add(UserImportResultDTO.created(candidate.line, candidate.user.getUsername(), candidate.entity.getId()));
+                            userAvailabilityService.recordUser(candidate.entity);
+                            stored.add(candidate.entity);
+                            if (welcomeEmails) {
+                                sendWelcomeEmail(candidate.entity);
+                            }
+                        } else {
+                            // Registered concurrently by someone else between the check and the insert
+                            results.add(duplicate(candidate, "Email or username already registered"));
+                            skipped.add(candidate);
+                        }
+                    }
+                    userSearchService.indexAll(stored);
+                    return deleteFromKeycloak(skipped);
+                })
+                .onFailure().recoverWithUni(failure -> {
+                    LOGGER.error("Batch insert of {} imported users failed, removing them from Keycloak", created.size(), failure);
+                    created.forEach(candidate -> results.add(failed(candidate, "Database save failed: " + failure.getMessage())));
+                    return deleteFromKeycloak(created);
+                });
+    }
+
+    // Compensation for users created in Keycloak but not stored
+    private Uni<Void> deleteFromKeycloak(List<Candidate> candidates) {
+        List<Candidate> known = candidates.stream().filter(candidate -> candidate.keycloakId != null).toList();
+        candidates.stream()
+                .filter(candidate -> candidate.keycloakId == null)
+                .forEach(candidate -> LOGGER.error("CRITICAL: Keycloak user {} has no id to clean up, requires manual cleanup",
+                        candidate.user.getUsername()));
+        if (known.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return userService.getAdminToken()
+                .chain(adminToken -> Multi.createFrom().iterable(known)
+                        .onItem().transformToUni(candidate -> keycloakAdminClient
+                                .deleteUser(UserService.BEARER_PREFIX + adminToken.getAccess_token(), candidate.keycloakId)
+                                .call(response -> keycloakUserIdResolver.forget(candidate.user.getUsername()))
+                                .onFailure().recoverWithItem(failure -> {
+                                    LOGGER.error("CRITICAL: Failed to clean up Keycloak user {}, requires manual cleanup",
+                                            candidate.user.getUsername(), failure);
+                                    return null;
+                                }))
+                        .merge(config.keycloakConcurrency())
+                        .collect().last()
+                        .replaceWithVoid())
+                .onFailure().recoverWithItem(failure -> {
+                    LOGGER.error("CRITICAL: Keycloak cleanup of {} imported users failed, requires manual cleanup", known.size(), failure);
+                    return null;
+                });
+    }
+
+    private void sendWelcomeEmail(UserEntity user) {
+        Uni.createFrom().item(() -> twilioEmailService.sendWelcomeEmail(user.getEmail(), user.getFirstName()))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .subscribe().with(
+                        result -> LOGGER.debug("Welcome email sent to imported user: {}", user.getEmail()),
+                        failure -> LOGGER.warn("Failed to send welcome email to {}: {}", user.getEmail(), failure.getMessage()));
+    }
+
+    // ===================================
+    // VALIDATION
+    // ===================================
+
+    // Lengths follow the column sizes, so one bad row cannot fail the whole multi-row insert
+    private static String validate(UserCreateDTO user) {
+        if (isBlank(user.getUsername()) || isBlank(user.getEmail())) {
+            return "Email and username are required";
+        }
+        if (!EMAIL_PATTERN.matcher(user.getEmail()).matches()) {
+            return "Invalid email: " + user.getEmail();
+        }
+        String tooLong = firstTooLong(
+                "username", user.getUsername(), 50,
+                "email", user.getEmail(), 255,
+                "firstName", user.getFirstName(), 100,
+                "lastName", user.getLastName(), 100,
+                "phoneNumber", user.getPhoneNumber(), 20,
+                "country", user.getCountry(), 100);
+        if (tooLong == null && user.getCompany() != null) {
+            CompanyCreateDTO company = user.getCompany();
+            tooLong = firstTooLong(
+                    "companyName", company.getCompanyName(), 255,
+                    "pibNumber", company.getPibNumber(), 50,
+                    "companyPhoneNumber", company.getPhoneNumber(), 20,
+                    "companyCountry", company.getCountry(), 100,
+                    "companyCity", company.getCity(), 100,
+                    "companyZipCode", company.getZipCode(), 20);
+        }
+        return tooLong;
+    }
+
+    // Arguments are (name, value, maxLength) triples
+    private static String firstTooLong(Object... fields) {
+        for (int i = 0; i < fields.length; i += 3) {
+            String value = (String) fields[i + 1];
+            int max = (Integer) fields[i + 2];
+            if (value != null && value.length() > max) {
+                return fields[i] + " is longer than " + max + " characters";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // ===================================
+    // PARSING
+    // ===================================
+
+    // Pulls one row per request, so the body is read only as fast as batches are imported
+    private final class RowReader implements Iterator<ImportRow> {
+
+        private final BufferedReader reader;
+        private final Format format;
+        private String[] header;
+        private long lineNumber;
+        private ImportRow next;
+
+        RowReader(InputStream body, Format format) {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            this.format = format;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = read();
+            }
+            return next != null;
+        }
+
+        @Override
+        public ImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ImportRow row = next;
+            next = null;
+            return row;
+        }
+
+        private ImportRow read() {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (format == Format.NDJSON) {
+                        return parseJson(lineNumber, line);
+                    }
+                    if (header == null) {
+                        header = parseCsvLine(line);
+                        continue;
+                    }
+                    return parseCsv(lineNumber, header, line);
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ImportRow parseJson(long line, String json) {
+        try {
+            return new ImportRow(line, objectMapper.readValue(json, UserCreateDTO.class), null);
+        } catch (JsonProcessingException e) {
+            return new ImportRow(line, null, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // Columns are matched by header name; company columns are companyName, pibNumber, companyPhoneNumber,
+    // companyCountry, companyCity and companyZipCode
+    private static ImportRow parseCsv(long line, String[] header, String csv) {
+        String[] values = parseCsvLine(csv);
+        if (values.length != header.length) {
+            return new ImportRow(line, null, "Expected " + header.length + " columns but found " + values.length);
+        }
+        Map<String, String> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            columns.put(header[i].trim(), values[i].isEmpty() ? null : values[i]);
+        }
+
+        UserCreateDTO user = new UserCreateDTO();
+        try {
+            String accountType = columns.get("accountType");
+            user.setAccountType(accountType != null ? AccountType.valueOf(accountType.trim().toUpperCase(Locale.ROOT)) : null);
+        } catch (IllegalArgumentException e) {
+            return new ImportRow(line, null, "Unknown accountType: " + columns.get("accountType"));
+        }
+        user.setFirstName(columns.get("firstName"));
+        user.setLastName(columns.get("lastName"));
+        user.setUsername(columns.get("username"));
+        user.setEmail(columns.get("email"));
+        user.setPhoneNumber(columns.get("phoneNumber"));
+        user.setPassword(columns.get("password"));
+        user.setCountry(columns.get("country"));
+
+        if (columns.get("companyName") != null) {
+            CompanyCreateDTO company = new CompanyCreateDTO();
+            company.setCompanyName(columns.get("companyName"));
+            company.setPibNumber(columns.get("pibNumber"));
+            company.setPhoneNumber(columns.get("companyPhoneNumber"));
+            company.setCountry(columns.get("companyCountry"));
+            company.setCity(columns.get("companyCity"));
+            company.setZipCode(columns.get("companyZipCode"));
+            user.setCompany(company);
+        }
+        return new ImportRow(line, user, null);
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain separators and doubled quotes
+    static String[] parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(String[]::new);
+    }
+
+    // ===================================
+    // REPORT
+    // ===================================
+
+    private byte[] report(List<UserImportResultDTO> results, Map<String, Integer> counts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(results.size() * 96);
+        try {
+            for (UserImportResultDTO result : results) {
+                counts.merge(result.status(), 1, Integer::sum);
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static UserImportResultDTO duplicate(Candidate candidate, String error) {
+        return UserImportResultDTO.rejected(candidate.line, candidate.user.getUsername(), UserImportResultDTO.DUPLICATE, error);
+    }
+
+    private static UserImportResultDTO failed(Candidate candidate, String error) {
+        return UserImportResultDTO.rejected(candidate.line, candidate.user.getUsername(), UserImportResultDTO.FAILED, error);
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close import body", e);
+        }
+    }
+}
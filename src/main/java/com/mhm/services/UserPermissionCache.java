@@ -0,0 +1,110 @@
+package com.mhm.services;
+
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.models.KeycloakGroup;
+import com.mhm.models.KeycloakRole;
+import com.mhm.utils.PermissionIndex;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Effective realm roles and groups per Keycloak user, as bitsets.
+ *
+ * Entries live in the bounded user-permissions cache (size and TTL set on the cache); concurrent
+ * misses share one pair of Keycloak calls. Roles are keyed by name and groups by path. Membership
+ * changes made through UserService invalidate the user's entry. This serves the membership listings
+ * only; authorization stays on the token's claims, which do not depend on what happens to be cached.
+ */
+@ApplicationScoped
+public class UserPermissionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserPermissionCache.class);
+
+    public record Permissions(long[] roles, long[] groups) {
+    }
+
+    @Inject
+    @CacheName("user-permissions")
+    Cache cache;
+
+    @Inject
+    @RestClient
+    KeycloakAdminClient keycloakAdminClient;
+
+    @Inject
+    KeycloakRealmCache keycloakRealmCache;
+
+    private final PermissionIndex<KeycloakRole> roleIndex = new PermissionIndex<>();
+    private final PermissionIndex<KeycloakGroup> groupIndex = new PermissionIndex<>();
+
+    public Uni<Permissions> permissions(String userId) {
+        return cache.getAsync(userId, this::load);
+    }
+
+    // Decoded through the realm cache, so edited or recreated roles and groups show their current id and description
+    public Uni<List<KeycloakRole>> roles(String userId) {
+        return Uni.combine().all().unis(permissions(userId), current("realm roles", keycloakRealmCache.roles())).asTuple()
+                .onItem().transform(loaded -> {
+                    roleIndex.refresh(loaded.getItem2(), KeycloakRole::name);
+                    return roleIndex.decode(loaded.getItem1().roles());
+                });
+    }
+
+    public Uni<List<KeycloakGroup>> groups(String userId) {
+        return Uni.combine().all().unis(permissions(userId), current("groups", keycloakRealmCache.groups())).asTuple()
+                .onItem().transform(loaded -> {
+                    groupIndex.refresh(flatten(loaded.getItem2()), KeycloakGroup::path);
+                    return groupIndex.decode(loaded.getItem1().groups());
+                });
+    }
+
+    public Uni<Void> invalidate(String userId) {
+        return cache.invalidate(userId);
+    }
+
+    // Without the realm view the representations from the last membership load are used
+    private static <T> Uni<List<T>> current(String what, Uni<List<T>> realmView) {
+        return realmView.onFailure().recoverWithItem(failure -> {
+            LOGGER.warn("Could not load the {} from the realm cache: {}", what, failure.getMessage());
+            return List.of();
+        });
+    }
+
+    private static List<KeycloakGroup> flatten(List<KeycloakGroup> tree) {
+        List<KeycloakGroup> flat = new ArrayList<>();
+        for (KeycloakGroup group : tree) {
+            flat.add(group);
+            if (group.subGroups() != null) {
+                flat.addAll(flatten(group.subGroups()));
+            }
+        }
+        return flat;
+    }
+
+    private Uni<Permissions> load(String userId) {
+        return keycloakRealmCache.adminToken()
+                .chain(adminToken -> {
+                    String authorization = UserService.BEARER_PREFIX + adminToken.getAccess_token();
+                    return Uni.combine().all().unis(
+                                    keycloakAdminClient.getUserRoles(authorization, userId),
+                                    keycloakAdminClient.getUserGroups(authorization, userId))
+                            .asTuple();
+                })
+                .onItem().transform(memberships -> new Permissions(
+                        roleIndex.encode(memberships.getItem1().stream()
+                                .map(role -> roleIndex.bit(role.name(), role))
+                                .toList()),
+                        groupIndex.encode(memberships.getItem2().stream()
+                                .map(group -> groupIndex.bit(group.path(), group))
+                                .toList())));
+    }
+}
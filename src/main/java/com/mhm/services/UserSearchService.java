@@ -0,0 +1,185 @@
+package com.mhm.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhm.config.UserSearchConfig;
+import com.mhm.dto.UserSearchDocument;
+import com.mhm.dto.UserSearchPageDTO;
+import com.mhm.entities.UserEntity;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.repositories.UserRepository;
+import com.mhm.search.ElasticsearchUserSearchIndex;
+import com.mhm.search.InMemoryUserSearchIndex;
+import com.mhm.search.UserSearchIndex;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admin user search served from a local index instead of Keycloak's user query API.
+ *
+ * The index mirrors the users table: registrations, imports, updates and deletes made here are
+ * written to it as they happen (best effort, a failed write is only logged), and a rebuild reloads
+ * it from the table in the background. Elasticsearch or an in-process index, see UserSearchConfig.
+ */
+@ApplicationScoped
+public class UserSearchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSearchService.class);
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Elasticsearch's default index.max_result_window
+    private static final int MAX_RESULT_WINDOW = 10_000;
+
+    @Inject
+    UserSearchConfig config;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    // Only resolved for the Elasticsearch backend
+    @Inject
+    Instance<RestClient> elasticsearchClient;
+
+    private volatile UserSearchIndex index;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Map<String, Object> lastRebuild = Map.of();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.enabled()) {
+            return;
+        }
+        UserSearchIndex selected = config.backend() == UserSearchConfig.Backend.ELASTICSEARCH
+                ? new ElasticsearchUserSearchIndex(elasticsearchClient.get(), objectMapper, config.indexAlias())
+                : new InMemoryUserSearchIndex();
+        selected.open().subscribe().with(
+                opened -> {
+                    index = selected;
+                    if (config.backend() == UserSearchConfig.Backend.MEMORY || config.rebuildOnStart()) {
+                        startRebuild();
+                    }
+                },
+                failure -> LOGGER.error("Failed to open the {} user search index, search is unavailable", config.backend(), failure));
+    }
+
+    public Uni<UserSearchPageDTO> search(String query, int from, int size) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Query parameter q is required");
+        }
+        if (from < 0 || size < 1 || size > MAX_PAGE_SIZE || from + size > MAX_RESULT_WINDOW) {
+            throw new ValidationException("from must be >= 0, size between 1 and " + MAX_PAGE_SIZE
+                    + ", and from + size at most " + MAX_RESULT_WINDOW);
+        }
+        return requireIndex().search(query, from, size);
+    }
+
+    public void index(UserEntity user) {
+        indexAll(List.of(user));
+    }
+
+    public void indexAll(List<UserEntity> users) {
+        UserSearchIndex current = index;
+        if (current == null || users.isEmpty()) {
+            return;
+        }
+        List<UserSearchDocument> documents = users.stream().map(UserSearchService::toDocument).toList();
+        current.upsert(documents).subscribe().with(
+                done -> { },
+                failure -> LOGGER.warn("Failed to index {} users, search is stale until the next rebuild", documents.size(), failure));
+    }
+
+    public void remove(Long id) {
+        UserSearchIndex current = index;
+        if (current == null) {
+            return;
+        }
+        current.remove(id).subscribe().with(
+                done -> { },
+                failure -> LOGGER.warn("Failed to remove user {} from the search index", id, failure));
+    }
+
+    /**
+     * Reload the index from the users table in the background; false if a rebuild is already running
+     */
+    public boolean startRebuild() {
+        UserSearchIndex current = requireIndex();
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        current.rebuild(userRepository.streamRows(
+                                "SELECT id, username, email, first_name, last_name, disabled FROM users",
+                                Tuple.tuple(), config.rebuildBatchSize())
+                        .map(UserSearchService::fromRow)
+                        .group().intoLists().of(config.rebuildBatchSize()))
+                .onTermination().invoke(() -> rebuilding.set(false))
+                .subscribe().with(
+                        loaded -> {
+                            long millis = System.currentTimeMillis() - start;
+                            lastRebuild = Map.of("documents", loaded, "millis", millis, "finishedAt", System.currentTimeMillis());
+                            LOGGER.info("User search index rebuilt: {} users in {} ms", loaded, millis);
+                        },
+                        failure -> {
+                            lastRebuild = Map.of("error", String.valueOf(failure.getMessage()), "finishedAt", System.currentTimeMillis());
+                            LOGGER.error("User search index rebuild failed, the previous index stays in use", failure);
+                        });
+        return true;
+    }
+
+    public Uni<Map<String, Object>> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", config.enabled());
+        status.put("backend", config.backend());
+        status.put("ready", index != null);
+        status.put("rebuilding", rebuilding.get());
+        status.put("lastRebuild", lastRebuild);
+        if (index == null) {
+            return Uni.createFrom().item(status);
+        }
+        return index.count()
+                .onItem().transform(count -> {
+                    status.put("documents", count);
+                    return status;
+                })
+                .onFailure().recoverWithItem(failure -> {
+                    status.put("error", failure.getMessage());
+                    return status;
+                });
+    }
+
+    private UserSearchIndex requireIndex() {
+        UserSearchIndex current = index;
+        if (current == null) {
+            throw new ValidationException("User search is not available", Response.Status.SERVICE_UNAVAILABLE, "SEARCH_UNAVAILABLE");
+        }
+        return current;
+    }
+
+    static UserSearchDocument toDocument(UserEntity user) {
+        return new UserSearchDocument(user.getId(), user.getUsername(), user.getEmail(),
+                user.getFirstName(), user.getLastName(), user.isDisabled());
+    }
+
+    private static UserSearchDocument fromRow(Row row) {
+        return new UserSearchDocument(row.getLong("id"), row.getString("username"), row.getString("email"),
+                row.getString("first_name"), row.getString("last_name"), Boolean.TRUE.equals(row.getBoolean("disabled")));
+    }
+}
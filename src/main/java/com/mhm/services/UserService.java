@@ -5,32 +5,49 @@ import com.mhm.clients.UserClient;
 import com.mhm.clients.KeycloakAdminClient;
 import com.mhm.dto.EmailDTO;
 import com.mhm.dto.UserCreateDTO;
+import com.mhm.dto.UserFilterDTO;
+import com.mhm.dto.UserPageDTO;
 import com.mhm.dto.UserResponseDTO;
 import com.mhm.dto.UserUpdateDTO;
 import com.mhm.entities.UserEntity;
 import com.mhm.exceptions.GlobalExceptionHandler;
 import com.mhm.exceptions.KeycloakException;
+import com.mhm.exceptions.UserException;
 import com.mhm.mappers.UserMapper;
 import com.mhm.models.CredentialModel;
 import com.mhm.models.KeycloackUserDTO;
+import com.mhm.models.KeycloakClient;
+import com.mhm.models.KeycloakEvent;
+import com.mhm.models.KeycloakGroup;
+import com.mhm.models.KeycloakRealm;
+import com.mhm.models.KeycloakRole;
+import com.mhm.models.KeycloakSession;
 import com.mhm.models.TokenModel;
 import com.mhm.models.UserLoginDTO;
 import com.mhm.repositories.UserRepository;
 import com.mhm.services.TwilioEmailService;
+import com.mhm.utils.ExceptionUtils;
+import io.quarkus.hibernate.reactive.panache.Panache;
+import io.quarkus.hibernate.reactive.panache.common.WithSession;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.hibernate.reactive.mutiny.Mutiny;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.HashMap;
 
 @ApplicationScoped
@@ -39,6 +56,8 @@ public class UserService {
 
     public static final String BEARER_PREFIX = "Bearer ";
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Inject
     @RestClient
     KeycloackUserClient keycloackUserClient;
@@ -62,6 +81,30 @@ public class UserService {
     
     @Inject
     TwilioEmailService twilioEmailService;
+    
+    @Inject
+    UserCacheService userCacheService;
+    
+    @Inject
+    KeycloakRealmCache keycloakRealmCache;
+    
+    @Inject
+    UserPermissionCache userPermissionCache;
+    
+    @Inject
+    UserAvailabilityService userAvailabilityService;
+    
+    @Inject
+    UserSearchService userSearchService;
+    
+    @Inject
+    KeycloakUserIdResolver keycloakUserIdResolver;
+    
+    @Inject
+    RegistrationSagaService registrationSagaService;
+    
+    @Inject
+    PipelineTimings pipelineTimings;
 
     /**
      * Example: Manual usage of GlobalExceptionHandler
@@ -71,7 +114,7 @@ public class UserService {
             .chain(adminToken -> {
                 try {
                     KeycloackUserDTO keycloakUser = convertToKeycloackUserDTO(userCreateDTO);
-                    return keycloakAdminClient.createUser(BEARER_PREFIX + adminToken.getAccess_token(), keycloakUser);
+                    return createKeycloakUser(adminToken, keycloakUser);
                 } catch (Exception e) {
                     // Manually use GlobalExceptionHandler to format the error
                     LOGGER.error("Error converting user data: {}", e.getMessage());
@@ -121,6 +164,8 @@ public class UserService {
         UserEntity userEntity = userMapper.toEntity(userCreateDTO);
         
         return userRepository.createUser(userEntity)
+                .invoke(userAvailabilityService::recordUser)
+                .invoke(userSearchService::index)
                 .onItem().transform(savedUser -> {
                     // Step 3: Convert saved entity back to response DTO
                     UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
@@ -138,67 +183,74 @@ public class UserService {
                 });
     }
 
-    // Optional: Register user with Keycloak integration
-    @WithTransaction
+    // Optional: Register user with Keycloak integration. Only the insert holds a transaction; Keycloak and
+    // the welcome email run after its commit, so a slow provider never keeps a database connection
     public Uni<Response> registerUserWithKeycloak(UserCreateDTO userCreateDTO) {
-        // Step 1: Save to local database first
+        String pipeline = "register-with-keycloak";
         UserEntity userEntity = userMapper.toEntity(userCreateDTO);
-        
-        return userRepository.createUser(userEntity)
-                .chain(savedUser -> {
-                    // Step 2: Convert to KeycloakUserDTO for Keycloak
-                    KeycloackUserDTO keycloakUser = convertToKeycloackUserDTO(userCreateDTO);
+        KeycloackUserDTO keycloakUser = convertToKeycloackUserDTO(userCreateDTO);
+
+        // Step 1: Save to local database while the admin token is fetched
+        Uni<UserEntity> saveUser = pipelineTimings.stage(pipeline, "save-user",
+                        Panache.withTransaction(() -> userRepository.createUser(userEntity)))
+                .invoke(userAvailabilityService::recordUser)
+                .invoke(userSearchService::index);
+        Uni<TokenModel> adminTokenStage = pipelineTimings.stage(pipeline, "admin-token", getAdminToken());
+
+        return pipelineTimings.pipeline(pipeline, Uni.combine().all().unis(saveUser, adminTokenStage).asTuple()
+                .chain(saved -> {
+                    UserEntity savedUser = saved.getItem1();
+                    TokenModel adminToken = saved.getItem2();
                     
-                    // Step 3: Register with Keycloak
-                    return getAdminToken()
-                            .chain(adminToken -> {
-                                if (adminToken == null || adminToken.getAccess_token() == null) {
-                                    return Uni.createFrom().failure(new Exception("Admin token is invalid"));
-                                }
+                    // Step 2: Register with Keycloak
+                    if (adminToken == null || adminToken.getAccess_token() == null) {
+                        return Uni.createFrom().failure(new Exception("Admin token is invalid"));
+                    }
+                    
+                    return pipelineTimings.stage(pipeline, "keycloak-create", createKeycloakUser(adminToken, keycloakUser))
+                            .call(response -> linkKeycloakAccount(savedUser, response))
+                            .chain(response -> {
+                                UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
+                                if (response.getStatus() == 201) {
+                                    // Success: Return our saved user
+                                    LOGGER.info("User registered successfully in both DB and Keycloak: {}", userCreateDTO.getUsername());
                                 
-                                return keycloakAdminClient.createUser(BEARER_PREFIX + adminToken.getAccess_token(), keycloakUser)
-                                        .onItem().transform(response -> {
-                                            if (response.getStatus() == 201) {
-                                                // Success: Return our saved user
-                                                UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                                LOGGER.info("User registered successfully in both DB and Keycloak: {}", userCreateDTO.getUsername());
-                                                
-                                                // Send welcome email after successful registration
-                                                try {
-                                                    twilioEmailService.sendWelcomeEmail(userCreateDTO.getEmail(), userCreateDTO.getFirstName());
-                                                    LOGGER.info("Welcome email sent to: {}", userCreateDTO.getEmail());
-                                                } catch (Exception emailException) {
-                                                    LOGGER.warn("Failed to send welcome email to {}: {}", userCreateDTO.getEmail(), emailException.getMessage());
-                                                    // Don't fail the registration if email fails
-                                                }
-                                                
-                                                return Response.status(Response.Status.CREATED).entity(responseDTO).build();
-                                            } else if (response.getStatus() == 409) {
-                                                // Conflict: User already exists in Keycloak
-                                                LOGGER.warn("User saved to DB but already exists in Keycloak: {}", userCreateDTO.getUsername());
-                                                UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                                return Response.status(Response.Status.CREATED).entity(responseDTO).build();
-                                            } else {
-                                                // Other Keycloak error, but DB succeeded - log warning
-                                                LOGGER.warn("User saved to DB but Keycloak registration failed with status: {}", response.getStatus());
-                                                UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                                return Response.status(Response.Status.CREATED).entity(responseDTO).build();
-                                            }
-                                        });
-//                                        .onFailure().recoverWithUni(throwable -> {
-//                                            // Handle REST client exceptions (like 409 Conflict)
-//                                            if (throwable.getMessage().contains("409")) {
-//                                                LOGGER.warn("User saved to DB but already exists in Keycloak: {}", userCreateDTO.getUsername());
-//                                                UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-//                                                return Uni.createFrom().item(Response.status(Response.Status.CREATED).entity(responseDTO).build());
-//                                            } else {
-//                                                LOGGER.error("Keycloak registration failed for user: {}", userCreateDTO.getUsername(), throwable);
-//                                                UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-//                                                return Uni.createFrom().item(Response.status(Response.Status.CREATED).entity(responseDTO).build());
-//                                            }
-//                                        });
+                                    // Send welcome email after successful registration; the governed send blocks
+                                    // (permits, backoff), so it runs on a worker thread
+                                    return pipelineTimings.stage(pipeline, "welcome-email",
+                                                    Uni.createFrom().item(() ->
+                                                                    twilioEmailService.sendWelcomeEmail(userCreateDTO.getEmail(), userCreateDTO.getFirstName()))
+                                                            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+                                            .invoke(() -> LOGGER.info("Welcome email sent to: {}", userCreateDTO.getEmail()))
+                                            .onFailure().recoverWithItem(emailException -> {
+                                                // Don't fail the registration if email fails
+                                                LOGGER.warn("Failed to send welcome email to {}: {}", userCreateDTO.getEmail(), emailException.getMessage());
+                                                return null;
+                                            })
+                                            .replaceWith(Response.status(Response.Status.CREATED).entity(responseDTO).build());
+                                } else if (response.getStatus() == 409) {
+                                    // Conflict: User already exists in Keycloak
+                                    LOGGER.warn("User saved to DB but already exists in Keycloak: {}", userCreateDTO.getUsername());
+                                    return Uni.createFrom().item(Response.status(Response.Status.CREATED).entity(responseDTO).build());
+                                } else {
+                                    // Other Keycloak error, but DB succeeded - log warning
+                                    LOGGER.warn("User saved to DB but Keycloak registration failed with status: {}", response.getStatus());
+                                    return Uni.createFrom().item(Response.status(Response.Status.CREATED).entity(responseDTO).build());
+                                }
                             });
-                });
+//                            .onFailure().recoverWithUni(throwable -> {
+//                                // Handle REST client exceptions (like 409 Conflict)
+//                                if (throwable.getMessage().contains("409")) {
+//                                    LOGGER.warn("User saved to DB but already exists in Keycloak: {}", userCreateDTO.getUsername());
+//                                    UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
+//                                    return Uni.createFrom().item(Response.status(Response.Status.CREATED).entity(responseDTO).build());
+//                                } else {
+//                                    LOGGER.error("Keycloak registration failed for user: {}", userCreateDTO.getUsername(), throwable);
+//                                    UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
+//                                    return Uni.createFrom().item(Response.status(Response.Status.CREATED).entity(responseDTO).build());
+//                                }
+//                            });
+                }));
 //                .onFailure().recoverWithUni(throwable -> {
 //                    LOGGER.error("User registration failed for username: {}", userCreateDTO.getUsername(), throwable);
 //                    return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
@@ -206,7 +258,29 @@ public class UserService {
 //                });
     }
     
-    private KeycloackUserDTO convertToKeycloackUserDTO(UserCreateDTO userCreateDTO) {
+    // Keep the Keycloak id of a freshly created account on its committed user row, in a short transaction
+    // of its own; without it lookups fall back to resolving the id by username
+    private Uni<Void> linkKeycloakAccount(UserEntity user, Response createResponse) {
+        if (createResponse.getStatus() != Response.Status.CREATED.getStatusCode()) {
+            return Uni.createFrom().voidItem();
+        }
+        String keycloakId = KeycloakUserIdResolver.idFromLocation(createResponse);
+        user.setKeycloakId(keycloakId);
+        return Panache.withTransaction(() -> userRepository.updateKeycloakId(user.getId(), keycloakId))
+                .replaceWithVoid()
+                .onFailure().recoverWithUni(failure -> {
+                    LOGGER.warn("Could not store Keycloak id of user {}: {}", user.getUsername(), failure.getMessage());
+                    return Uni.createFrom().voidItem();
+                });
+    }
+    
+    // Create the user in Keycloak and remember its id for lookups by username
+    Uni<Response> createKeycloakUser(TokenModel adminToken, KeycloackUserDTO keycloakUser) {
+        return keycloakAdminClient.createUser(BEARER_PREFIX + adminToken.getAccess_token(), keycloakUser)
+                .invoke(response -> keycloakUserIdResolver.record(keycloakUser.getUsername(), response));
+    }
+    
+    KeycloackUserDTO convertToKeycloackUserDTO(UserCreateDTO userCreateDTO) {
         KeycloackUserDTO keycloackUserDTO = new KeycloackUserDTO();
         keycloackUserDTO.setUsername(userCreateDTO.getUsername());
         keycloackUserDTO.setEmail(userCreateDTO.getEmail());
@@ -227,13 +301,37 @@ public class UserService {
         return keycloackUserDTO;
     }
 
+    // Delete by Keycloak id (the token subject): the Keycloak account, then the user row linked to it
     public Uni<Response> deleteUser(String id) {
         if (id == null || id.isEmpty()) {
             // If ID is invalid, return a bad request response
             return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
                     .entity("User ID cannot be null or empty").build());
         }
+        return deleteKeycloakAccount(id)
+                .call(response -> response.getStatus() < 300
+                        ? Panache.withSession(() -> userRepository.findByKeycloakId(id)).chain(this::removeLocalUser)
+                        : Uni.createFrom().voidItem());
+    }
+
+    // Delete by database id: the Keycloak id comes from the user row, then the row itself is removed
+    public Uni<Response> deleteUserById(Long id) {
+        return Panache.withSession(() -> userRepository.findById(id))
+                .chain(user -> {
+                    if (user == null) {
+                        return Uni.createFrom().item(Response.status(Response.Status.NOT_FOUND)
+                                .entity("User not found").build());
+                    }
+                    return keycloakIdOf(user)
+                            .chain(keycloakId -> keycloakId != null
+                                    ? deleteKeycloakAccount(keycloakId)
+                                    // No Keycloak account left, only the local row
+                                    : Uni.createFrom().item(Response.noContent().build()))
+                            .call(response -> response.getStatus() < 300 ? removeLocalUser(user) : Uni.createFrom().voidItem());
+                });
+    }
 
+    private Uni<Response> deleteKeycloakAccount(String id) {
         // Step 1: Get Admin Token
         return getAdminToken()
                 .chain(adminToken -> {
@@ -259,15 +357,71 @@ public class UserService {
                 });
     }
 
-    @WithTransaction
-    public Uni<Response> updateUser(Long id, UserUpdateDTO userUpdateDTO) {
-        return userRepository.findUserById(id)
-                .onItem().ifNull().failWith(new RuntimeException("User not found"))
-                .onItem().transform(existingUser -> {
-                    userMapper.updateEntityFromDTO(existingUser, userUpdateDTO);
-                    return existingUser;
+    // Drop the user row and every cached copy of it; the Keycloak account is already gone
+    private Uni<Void> removeLocalUser(UserEntity user) {
+        if (user == null) {
+            return Uni.createFrom().voidItem();
+        }
+        // Loaded and removed in the transaction so the delete cascades to the company
+        return Panache.withTransaction(() -> userRepository.findById(user.getId())
+                        .call(managed -> managed != null ? userRepository.delete(managed) : Uni.createFrom().voidItem()))
+                .invoke(deleted -> {
+                    if (deleted != null) {
+                        userAvailabilityService.removeUser(deleted);
+                    }
                 })
-                .chain(userRepository::createUser) // Save updated user
+                .chain(() -> userCacheService.evict(user.getId()))
+                .call(() -> keycloakUserIdResolver.forget(user.getUsername()))
+                .invoke(() -> userSearchService.remove(user.getId()))
+                .onFailure().recoverWithUni(failure -> {
+                    LOGGER.error("Keycloak account of user {} deleted but removing the local user failed", user.getId(), failure);
+                    return Uni.createFrom().voidItem();
+                });
+    }
+
+    /**
+     * Keycloak id for either kind of user id: a database id (all digits) is looked up by primary key,
+     * anything else already is a Keycloak id. Fails with 404 for an unknown database id.
+     */
+    public Uni<String> resolveKeycloakId(String userId) {
+        if (!isDatabaseId(userId)) {
+            return Uni.createFrom().item(userId);
+        }
+        return Panache.withSession(() -> userRepository.findById(Long.valueOf(userId)))
+                .onItem().ifNull().failWith(() -> new UserException("User not found: " + userId, Response.Status.NOT_FOUND, "USER_NOT_FOUND"))
+                .chain(this::keycloakIdOf)
+                .onItem().ifNull().failWith(() -> new UserException("User " + userId + " has no Keycloak account", Response.Status.NOT_FOUND, "KEYCLOAK_USER_NOT_FOUND"));
+    }
+
+    // Rows created before keycloak_id existed are resolved by username once and backfilled
+    private Uni<String> keycloakIdOf(UserEntity user) {
+        if (user.getKeycloakId() != null) {
+            return Uni.createFrom().item(user.getKeycloakId());
+        }
+        return keycloakUserIdResolver.resolve(user.getUsername())
+                .call(keycloakId -> keycloakId == null
+                        ? Uni.createFrom().voidItem()
+                        : Panache.withTransaction(() -> userRepository.updateKeycloakId(user.getId(), keycloakId)));
+    }
+
+    private static boolean isDatabaseId(String userId) {
+        return userId != null && !userId.isEmpty() && userId.length() < 19 && userId.chars().allMatch(Character::isDigit);
+    }
+
+    public Uni<Response> updateUser(Long id, UserUpdateDTO userUpdateDTO) {
+        String[] previousEmail = new String[1];
+        return Panache.withTransaction(() -> userRepository.findByIdWithCompany(id)
+                        .onItem().ifNull().failWith(new RuntimeException("User not found"))
+                        .onItem().transform(existingUser -> {
+                            previousEmail[0] = existingUser.getEmail();
+                            userMapper.updateEntityFromDTO(existingUser, userUpdateDTO);
+                            return existingUser;
+                        })
+                        .chain(userRepository::createUser)) // Save updated user
+                .invoke(updatedUser -> userAvailabilityService.replaceEmail(previousEmail[0], updatedUser.getEmail()))
+                .invoke(userSearchService::index)
+                // Evicted once committed, so a concurrent miss cannot cache the old row again
+                .call(updatedUser -> userCacheService.evict(id))
                 .onItem().transform(updatedUser -> {
                     UserResponseDTO responseDTO = userMapper.toResponseDTO(updatedUser);
                     return Response.ok(responseDTO).build();
@@ -279,14 +433,12 @@ public class UserService {
                 });
     }
     
-    @WithTransaction
+    @WithSession
     public Uni<Response> getUser(Long id) {
-        return userRepository.findUserById(id)
-                .onItem().ifNull().failWith(new RuntimeException("User not found"))
-                .onItem().transform(user -> {
-                    UserResponseDTO responseDTO = userMapper.toResponseDTO(user);
-                    return Response.ok(responseDTO).build();
-                })
+        return userCacheService.get(id, () -> userRepository.findByIdWithCompany(id)
+                        .onItem().ifNull().failWith(new RuntimeException("User not found"))
+                        .onItem().transform(userMapper::toResponseDTO))
+                .onItem().transform(responseDTO -> Response.ok(responseDTO).build())
                 .onFailure().recoverWithUni(throwable -> {
                     LOGGER.error("Failed to get user with ID: {}", id, throwable);
                     return Uni.createFrom().item(Response.status(Response.Status.NOT_FOUND)
@@ -294,8 +446,53 @@ public class UserService {
                 });
     }
 
+    // Keyset pagination: the cursor carries the last id of the previous page
+    @WithSession
+    public Uni<Response> listUsers(String cursor, int limit, UserFilterDTO filter) {
+        long afterId;
+        try {
+            afterId = decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "Invalid cursor")).build());
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        
+        // One extra row tells whether another page exists
+        return userRepository.findPageAfter(afterId, pageSize + 1, filter)
+                .onItem().transform(rows -> {
+                    boolean hasMore = rows.size() > pageSize;
+                    List<UserResponseDTO> items = rows.stream()
+                            .limit(pageSize)
+                            .map(userMapper::toResponseDTO)
+                            .toList();
+                    String nextCursor = hasMore ? encodeCursor(items.get(items.size() - 1).getId()) : null;
+                    return Response.ok(new UserPageDTO(items, nextCursor, items.size())).build();
+                });
+    }
+    
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("id:" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith("id:")) {
+            throw new IllegalArgumentException("Unknown cursor format");
+        }
+        try {
+            return Long.parseLong(decoded.substring(3));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown cursor format", e);
+        }
+    }
+
     public Uni<TokenModel> getAdminToken() {
-        return keycloakAdminClient.getAdminToken();
+        return keycloakRealmCache.adminToken();
     }
     
     // Enhanced token operations using the new client
@@ -311,20 +508,40 @@ public class UserService {
         return keycloakAdminClient.introspectToken(token);
     }
 
-    // Check for duplicate users before registration
+    // Availability for signup forms only; "definitely free" is answered from memory and is advisory
     public Uni<Boolean> isUsernameTaken(String username) {
-        return userRepository.find("username", username)
-                .firstResult()
-                .onItem().transform(user -> user != null);
+        if (!userAvailabilityService.mightHaveUsername(username)) {
+            return Uni.createFrom().item(false);
+        }
+        return userRepository.existsByUsername(username);
     }
     
     public Uni<Boolean> isEmailTaken(String email) {
-        return userRepository.find("email", email)
-                .firstResult()
-                .onItem().transform(user -> user != null);
+        if (!userAvailabilityService.mightHaveEmail(email)) {
+            return Uni.createFrom().item(false);
+        }
+        return userRepository.existsByEmail(email);
+    }
+    
+    // Availability check for signup forms; free values are usually answered without a query
+    @WithSession
+    public Uni<Response> checkAvailability(String username, String email) {
+        Uni<Boolean> usernameTaken = username != null ? isUsernameTaken(username) : Uni.createFrom().item(false);
+        Uni<Boolean> emailTaken = email != null ? isEmailTaken(email) : Uni.createFrom().item(false);
+        return usernameTaken.chain(usernameResult -> emailTaken.onItem().transform(emailResult -> {
+            Map<String, Object> response = new HashMap<>();
+            if (username != null) {
+                response.put("usernameAvailable", !usernameResult);
+            }
+            if (email != null) {
+                response.put("emailAvailable", !emailResult);
+            }
+            return Response.ok(response).build();
+        }));
     }
     
-    // Enhanced registration with duplicate checking
+    // Enhanced registration with duplicate checking: the insert itself is the check, the
+    // unique indexes on lower(email) and username reject duplicates without a prior lookup or race
     @WithTransaction
     public Uni<Response> registerUserSafe(UserCreateDTO userCreateDTO) {
         // Step 1: Validate input
@@ -333,32 +550,27 @@ public class UserService {
                     .entity("User data is required").build());
         }
 
-        // Step 2: Check for duplicates
-        return isUsernameTaken(userCreateDTO.getUsername())
-                .chain(usernameTaken -> {
-                    if (usernameTaken) {
-                        return Uni.createFrom().item(Response.status(Response.Status.CONFLICT)
-                                .entity("Username already exists").build());
-                    }
-                    
-                    return isEmailTaken(userCreateDTO.getEmail())
-                            .chain(emailTaken -> {
-                                if (emailTaken) {
-                                    return Uni.createFrom().item(Response.status(Response.Status.CONFLICT)
-                                            .entity("Email already exists").build());
-                                }
-                                
-                                // Step 3: Proceed with registration (inline to avoid nested transactions)
-                                UserEntity userEntity = userMapper.toEntity(userCreateDTO);
-                                return userRepository.createUser(userEntity)
-                                        .onItem().transform(savedUser -> {
-                                            UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                            LOGGER.info("User registration successful for username: {}", userCreateDTO.getUsername());
-                                            return Response.status(Response.Status.CREATED)
-                                                    .entity(responseDTO)
-                                                    .build();
-                                        });
-                            });
+        // Step 2: Insert, duplicates surface as unique violations
+        UserEntity userEntity = userMapper.toEntity(userCreateDTO);
+        return userRepository.persistAndFlush(userEntity)
+                .invoke(userAvailabilityService::recordUser)
+                .invoke(userSearchService::index)
+                .onItem().transform(savedUser -> {
+                    UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
+                    LOGGER.info("User registration successful for username: {}", userCreateDTO.getUsername());
+                    return Response.status(Response.Status.CREATED)
+                            .entity(responseDTO)
+                            .build();
+                })
+                .onFailure(failure -> ExceptionUtils.uniqueViolationConstraint(failure) != null)
+                .recoverWithUni(failure -> {
+                    // The flush failed, so the transaction can only roll back
+                    String message = duplicateMessage(ExceptionUtils.uniqueViolationConstraint(failure));
+                    LOGGER.warn("Duplicate registration for username: {} ({})", userCreateDTO.getUsername(), message);
+                    return Panache.currentTransaction()
+                            .invoke(Mutiny.Transaction::markForRollback)
+                            .replaceWith(Response.status(Response.Status.CONFLICT)
+                                    .entity(message).build());
                 })
                 .onFailure().recoverWithUni(throwable -> {
                     LOGGER.error("User registration failed for username: {}", userCreateDTO.getUsername(), throwable);
@@ -367,70 +579,121 @@ public class UserService {
                 });
     }
     
+    private static String duplicateMessage(String constraint) {
+        if (UserRepository.EMAIL_UNIQUE_INDEX.equals(constraint)) {
+            return "Email already exists";
+        }
+        if (UserRepository.USERNAME_UNIQUE_INDEX.equals(constraint)) {
+            return "Username already exists";
+        }
+        return "User already exists";
+    }
+    
+    // Single-query probe for flows that must know about duplicates before calling Keycloak. Always
+    // asks the database: the availability filters only know this replica's writes
+    Uni<Response> duplicateUserResponse(UserCreateDTO userCreateDTO) {
+        return userRepository.findConflicts(userCreateDTO.getEmail(), userCreateDTO.getUsername())
+                .onItem().transform(conflicts -> {
+                    if (!conflicts.any()) {
+                        return null;
+                    }
+                    String error = conflicts.emailTaken()
+                            ? "User with this email already exists"
+                            : "User with this username already exists";
+                    return Response.status(Response.Status.CONFLICT)
+                            .entity(Map.of("error", error,
+                                           "emailTaken", conflicts.emailTaken(),
+                                           "usernameTaken", conflicts.usernameTaken()))
+                            .build();
+                });
+    }
+    
     /**
      * Enhanced registration flow with email verification
+     *
+     * Stages and what they wait for:
+     *   duplicate-check, admin-token     (independent, run together)
+     *   save-user                        (after duplicate-check; the only step in a transaction)
+     *   keycloak-create                  (after save-user has committed)
+     *   verification-email               (only once Keycloak created the account)
      */
-    @WithTransaction
     public Uni<Response> registerUserWithEmailVerification(UserCreateDTO userCreateDTO) {
         // Step 1: Validate input
         if (userCreateDTO == null || userCreateDTO.getEmail() == null) {
             return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
                     .entity(Map.of("error", "User data and email are required")).build());
         }
-
-        // Step 2: Check if user already exists
-        return userRepository.find("email", userCreateDTO.getEmail())
-                .firstResult()
-                .chain(existingUser -> {
-                    if (existingUser != null) {
-                        return Uni.createFrom().item(Response.status(Response.Status.CONFLICT)
-                                .entity(Map.of("error", "User with this email already exists")).build());
+        String pipeline = "register-with-verification";
+        KeycloackUserDTO keycloakUser = convertToKeycloackUserDTO(userCreateDTO);
+
+        // Step 2: Duplicate probe (one query) and admin token (usually cached) together
+        Uni<Optional<Response>> duplicateCheck = pipelineTimings.stage(pipeline, "duplicate-check",
+                Panache.withSession(() -> duplicateUserResponse(userCreateDTO)).onItem().transform(Optional::ofNullable));
+        Uni<Optional<TokenModel>> adminToken = pipelineTimings.stage(pipeline, "admin-token",
+                getAdminToken().onItem().transform(Optional::ofNullable)
+                        .onFailure().recoverWithItem(failure -> {
+                            LOGGER.warn("Could not get a Keycloak admin token, continuing with local registration", failure);
+                            return Optional.empty();
+                        }));
+
+        return pipelineTimings.pipeline(pipeline, Uni.combine().all().unis(duplicateCheck, adminToken).asTuple()
+                .chain(checks -> {
+                    if (checks.getItem1().isPresent()) {
+                        return Uni.createFrom().item(checks.getItem1().get());
                     }
 
                     // Step 3: Save to database
                     UserEntity userEntity = userMapper.toEntity(userCreateDTO);
                     userEntity.setDisabled(true); // Start as disabled until email verified
 
-                    return userRepository.createUser(userEntity)
+                    return pipelineTimings.stage(pipeline, "save-user",
+                                    Panache.withTransaction(() -> userRepository.createUser(userEntity)))
+                            .invoke(userAvailabilityService::recordUser)
+                            .invoke(userSearchService::index)
                             .chain(savedUser -> {
-                                // Step 4: Generate verification token
+                                // Step 4: Register with Keycloak, then send the verification email
                                 String verificationToken = generateVerificationToken();
-                                
-                                // Step 5: Register with Keycloak
-                                return registerWithKeycloak(userCreateDTO)
-                                        .chain(keycloakResponse -> {
-                                            // Step 6: Send verification email
-                                            return sendVerificationEmail(savedUser, verificationToken)
-                                                    .onItem().transform(emailResult -> {
-                                                        UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                                        
-                                                        Map<String, Object> response = new HashMap<>();
-                                                        response.put("user", responseDTO);
-                                                        response.put("message", "Registration successful! Please check your email to verify your account.");
-                                                        response.put("emailSent", true);
-                                                        response.put("keycloakStatus", keycloakResponse.getStatus());
-                                                        
-                                                        LOGGER.info("User registration completed: {}, Email verification sent", savedUser.getEmail());
-                                                        
-                                                        return Response.status(Response.Status.CREATED)
-                                                                .entity(response)
-                                                                .build();
-                                                    })
-                                                    .onFailure().recoverWithUni(emailError -> {
-                                                        LOGGER.error("Email sending failed during registration", emailError);
-                                                        
-                                                        UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                                        Map<String, Object> response = new HashMap<>();
-                                                        response.put("user", responseDTO);
-                                                        response.put("message", "Registration successful but email sending failed. Please contact support.");
-                                                        response.put("emailSent", false);
-                                                        response.put("keycloakStatus", keycloakResponse.getStatus());
-                                                        
-                                                        return Uni.createFrom().item(Response.status(Response.Status.CREATED)
-                                                                .entity(response)
-                                                                .build());
-                                                    });
-                                        });
+                                Uni<Response> keycloakStep = pipelineTimings.stage(pipeline, "keycloak-create",
+                                        registerWithKeycloak(checks.getItem2().orElse(null), keycloakUser))
+                                        .call(keycloakResponse -> linkKeycloakAccount(savedUser, keycloakResponse));
+
+                                return keycloakStep.chain(keycloakResponse -> {
+                                    Uni<Boolean> emailStep;
+                                    if (keycloakResponse.getStatus() != 201) {
+                                        // No account to verify (conflict, rejected or Keycloak unreachable)
+                                        LOGGER.warn("Keycloak did not create {} (status {}), verification email not sent",
+                                                savedUser.getUsername(), keycloakResponse.getStatus());
+                                        emailStep = Uni.createFrom().item(false);
+                                    } else {
+                                        // The mail client blocks, so it runs on a worker thread
+                                        emailStep = pipelineTimings.stage(pipeline, "verification-email",
+                                                Uni.createFrom().deferred(() -> sendVerificationEmail(savedUser, verificationToken))
+                                                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                                                        .replaceWith(true)
+                                                        .onFailure().recoverWithItem(emailError -> {
+                                                            LOGGER.error("Email sending failed during registration", emailError);
+                                                            return false;
+                                                        }));
+                                    }
+                                    return emailStep.onItem().transform(emailSent -> {
+                                        Map<String, Object> response = new HashMap<>();
+                                        response.put("user", userMapper.toResponseDTO(savedUser));
+                                        response.put("message", emailSent
+                                                ? "Registration successful! Please check your email to verify your account."
+                                                : keycloakResponse.getStatus() == 201
+                                                        ? "Registration successful but email sending failed. Please contact support."
+                                                        : "Registration saved but the account could not be activated yet. Please contact support.");
+                                        response.put("emailSent", emailSent);
+                                        response.put("keycloakStatus", keycloakResponse.getStatus());
+
+                                        if (emailSent) {
+                                            LOGGER.info("User registration completed: {}, Email verification sent", savedUser.getEmail());
+                                        }
+                                        return Response.status(Response.Status.CREATED)
+                                                .entity(response)
+                                                .build();
+                                    });
+                                });
                             });
                 })
                 .onFailure().recoverWithUni(throwable -> {
@@ -438,15 +701,15 @@ public class UserService {
                     return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                             .entity(Map.of("error", "Registration failed: " + throwable.getMessage()))
                             .build());
-                });
+                }));
     }
 
-    private Uni<Response> registerWithKeycloak(UserCreateDTO userCreateDTO) {
-        return getAdminToken()
-                .chain(adminToken -> {
-                    KeycloackUserDTO keycloakUser = convertToKeycloackUserDTO(userCreateDTO);
-                    return keycloakAdminClient.createUser(BEARER_PREFIX + adminToken.getAccess_token(), keycloakUser);
-                })
+    // 202 when Keycloak could not be reached; the local registration stands either way
+    private Uni<Response> registerWithKeycloak(TokenModel adminToken, KeycloackUserDTO keycloakUser) {
+        if (adminToken == null) {
+            return Uni.createFrom().item(Response.status(Response.Status.ACCEPTED).build());
+        }
+        return createKeycloakUser(adminToken, keycloakUser)
                 .onFailure().recoverWithUni(failure -> {
                     LOGGER.warn("Keycloak registration failed, continuing with local registration", failure);
                     return Uni.createFrom().item(Response.status(Response.Status.ACCEPTED).build());
@@ -511,9 +774,10 @@ public class UserService {
     }
     
     public Uni<KeycloackUserDTO> getUserByIdFromKeycloak(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getUserById(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.getUserById(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId)));
     }
     
     public Uni<Integer> getUsersCount() {
@@ -524,57 +788,61 @@ public class UserService {
     
     // Password and account management
     public Uni<Response> resetUserPassword(String userId, String newPassword, boolean isTemporary) {
-        return getAdminToken()
-                .chain(adminToken -> {
-                    java.util.Map<String, Object> passwordData = new java.util.HashMap<>();
-                    passwordData.put("value", newPassword);
-                    passwordData.put("temporary", isTemporary);
-                    passwordData.put("type", "password");
-                    
-                    return keycloakAdminClient.resetPassword(
-                            BEARER_PREFIX + adminToken.getAccess_token(), userId, passwordData);
-                });
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> {
+                            java.util.Map<String, Object> passwordData = new java.util.HashMap<>();
+                            passwordData.put("value", newPassword);
+                            passwordData.put("temporary", isTemporary);
+                            passwordData.put("type", "password");
+                            
+                            return keycloakAdminClient.resetPassword(
+                                    BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId, passwordData);
+                        }));
     }
     
     public Uni<Response> enableDisableUser(String userId, boolean enabled) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.enableUser(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId, enabled));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.enableUser(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId, enabled)));
     }
     
     public Uni<Response> sendVerificationEmail(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.sendVerifyEmail(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.sendVerifyEmail(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId)));
     }
     
     public Uni<Response> sendPasswordResetEmail(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> {
-                    List<String> actions = List.of("UPDATE_PASSWORD");
-                    return keycloakAdminClient.sendExecuteActionsEmail(
-                            BEARER_PREFIX + adminToken.getAccess_token(), userId, actions);
-                });
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> {
+                            List<String> actions = List.of("UPDATE_PASSWORD");
+                            return keycloakAdminClient.sendExecuteActionsEmail(
+                                    BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId, actions);
+                        }));
     }
     
     // Session management
-    public Uni<List<java.util.Map<String, Object>>> getUserSessions(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getUserSessions(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId));
+    public Uni<List<KeycloakSession>> getUserSessions(String userId) {
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.getUserSessions(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId)));
     }
     
     public Uni<Response> logoutAllUserSessions(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.logoutAllUserSessions(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.logoutAllUserSessions(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId)));
     }
     
     // Group management
-    public Uni<List<java.util.Map<String, Object>>> getAllGroups() {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getGroups(
-                        BEARER_PREFIX + adminToken.getAccess_token()));
+    public Uni<List<KeycloakGroup>> getAllGroups() {
+        return keycloakRealmCache.groups();
     }
     
     public Uni<Response> createGroup(String groupName, String description) {
@@ -588,32 +856,34 @@ public class UserService {
                     
                     return keycloakAdminClient.createGroup(
                             BEARER_PREFIX + adminToken.getAccess_token(), group);
-                });
+                })
+                .invoke(keycloakRealmCache::invalidateGroups);
     }
     
-    public Uni<List<java.util.Map<String, Object>>> getUserGroups(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getUserGroups(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId));
+    public Uni<List<KeycloakGroup>> getUserGroups(String userId) {
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> userPermissionCache.groups(keycloakUserId));
     }
     
     public Uni<Response> addUserToGroup(String userId, String groupId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.addUserToGroup(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId, groupId));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.addUserToGroup(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId, groupId))
+                        .call(() -> userPermissionCache.invalidate(keycloakUserId)));
     }
     
     public Uni<Response> removeUserFromGroup(String userId, String groupId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.removeUserFromGroup(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId, groupId));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakAdminClient.removeUserFromGroup(
+                                BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId, groupId))
+                        .call(() -> userPermissionCache.invalidate(keycloakUserId)));
     }
     
     // Role management
-    public Uni<List<java.util.Map<String, Object>>> getAllRoles() {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getRoles(
-                        BEARER_PREFIX + adminToken.getAccess_token()));
+    public Uni<List<KeycloakRole>> getAllRoles() {
+        return keycloakRealmCache.roles();
     }
     
     public Uni<Response> createRole(String roleName, String description) {
@@ -627,253 +897,47 @@ public class UserService {
                     
                     return keycloakAdminClient.createRole(
                             BEARER_PREFIX + adminToken.getAccess_token(), role);
-                });
+                })
+                .invoke(keycloakRealmCache::invalidateRoles);
     }
     
-    public Uni<List<java.util.Map<String, Object>>> getUserRoles(String userId) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getUserRoles(
-                        BEARER_PREFIX + adminToken.getAccess_token(), userId));
+    public Uni<List<KeycloakRole>> getUserRoles(String userId) {
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> userPermissionCache.roles(keycloakUserId));
     }
     
     public Uni<Response> addRoleToUser(String userId, String roleName) {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getRoleByName(
-                        BEARER_PREFIX + adminToken.getAccess_token(), roleName))
-                .chain(role -> getAdminToken()
-                        .chain(adminToken -> keycloakAdminClient.addRolesToUser(
-                                BEARER_PREFIX + adminToken.getAccess_token(), userId, List.of(role))));
+        return resolveKeycloakId(userId)
+                .chain(keycloakUserId -> getAdminToken()
+                        .chain(adminToken -> keycloakRealmCache.role(roleName)
+                                // Roles created outside this service show up only after the next refresh
+                                .onItem().ifNull().switchTo(() -> keycloakAdminClient.getRoleByName(
+                                        BEARER_PREFIX + adminToken.getAccess_token(), roleName))
+                                .chain(role -> keycloakAdminClient.addRolesToUser(
+                                        BEARER_PREFIX + adminToken.getAccess_token(), keycloakUserId, List.of(role))))
+                        .call(() -> userPermissionCache.invalidate(keycloakUserId)));
     }
     
     // Realm and client management
-    public Uni<java.util.Map<String, Object>> getRealmInfo() {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getRealmInfo(
-                        BEARER_PREFIX + adminToken.getAccess_token()));
+    public Uni<KeycloakRealm> getRealmInfo() {
+        return keycloakRealmCache.realmInfo();
     }
     
-    public Uni<List<java.util.Map<String, Object>>> getClients() {
-        return getAdminToken()
-                .chain(adminToken -> keycloakAdminClient.getClients(
-                        BEARER_PREFIX + adminToken.getAccess_token()));
+    public Uni<List<KeycloakClient>> getClients() {
+        return keycloakRealmCache.clients();
     }
     
-    public Uni<List<java.util.Map<String, Object>>> getEvents(String type, String client, String user, Integer first, Integer max) {
+    public Uni<List<KeycloakEvent>> getEvents(String type, String client, String user, Integer first, Integer max) {
         return getAdminToken()
                 .chain(adminToken -> keycloakAdminClient.getEvents(
-                        BEARER_PREFIX + adminToken.getAccess_token(), type, client, user, first, max));
+                        BEARER_PREFIX + adminToken.getAccess_token(), type, client, user, null, first, max));
     }
 
     /**
-     * Improved registration: Keycloak First approach with compensation logic
+     * Keycloak-first registration, run as a persisted saga (see RegistrationSagaService)
      */
-    @WithTransaction
     public Uni<Response> registerUserKeycloakFirst(UserCreateDTO userCreateDTO) {
         LOGGER.info("Starting Keycloak-first registration for user: {}", userCreateDTO.getEmail());
-        
-        // Step 1: Validate input
-        if (userCreateDTO.getEmail() == null || userCreateDTO.getUsername() == null) {
-            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
-                    .entity(Map.of("error", "User data, email, and username are required")).build());
-        }
-
-        // Step 2: Check if user already exists in database
-        return userRepository.find("email", userCreateDTO.getEmail())
-                .firstResult()
-                .chain(existingUser -> {
-                    if (existingUser != null) {
-                        LOGGER.warn("User already exists in database: {}", userCreateDTO.getEmail());
-                        return Uni.createFrom().item(Response.status(Response.Status.CONFLICT)
-                                .entity(Map.of("error", "User with this email already exists")).build());
-                    }
-
-                    // Step 3: Register with Keycloak FIRST
-                    return registerWithKeycloakFirst(userCreateDTO)
-                            .chain(keycloakResponse -> {
-                                if (keycloakResponse.getStatus() == 201) {
-                                    // Step 4: If Keycloak succeeds, save to database
-                                    return saveUserToDatabase(userCreateDTO)
-                                            .chain(savedUser -> {
-                                                // Step 5: Send welcome email
-                                                return sendWelcomeEmailAsync(savedUser)
-                                                        .onItem().transform(emailResult -> {
-                                                            UserResponseDTO responseDTO = userMapper.toResponseDTO(savedUser);
-                                                            
-                                                            Map<String, Object> response = new HashMap<>();
-                                                            response.put("user", responseDTO);
-                                                            response.put("message", "User registered successfully");
-                                                            response.put("keycloakRegistered", true);
-                                                            response.put("databaseSaved", true);
-                                                            response.put("emailSent", emailResult.equals("success"));
-                                                            
-                                                            LOGGER.info("Registration completed successfully for: {}", savedUser.getEmail());
-                                                            
-                                                            return Response.status(Response.Status.CREATED)
-                                                                    .entity(response)
-                                                                    .build();
-                                                        });
-                                            })
-                                            .onFailure().recoverWithUni(dbError -> {
-                                                // Step 6: Database save failed - COMPENSATE by deleting from Keycloak
-                                                LOGGER.error("Database save failed, initiating Keycloak cleanup for: {}", userCreateDTO.getEmail(), dbError);
-                                                
-                                                return cleanupKeycloakUser(userCreateDTO.getUsername())
-                                                        .onItem().transform(cleanupResult -> {
-                                                            Map<String, Object> errorResponse = new HashMap<>();
-                                                            errorResponse.put("error", "Registration failed during database save");
-                                                            errorResponse.put("message", "Database error occurred, Keycloak user cleaned up");
-                                                            errorResponse.put("keycloakCleanup", cleanupResult);
-                                                            errorResponse.put("originalError", dbError.getMessage());
-                                                            
-                                                            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                                    .entity(errorResponse)
-                                                                    .build();
-                                                        })
-                                                        .onFailure().recoverWithUni(cleanupError -> {
-                                                            LOGGER.error("CRITICAL: Failed to cleanup Keycloak user after DB failure", cleanupError);
-                                                            
-                                                            Map<String, Object> criticalError = new HashMap<>();
-                                                            criticalError.put("error", "Critical registration failure");
-                                                            criticalError.put("message", "Both database save and Keycloak cleanup failed");
-                                                            criticalError.put("keycloakUser", userCreateDTO.getUsername());
-                                                            criticalError.put("requiresManualCleanup", true);
-                                                            
-                                                            return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                                    .entity(criticalError)
-                                                                    .build());
-                                                        });
-                                            });
-                                } else if (keycloakResponse.getStatus() == 409) {
-                                    // User already exists in Keycloak
-                                    LOGGER.warn("User already exists in Keycloak: {}", userCreateDTO.getUsername());
-                                    return Uni.createFrom().item(Response.status(Response.Status.CONFLICT)
-                                            .entity(Map.of("error", "User already exists in Keycloak")).build());
-                                } else {
-                                    // Other Keycloak errors
-                                    LOGGER.error("Keycloak registration failed with status: {}", keycloakResponse.getStatus());
-                                    return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
-                                            .entity(Map.of("error", "Keycloak registration failed", 
-                                                          "status", keycloakResponse.getStatus())).build());
-                                }
-                            });
-                })
-                .onFailure().recoverWithUni(throwable -> {
-                    LOGGER.error("Registration failed for email: {}", userCreateDTO.getEmail(), throwable);
-                    return Uni.createFrom().item(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                            .entity(Map.of("error", "Registration failed: " + throwable.getMessage()))
-                            .build());
-                });
-    }
-
-    /**
-     * Register user with Keycloak first
-     */
-    private Uni<Response> registerWithKeycloakFirst(UserCreateDTO userCreateDTO) {
-        return getAdminToken()
-                .chain(adminToken -> {
-                    if (adminToken == null || adminToken.getAccess_token() == null) {
-                        return Uni.createFrom().failure(new RuntimeException("Failed to obtain Keycloak admin token"));
-                    }
-
-                    KeycloackUserDTO keycloakUser = convertToKeycloackUserDTO(userCreateDTO);
-                    
-                    LOGGER.debug("Registering user with Keycloak: {}", userCreateDTO.getUsername());
-                    
-                    return keycloakAdminClient.createUser(BEARER_PREFIX + adminToken.getAccess_token(), keycloakUser)
-                            .onItem().transform(response -> {
-                                LOGGER.info("Keycloak registration response for {}: {}", userCreateDTO.getUsername(), response.getStatus());
-                                return response;
-                            });
-                })
-                .onFailure().recoverWithUni(failure -> {
-                    LOGGER.error("Keycloak registration failed for user: {}", userCreateDTO.getUsername(), failure);
-                    return Uni.createFrom().failure(new RuntimeException("Keycloak registration failed: " + failure.getMessage()));
-                });
-    }
-
-    /**
-     * Save user to database
-     */
-    private Uni<UserEntity> saveUserToDatabase(UserCreateDTO userCreateDTO) {
-        UserEntity userEntity = userMapper.toEntity(userCreateDTO);
-        
-        LOGGER.debug("Saving user to database: {}", userCreateDTO.getEmail());
-        
-        return userRepository.createUser(userEntity)
-                .onItem().transform(savedUser -> {
-                    LOGGER.info("User saved to database successfully: {}", savedUser.getEmail());
-                    return savedUser;
-                })
-                .onFailure().invoke(failure -> {
-                    LOGGER.error("Database save failed for user: {}", userCreateDTO.getEmail(), failure);
-                });
-    }
-
-    /**
-     * Send welcome email asynchronously
-     */
-    private Uni<String> sendWelcomeEmailAsync(UserEntity user) {
-        return Uni.createFrom().item(() -> {
-            try {
-                String result = twilioEmailService.sendWelcomeEmail(user.getEmail(), user.getFirstName());
-                LOGGER.info("Welcome email sent successfully to: {}", user.getEmail());
-                return "success";
-            } catch (Exception e) {
-                LOGGER.warn("Failed to send welcome email to {}: {}", user.getEmail(), e.getMessage());
-                return "failed";
-            }
-        });
-    }
-
-    /**
-     * Cleanup Keycloak user in case of database failure (Compensation)
-     */
-    private Uni<String> cleanupKeycloakUser(String username) {
-        LOGGER.warn("Starting Keycloak cleanup for user: {}", username);
-        
-        return getAdminToken()
-                .chain(adminToken -> {
-                    if (adminToken == null || adminToken.getAccess_token() == null) {
-                        return Uni.createFrom().item("cleanup_failed_no_token");
-                    }
-
-                    // First, find the user by username to get the ID
-                    return findKeycloakUserByUsername(username, adminToken.getAccess_token())
-                            .chain(userId -> {
-                                if (userId != null) {
-                                    // Delete the user
-                                    return userClient.deleteUser(userId, BEARER_PREFIX + adminToken.getAccess_token())
-                                            .onItem().transform(response -> {
-                                                if (response.getStatus() >= 200 && response.getStatus() < 300) {
-                                                    LOGGER.info("Keycloak user cleanup successful for: {}", username);
-                                                    return "cleanup_successful";
-                                                } else {
-                                                    LOGGER.error("Keycloak cleanup failed with status: {} for user: {}", response.getStatus(), username);
-                                                    return "cleanup_failed_delete_error";
-                                                }
-                                            });
-                                } else {
-                                    LOGGER.warn("Keycloak user not found for cleanup: {}", username);
-                                    return Uni.createFrom().item("cleanup_skipped_user_not_found");
-                                }
-                            });
-                })
-                .onFailure().recoverWithUni(failure -> {
-                    LOGGER.error("Keycloak cleanup failed for user: {}", username, failure);
-                    return Uni.createFrom().item("cleanup_failed_exception");
-                });
-    }
-
-    /**
-     * Find Keycloak user by username to get user ID for deletion
-     */
-    private Uni<String> findKeycloakUserByUsername(String username, String accessToken) {
-        // This is a simplified version - in real implementation, you'd need to search for the user
-        // For now, we'll return a placeholder since the exact Keycloak admin API search isn't implemented
-        LOGGER.debug("Searching for Keycloak user: {}", username);
-        
-        // TODO: Implement actual user search in Keycloak
-        // For now, return null to indicate user not found (safe fallback)
-        return Uni.createFrom().item((String) null);
+        return registrationSagaService.register(userCreateDTO);
     }
-}
\ No newline at end of file
+}
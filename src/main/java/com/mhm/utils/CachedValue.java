@@ -0,0 +1,110 @@
+package com.mhm.utils;
+
+import io.smallrye.mutiny.Uni;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A single asynchronously loaded value kept for a TTL.
+ *
+ * Concurrent callers share one load, and failed or null loads are not kept. Once a value has
+ * lived for the refresh-ahead fraction of its TTL, callers still get it immediately while one
+ * background load replaces it, so a value in steady use never expires in front of a caller.
+ * invalidate() drops the value and discards loads that were already running.
+ */
+public class CachedValue<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachedValue.class);
+
+    private final String name;
+    private final Supplier<Uni<T>> loader;
+    private final ToLongFunction<T> ttlMillis;
+    private final double refreshAhead;
+    private final LongSupplier clock;
+
+    private T value;
+    private long refreshAt;
+    private long expiresAt;
+    private Uni<T> pending;
+    private long generation;
+
+    public CachedValue(String name, Supplier<Uni<T>> loader, ToLongFunction<T> ttlMillis, double refreshAhead) {
+        this(name, loader, ttlMillis, refreshAhead, System::currentTimeMillis);
+    }
+
+    CachedValue(String name, Supplier<Uni<T>> loader, ToLongFunction<T> ttlMillis, double refreshAhead, LongSupplier clock) {
+        if (refreshAhead <= 0 || refreshAhead > 1) {
+            throw new IllegalArgumentException("refreshAhead must be in (0, 1]");
+        }
+        this.name = name;
+        this.loader = loader;
+        this.ttlMillis = ttlMillis;
+        this.refreshAhead = refreshAhead;
+        this.clock = clock;
+    }
+
+    public Uni<T> get() {
+        return Uni.createFrom().deferred(() -> {
+            T current;
+            Uni<T> refresh = null;
+            synchronized (this) {
+                long now = clock.getAsLong();
+                if (value == null || now >= expiresAt) {
+                    return pending != null ? pending : startLoad();
+                }
+                current = value;
+                if (pending == null && now >= refreshAt) {
+                    refresh = startLoad();
+                }
+            }
+            if (refresh != null) {
+                refresh.subscribe().with(
+                        refreshed -> LOGGER.debug("{} refreshed in the background", name),
+                        failure -> LOGGER.warn("Background refresh of {} failed, keeping the current value", name, failure));
+            }
+            return Uni.createFrom().item(current);
+        });
+    }
+
+    /**
+     * Drop the value; the next get() loads it again
+     */
+    public synchronized void invalidate() {
+        generation++;
+        value = null;
+        pending = null;
+    }
+
+    public synchronized boolean isLoaded() {
+        return value != null && clock.getAsLong() < expiresAt;
+    }
+
+    // Called with the lock held
+    private Uni<T> startLoad() {
+        long loadGeneration = generation;
+        Uni<T> load = Uni.createFrom().deferred(() -> loader.get())
+                .onItemOrFailure().invoke((item, failure) -> complete(loadGeneration, item))
+                .memoize().indefinitely();
+        pending = load;
+        return load;
+    }
+
+    private synchronized void complete(long loadGeneration, T item) {
+        if (loadGeneration != generation) {
+            // Invalidated while loading; the result may predate the change
+            return;
+        }
+        pending = null;
+        if (item != null) {
+            long now = clock.getAsLong();
+            long ttl = Math.max(0, ttlMillis.applyAsLong(item));
+            value = item;
+            expiresAt = now + ttl;
+            refreshAt = now + (long) (ttl * refreshAhead);
+        }
+    }
+}
@@ -284,4 +284,25 @@ public class ExceptionUtils {
             );
         }
     }
-} 
\ No newline at end of file
+    
+    // ===================================
+    // DATABASE CONSTRAINT UTILITIES
+    // ===================================
+    
+    /**
+     * Name of the unique constraint (or index) a failed insert/update violated, null for other failures
+     */
+    public static String uniqueViolationConstraint(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof io.vertx.pgclient.PgException pgException
+                    && "23505".equals(pgException.getSqlState())) {
+                return pgException.getConstraint() != null ? pgException.getConstraint() : "";
+            }
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException violation
+                    && violation.getKind() == org.hibernate.exception.ConstraintViolationException.ConstraintKind.UNIQUE) {
+                return violation.getConstraintName() != null ? violation.getConstraintName() : "";
+            }
+        }
+        return null;
+    }
+}
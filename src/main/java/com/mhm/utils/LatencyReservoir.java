@@ -0,0 +1,63 @@
+package com.mhm.utils;
+
+import java.util.Arrays;
+
+/**
+ * The most recent durations of one operation, in a fixed ring, with percentiles over them.
+ *
+ * Recording is a synchronized array store, so it is cheap enough for every request; percentiles
+ * sort a copy and are meant for the occasional stats call, not the hot path.
+ */
+public class LatencyReservoir {
+
+    private final long[] samples;
+    private long recorded;
+    private long maxNanos;
+
+    public LatencyReservoir(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[(int) (recorded % samples.length)] = nanos;
+        recorded++;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] window;
+        long count;
+        long max;
+        synchronized (this) {
+            count = recorded;
+            max = maxNanos;
+            window = Arrays.copyOf(samples, (int) Math.min(recorded, samples.length));
+        }
+        Arrays.sort(window);
+        return new Snapshot(count, window.length, percentile(window, 0.50), percentile(window, 0.95),
+                percentile(window, 0.99), millis(max));
+    }
+
+    // Nearest-rank percentile over the sorted window
+    static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return millis(sorted[Math.max(0, rank - 1)]);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * count is every sample ever recorded, window the most recent ones the percentiles are taken over;
+     * maxMillis covers the whole lifetime
+     */
+    public record Snapshot(long count, int window, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+}
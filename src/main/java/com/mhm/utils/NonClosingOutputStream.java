@@ -0,0 +1,36 @@
+package com.mhm.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Lets encoders wrapping a shared stream be closed (to flush padding) without closing the target.
+ */
+public class NonClosingOutputStream extends OutputStream {
+
+    private final OutputStream delegate;
+
+    public NonClosingOutputStream(OutputStream delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        delegate.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        delegate.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        // Keep the target stream open
+    }
+}
@@ -0,0 +1,84 @@
+package com.mhm.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Gives every role or group a stable bit so a user's memberships fit in a few longs.
+ *
+ * Bits are assigned on first sight and never reused, so sets encoded earlier stay valid as the
+ * realm grows. Testing a bit is an array read and a mask; the latest representation seen for
+ * each key is kept (so it should be immutable) to turn a set back into the Keycloak view.
+ */
+public class PermissionIndex<T> {
+
+    private final Map<String, Integer> bits = new ConcurrentHashMap<>();
+    private final List<T> representations = new ArrayList<>();
+
+    public synchronized int bit(String key, T representation) {
+        Integer existing = bits.get(key);
+        if (existing != null) {
+            // A role edited, or deleted and recreated, keeps its bit but not its old id or description
+            representations.set(existing, representation);
+            return existing;
+        }
+        int bit = representations.size();
+        representations.add(representation);
+        bits.put(key, bit);
+        return bit;
+    }
+
+    /**
+     * Bit of a known key, or -1 if the key has never been seen (so no set contains it)
+     */
+    public int find(String key) {
+        Integer bit = bits.get(key);
+        return bit != null ? bit : -1;
+    }
+
+    /**
+     * Replace the stored representations of known keys with current ones (unknown keys are skipped)
+     */
+    public synchronized void refresh(Collection<T> current, Function<T, String> key) {
+        for (T representation : current) {
+            Integer bit = bits.get(key.apply(representation));
+            if (bit != null) {
+                representations.set(bit, representation);
+            }
+        }
+    }
+
+    public long[] encode(Collection<Integer> setBits) {
+        int max = setBits.stream().mapToInt(Integer::intValue).max().orElse(-1);
+        long[] words = new long[max / 64 + 1];
+        for (int bit : setBits) {
+            words[bit >>> 6] |= 1L << bit;
+        }
+        return words;
+    }
+
+    public static boolean contains(long[] words, int bit) {
+        return bit >= 0 && (bit >>> 6) < words.length && (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public synchronized List<T> decode(long[] words) {
+        List<T> decoded = new ArrayList<>();
+        for (int word = 0; word < words.length; word++) {
+            long remaining = words[word];
+            while (remaining != 0) {
+                int bit = word * 64 + Long.numberOfTrailingZeros(remaining);
+                decoded.add(representations.get(bit));
+                remaining &= remaining - 1;
+            }
+        }
+        return decoded;
+    }
+
+    public int size() {
+        return bits.size();
+    }
+}
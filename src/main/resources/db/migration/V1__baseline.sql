@@ -1,6 +1,4 @@
--- Custom DDL to control column order
-DROP TABLE IF EXISTS users CASCADE;
-DROP TABLE IF EXISTS company CASCADE;
+-- Baseline schema, previously recreated on every start by import.sql
 
 -- Create company table first (referenced by users)
 CREATE TABLE company (
@@ -26,4 +24,7 @@ CREATE TABLE users (
     country VARCHAR(100),
     disabled BOOLEAN DEFAULT FALSE,
     company_id BIGINT REFERENCES company(id)
-); 
\ No newline at end of file
+);
+
+-- Id generator of UserEntity (PanacheEntity default, pooled by 50)
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
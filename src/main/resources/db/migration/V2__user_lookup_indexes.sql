@@ -0,0 +1,9 @@
+-- Indexes for the duplicate checks and lookups done on every registration
+
+-- Emails are unique regardless of case; lookups must use lower(email) to hit this index
+CREATE UNIQUE INDEX users_email_lower_uk ON users (lower(email));
+
+CREATE UNIQUE INDEX users_username_uk ON users (username);
+
+-- Foreign keys are not indexed automatically in PostgreSQL
+CREATE INDEX users_company_id_idx ON users (company_id);
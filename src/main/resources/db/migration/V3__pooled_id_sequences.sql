@@ -0,0 +1,16 @@
+-- Ids of users and company come from pooled sequences (blocks of 50 allocated in memory)
+-- instead of per-row serial defaults, so inserts need no round trip to learn their id and can be batched.
+-- With the pooled optimizer a sequence value v covers the ids v-49..v.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS company_seq START WITH 1 INCREMENT BY 50;
+
+-- Start the first block above every existing id
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) FROM users) + 50);
+SELECT setval('company_seq', (SELECT COALESCE(MAX(id), 0) FROM company) + 50);
+
+-- The serial defaults would hand out ids that collide with the pooled blocks
+ALTER TABLE users ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE company ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS users_id_seq;
+DROP SEQUENCE IF EXISTS company_id_seq;
@@ -0,0 +1,8 @@
+-- Keycloak user id (the token subject) of each user, so either id resolves the other in one index lookup.
+-- Null for users registered before this column existed or whose Keycloak registration failed;
+-- those are filled in the first time their Keycloak id is resolved by username.
+
+ALTER TABLE users ADD COLUMN keycloak_id VARCHAR(36);
+
+-- Unique among non-null values
+CREATE UNIQUE INDEX users_keycloak_id_uk ON users (keycloak_id);
@@ -0,0 +1,21 @@
+-- Step state of Keycloak-first registrations, so a registration interrupted between Keycloak and the
+-- database (failure or crash) is compensated later by deleting the Keycloak account it left behind.
+-- Passwords are never stored here.
+
+CREATE TABLE registration_saga (
+    id              UUID PRIMARY KEY,
+    username        VARCHAR(50)  NOT NULL,
+    email           VARCHAR(255) NOT NULL,
+    keycloak_id     VARCHAR(36),
+    user_id         BIGINT,
+    state           VARCHAR(20)  NOT NULL,
+    attempts        INT          NOT NULL DEFAULT 0,
+    last_error      TEXT,
+    next_attempt_at TIMESTAMPTZ,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+-- The recovery poll only looks at unfinished sagas
+CREATE INDEX registration_saga_unfinished_idx ON registration_saga (state, updated_at)
+    WHERE state IN ('STARTED', 'KEYCLOAK_CREATED', 'USER_SAVED', 'COMPENSATING');
@@ -0,0 +1,9 @@
+-- Where each named incremental export of Keycloak events stopped. Events at last_time are listed
+-- by key, since several can share a millisecond and only some of them may have been exported.
+
+CREATE TABLE event_export_checkpoint (
+    name       VARCHAR(100) PRIMARY KEY,
+    last_time  BIGINT       NOT NULL,
+    last_keys  TEXT[]       NOT NULL,
+    updated_at TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
@@ -0,0 +1,14 @@
+-- Queued emails that still failed after redelivery, kept so they can be inspected and replayed
+-- (GET /admin/email-dead-letters, POST /admin/email-dead-letters/{id}/replay).
+
+CREATE TABLE email_dead_letter (
+    id          BIGSERIAL PRIMARY KEY,
+    route       VARCHAR(50)  NOT NULL,
+    email       JSONB        NOT NULL,
+    last_error  TEXT,
+    created_at  TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    replayed_at TIMESTAMPTZ
+);
+
+-- Listing and replay only look at the ones not replayed yet
+CREATE INDEX email_dead_letter_pending_idx ON email_dead_letter (created_at) WHERE replayed_at IS NULL;
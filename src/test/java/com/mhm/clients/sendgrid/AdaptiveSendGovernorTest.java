@@ -0,0 +1,131 @@
+package com.mhm.clients.sendgrid;
+
+import com.mhm.exceptions.EmailDeliveryException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveSendGovernorTest {
+
+    private static SendGovernorSettings settings(int initialLimit, int failureThreshold, long openStateMillis) {
+        return settings(initialLimit, 4, failureThreshold, openStateMillis);
+    }
+
+    private static SendGovernorSettings settings(int initialLimit, int maxAttempts, int failureThreshold,
+                                                 long openStateMillis) {
+        return new SendGovernorSettings(initialLimit, 1, 64, 50, 0.5, maxAttempts, 5, 50,
+            failureThreshold, openStateMillis, 5000);
+    }
+
+    @Test
+    public void testThrottledCallIsRetriedAfterRetryAfterAndShrinksLimit() {
+        AdaptiveSendGovernor governor = new AdaptiveSendGovernor(settings(16, 10, 1000));
+        AtomicInteger calls = new AtomicInteger();
+
+        long start = System.currentTimeMillis();
+        String result = governor.execute(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw EmailDeliveryException.fromResponse(429, "too many requests", "1");
+            }
+            return "sent";
+        });
+
+        assertEquals("sent", result);
+        assertEquals(2, calls.get());
+        assertTrue(System.currentTimeMillis() - start >= 1000, "Retry-After was not honoured");
+        assertTrue(governor.getLimit() <= 8, "Limit " + governor.getLimit() + " was not decreased");
+    }
+
+    @Test
+    public void testClientErrorsAreNotRetried() {
+        AdaptiveSendGovernor governor = new AdaptiveSendGovernor(settings(4, 10, 1000));
+        AtomicInteger calls = new AtomicInteger();
+
+        EmailDeliveryException e = assertThrows(EmailDeliveryException.class, () -> governor.execute(() -> {
+            calls.incrementAndGet();
+            throw EmailDeliveryException.fromResponse(400, "bad request", null);
+        }));
+
+        assertEquals(400, e.getStatusCode());
+        assertEquals(1, calls.get());
+        assertEquals(AdaptiveSendGovernor.CircuitState.CLOSED, governor.getCircuitState());
+    }
+
+    @Test
+    public void testCircuitOpensFailsFastAndClosesAfterTrial() throws Exception {
+        AdaptiveSendGovernor governor = new AdaptiveSendGovernor(settings(4, 3, 200));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(EmailDeliveryException.class, () -> governor.execute(() -> {
+            calls.incrementAndGet();
+            throw EmailDeliveryException.fromResponse(503, "unavailable", null);
+        }));
+        assertEquals(AdaptiveSendGovernor.CircuitState.OPEN, governor.getCircuitState());
+        assertEquals(3, calls.get());
+
+        EmailDeliveryException open = assertThrows(EmailDeliveryException.class,
+            () -> governor.execute(() -> "never called"));
+        assertEquals("EMAIL_CIRCUIT_OPEN", open.getErrorCode());
+
+        Thread.sleep(250);
+        assertEquals("sent", governor.execute(() -> "sent"));
+        assertEquals(AdaptiveSendGovernor.CircuitState.CLOSED, governor.getCircuitState());
+    }
+
+    @Test
+    public void testTrialThatThrowsUnexpectedlyFreesTheTrialSlot() throws Exception {
+        AdaptiveSendGovernor governor = new AdaptiveSendGovernor(settings(4, 1, 1, 100));
+        assertThrows(EmailDeliveryException.class, () -> governor.execute(() -> {
+            throw EmailDeliveryException.fromResponse(503, "unavailable", null);
+        }));
+        assertEquals(AdaptiveSendGovernor.CircuitState.OPEN, governor.getCircuitState());
+
+        Thread.sleep(150);
+        assertThrows(IllegalStateException.class, () -> governor.execute(() -> {
+            throw new IllegalStateException("bug in the call");
+        }));
+        assertEquals("sent", governor.execute(() -> "sent"));
+        assertEquals(AdaptiveSendGovernor.CircuitState.CLOSED, governor.getCircuitState());
+    }
+
+    @Test
+    public void testConcurrencySettlesAtProviderCapacity() throws Exception {
+        int capacity = 6;
+        AdaptiveSendGovernor governor = new AdaptiveSendGovernor(settings(32, 10, 1000, 1000));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger throttled = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                results.add(executor.submit(() -> governor.execute(() -> {
+                    try {
+                        if (active.incrementAndGet() > capacity) {
+                            throttled.incrementAndGet();
+                            throw EmailDeliveryException.fromResponse(429, "slow down", null);
+                        }
+                        Thread.sleep(2);
+                        return "sent";
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                })));
+            }
+            for (Future<String> result : results) {
+                assertEquals("sent", result.get());
+            }
+        }
+
+        assertTrue(governor.getLimit() <= capacity * 2, "Limit " + governor.getLimit() + " did not converge");
+        assertTrue(throttled.get() < 400, "Throttled " + throttled.get() + " times");
+    }
+}
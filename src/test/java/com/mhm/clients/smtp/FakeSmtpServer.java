@@ -0,0 +1,134 @@
+package com.mhm.clients.smtp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local SMTP stand-in: EHLO with PIPELINING, AUTH PLAIN, MAIL/RCPT/DATA, NOOP, RSET, QUIT.
+ * The connection setup (greeting and AUTH) is delayed to mimic a STARTTLS handshake plus login.
+ * Content containing {@link #REJECT} is refused at the end of DATA; content cut off by the client
+ * closing the connection is not delivered.
+ */
+class FakeSmtpServer implements AutoCloseable {
+
+    static final String REJECT = "X-Reject-Me";
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final long handshakeLatencyMillis;
+
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger activeSessions = new AtomicInteger();
+    final AtomicInteger maxActiveSessions = new AtomicInteger();
+    final List<String> messages = new CopyOnWriteArrayList<>();
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+    FakeSmtpServer(long handshakeLatencyMillis) throws IOException {
+        this.handshakeLatencyMillis = handshakeLatencyMillis;
+        this.serverSocket = new ServerSocket(0);
+        executor.submit(this::acceptLoop);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Simulates the server timing out idle sessions
+    void dropAllConnections() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connections.incrementAndGet();
+                executor.submit(() -> handle(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        maxActiveSessions.accumulateAndGet(activeSessions.incrementAndGet(), Math::max);
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+
+            sleep(handshakeLatencyMillis / 2);
+            reply(out, "220 fake.smtp ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("EHLO")) {
+                    reply(out, "250-fake.smtp\r\n250-PIPELINING\r\n250 AUTH PLAIN");
+                } else if (command.startsWith("AUTH")) {
+                    sleep(handshakeLatencyMillis / 2);
+                    reply(out, "235 Authenticated");
+                } else if (command.startsWith("MAIL") || command.startsWith("RCPT")
+                        || command.startsWith("RSET") || command.startsWith("NOOP")) {
+                    reply(out, "250 OK");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 Go ahead");
+                    StringBuilder content = new StringBuilder();
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        content.append(line.startsWith("..") ? line.substring(1) : line).append("\n");
+                    }
+                    if (line == null) {
+                        return;
+                    }
+                    if (content.indexOf(REJECT) >= 0) {
+                        reply(out, "554 Message rejected");
+                    } else {
+                        messages.add(content.toString());
+                        reply(out, "250 Queued");
+                    }
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "502 Unknown command");
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private static void reply(OutputStream out, String text) throws IOException {
+        out.write((text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropAllConnections();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,194 @@
+package com.mhm.clients.smtp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpConnectionPoolTest {
+
+    private static final long HANDSHAKE_LATENCY_MILLIS = 20;
+
+    private FakeSmtpServer server;
+    private SmtpSettings settings;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new FakeSmtpServer(HANDSHAKE_LATENCY_MILLIS);
+        settings = new SmtpSettings("localhost", server.port(), "apikey", "secret",
+            true, false, "test", 2000, 5000);
+    }
+
+    @AfterEach
+    public void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testPoolReusesSessionsAndCapsConnections() throws Exception {
+        try (SmtpConnectionPool pool = newPool(2, 5000)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        pool.execute(connection -> {
+                            connection.send(message("hello"));
+                            return null;
+                        });
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertEquals(100, server.messages.size());
+            assertTrue(pool.getConnectionsOpened() <= 2, "Opened " + pool.getConnectionsOpened() + " connections");
+            assertTrue(server.maxActiveSessions.get() <= 2);
+        }
+    }
+
+    @Test
+    public void testPipelinedBatchPreservesContent() throws Exception {
+        try (SmtpConnectionPool pool = newPool(1, 5000)) {
+            List<SmtpMessage> batch = List.of(message("first"), message(".starts with a dot"), message("third"));
+            pool.execute(connection -> {
+                assertTrue(connection.supportsPipelining());
+                connection.sendAll(batch);
+                return null;
+            });
+
+            assertEquals(3, server.messages.size());
+            assertTrue(server.messages.get(1).contains("\n.starts with a dot\n"));
+            assertEquals(1, server.connections.get());
+        }
+    }
+
+    @Test
+    public void testStaleIdleConnectionIsReplaced() throws Exception {
+        try (SmtpConnectionPool pool = newPool(1, 0)) {
+            pool.execute(connection -> {
+                connection.send(message("before"));
+                return null;
+            });
+            server.dropAllConnections();
+            Thread.sleep(10);
+
+            pool.execute(connection -> {
+                connection.send(message("after"));
+                return null;
+            });
+
+            assertEquals(2, pool.getConnectionsOpened());
+            assertEquals(2, server.messages.size());
+        }
+    }
+
+    /**
+     * The same messages one connection each, then pooled and pipelined. Connection counts are asserted;
+     * with -Dbenchmark.smtp=true the rates are printed and the pooled one has to be clearly higher.
+     */
+    @Test
+    public void testPooledSendingVersusConnectionPerMessage() throws Exception {
+        int messageCount = 50;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            try (SmtpConnection connection = new SmtpConnection(settings, null)) {
+                connection.connect();
+                connection.send(message("single " + i));
+            }
+        }
+        long perMessageNanos = System.nanoTime() - start;
+        assertEquals(messageCount, server.connections.get());
+
+        start = System.nanoTime();
+        try (SmtpConnectionPool pool = newPool(2, 5000)) {
+            for (int i = 0; i < messageCount; i += 10) {
+                List<SmtpMessage> batch = new ArrayList<>();
+                for (int j = i; j < i + 10; j++) {
+                    batch.add(message("pooled " + j));
+                }
+                pool.execute(connection -> {
+                    connection.sendAll(batch);
+                    return null;
+                });
+            }
+            assertEquals(1, pool.getConnectionsOpened());
+        }
+        long pooledNanos = System.nanoTime() - start;
+
+        assertEquals(2 * messageCount, server.messages.size());
+        assertEquals(messageCount + 1, server.connections.get());
+
+        if (Boolean.getBoolean("benchmark.smtp")) {
+            double perMessageRate = messageCount / (perMessageNanos / 1e9);
+            double pooledRate = messageCount / (pooledNanos / 1e9);
+            System.out.printf("SMTP throughput: connection-per-message %.1f msg/s, pooled+pipelined %.1f msg/s (%.1fx)%n",
+                perMessageRate, pooledRate, pooledRate / perMessageRate);
+            assertTrue(pooledRate > perMessageRate * 3, "Pooled sending should be much faster");
+        }
+    }
+
+    @Test
+    public void testRejectedMessageInPipelinedBatchDropsSession() throws Exception {
+        try (SmtpConnectionPool pool = newPool(1, 5000)) {
+            List<SmtpMessage> batch = List.of(message("first"), message(FakeSmtpServer.REJECT), message("third"));
+            SmtpException rejected = assertThrows(SmtpException.class, () -> pool.execute(connection -> {
+                connection.sendAll(batch);
+                return null;
+            }));
+            assertEquals(554, rejected.getReplyCode());
+
+            // The third envelope was already accepted; it must not be ended with an empty body
+            assertEquals(1, server.messages.size());
+            assertTrue(server.messages.get(0).contains("first"));
+            assertEquals(0, pool.getIdleCount());
+
+            pool.execute(connection -> {
+                connection.send(message("third"));
+                return null;
+            });
+            assertEquals(2, pool.getConnectionsOpened());
+            assertEquals(2, server.messages.size());
+            assertTrue(server.messages.get(1).contains("third"));
+        }
+    }
+
+    @Test
+    public void testAddressesThatCouldInjectCommandsAreRefused() {
+        SmtpMessage.ContentWriter content = out -> { };
+        assertThrows(IllegalArgumentException.class,
+            () -> new SmtpMessage("noreply@moba.test\r\nRCPT TO:<victim@moba.test>", List.of("user@moba.test"), content));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SmtpMessage("noreply@moba.test", List.of("user@moba.test>\r\nDATA"), content));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SmtpMessage("noreply@moba.test", List.of("user@moba.test", "no-at-sign"), content));
+    }
+
+    private SmtpConnectionPool newPool(int maxConnections, long validateAfterIdleMillis) {
+        return new SmtpConnectionPool(() -> {
+            SmtpConnection connection = new SmtpConnection(settings, null);
+            connection.connect();
+            return connection;
+        }, maxConnections, 5000, validateAfterIdleMillis, 60000, 1000);
+    }
+
+    private static SmtpMessage message(String body) {
+        return new SmtpMessage("noreply@moba.test", List.of("user@moba.test"), out -> {
+            out.write(("Subject: test\r\n\r\n" + body + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Decode time and allocation of the captured Keycloak payloads, as Map<String, Object> versus the records.
+ *
+ * List payloads are repeated up to a page of {@link #PAGE} entries so one decode is the size of a real
+ * response. Run with -Dbenchmark.decoding=true (on a HotSpot JVM, allocation is read per thread).
+ */
+public class KeycloakDecodingBenchmarkTest {
+
+    private static final int PAGE = Integer.getInteger("benchmark.page", 500);
+    private static final int WARMUP = 2_000;
+    private static final int ROUNDS = 10;
+    private static final int DECODES_PER_ROUND = 500;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private com.sun.management.ThreadMXBean threads;
+
+    @BeforeEach
+    public void checkEnabled() {
+        assumeTrue(Boolean.getBoolean("benchmark.decoding"), "benchmark.decoding not set, skipping decoding benchmark");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "per-thread allocation not available on this JVM");
+    }
+
+    @Test
+    public void testRecordsDecodeWithLessAllocation() throws Exception {
+        JavaType mapList = mapper.getTypeFactory().constructType(new TypeReference<List<Map<String, Object>>>() { });
+        JavaType map = mapper.getTypeFactory().constructType(new TypeReference<Map<String, Object>>() { });
+
+        compare("events  ", page("events.json"), mapList, listOf(KeycloakEvent.class));
+        compare("roles   ", page("roles.json"), mapList, listOf(KeycloakRole.class));
+        compare("groups  ", page("groups.json"), mapList, listOf(KeycloakGroup.class));
+        compare("sessions", page("sessions.json"), mapList, listOf(KeycloakSession.class));
+        compare("clients ", page("clients.json"), mapList, listOf(KeycloakClient.class));
+        compare("realm   ", KeycloakPayloadsTest.payload("realm.json"), map, mapper.constructType(KeycloakRealm.class));
+    }
+
+    private JavaType listOf(Class<?> type) {
+        return mapper.getTypeFactory().constructCollectionType(List.class, type);
+    }
+
+    private byte[] page(String name) throws Exception {
+        ArrayNode captured = (ArrayNode) mapper.readTree(KeycloakPayloadsTest.payload(name));
+        ArrayNode page = mapper.createArrayNode();
+        for (int i = 0; i < PAGE; i++) {
+            page.add(captured.get(i % captured.size()).deepCopy());
+        }
+        return mapper.writeValueAsBytes(page);
+    }
+
+    private void compare(String label, byte[] json, JavaType asMap, JavaType asRecord) throws Exception {
+        ObjectReader mapReader = mapper.readerFor(asMap);
+        ObjectReader recordReader = mapper.readerFor(asRecord);
+        for (int i = 0; i < WARMUP; i++) {
+            mapReader.readValue(json);
+            recordReader.readValue(json);
+        }
+
+        // Alternate rounds so drift (JIT, GC, frequency) hits both sides alike
+        long[] mapNanos = new long[ROUNDS];
+        long[] recordNanos = new long[ROUNDS];
+        long mapBytes = 0;
+        long recordBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] map = measure(mapReader, json);
+            long[] record = measure(recordReader, json);
+            mapNanos[round] = map[0];
+            recordNanos[round] = record[0];
+            mapBytes += map[1];
+            recordBytes += record[1];
+        }
+        mapBytes /= ROUNDS;
+        recordBytes /= ROUNDS;
+
+        System.out.printf("%s %6d bytes json | map %7d ns %8d B | record %7d ns %8d B | allocation -%d%%%n",
+                label, json.length, median(mapNanos), mapBytes, median(recordNanos), recordBytes,
+                100 - recordBytes * 100 / mapBytes);
+        assertTrue(recordBytes < mapBytes, label.trim() + ": records allocated " + recordBytes + " B, maps " + mapBytes + " B");
+    }
+
+    // Per decode: {nanoseconds, allocated bytes}
+    private long[] measure(ObjectReader reader, byte[] json) throws Exception {
+        long thread = Thread.currentThread().threadId();
+        Object sink = null;
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < DECODES_PER_ROUND; i++) {
+            sink = reader.readValue(json);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        assertNotNull(sink);
+        return new long[]{nanos / DECODES_PER_ROUND, allocated / DECODES_PER_ROUND};
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,97 @@
+package com.mhm.models;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Admin API responses captured from Keycloak 23 (src/test/resources/keycloak) decode into the records.
+ *
+ * The mapper keeps Jackson's default of failing on unknown properties, so every field Keycloak sends
+ * that a record does not declare has to be ignored by the record itself.
+ */
+public class KeycloakPayloadsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    static byte[] payload(String name) throws IOException {
+        try (InputStream in = KeycloakPayloadsTest.class.getClassLoader().getResourceAsStream("keycloak/" + name)) {
+            assertNotNull(in, name);
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testRoles() throws IOException {
+        List<KeycloakRole> roles = mapper.readValue(payload("roles.json"), new TypeReference<>() { });
+        assertEquals(6, roles.size());
+        assertEquals(new KeycloakRole("0f6c1f53-3f4e-4c1b-9d0a-2b1f7e6a9c11", "admin", "Realm administrators",
+                false, false, "5b1c2f0e-8d7a-4e0b-a0f5-3c9d2e1b7a64"), roles.get(0));
+        assertTrue(roles.get(2).composite());
+    }
+
+    @Test
+    public void testGroupTree() throws IOException {
+        List<KeycloakGroup> groups = mapper.readValue(payload("groups.json"), new TypeReference<>() { });
+        assertEquals(List.of("/players", "/staff"), groups.stream().map(KeycloakGroup::path).toList());
+        assertEquals(List.of("/players/ranked", "/players/casual"),
+                groups.get(0).subGroups().stream().map(KeycloakGroup::path).toList());
+    }
+
+    @Test
+    public void testSessions() throws IOException {
+        List<KeycloakSession> sessions = mapper.readValue(payload("sessions.json"), new TypeReference<>() { });
+        KeycloakSession session = sessions.get(1);
+        assertEquals("player42", session.username());
+        assertEquals(1729301200000L, session.start());
+        assertTrue(session.rememberMe());
+        assertEquals(Map.of("b4e8c2a6-9d1f-4375-8e0a-6c3f9b2d5e71", "moba-web",
+                "e7c1a9f4-3b8d-4e26-a5f0-d9b2c6e8a143", "moba-launcher"), session.clients());
+    }
+
+    @Test
+    public void testClients() throws IOException {
+        List<KeycloakClient> clients = mapper.readValue(payload("clients.json"), new TypeReference<>() { });
+        assertEquals(List.of("moba-web", "moba-launcher", "moba-authorization"),
+                clients.stream().map(KeycloakClient::clientId).toList());
+        assertEquals(List.of("https://play.example.com/*"), clients.get(0).redirectUris());
+        assertTrue(clients.get(2).serviceAccountsEnabled());
+        assertFalse(clients.get(2).publicClient());
+    }
+
+    @Test
+    public void testEvents() throws IOException {
+        List<KeycloakEvent> events = mapper.readValue(payload("events.json"), new TypeReference<>() { });
+        assertEquals(4, events.size());
+        assertEquals("invalid_user_credentials", events.get(1).error());
+        assertEquals("authorization_code", events.get(2).details().get("grant_type"));
+        // Keycloak 23 left this one without an id
+        assertNull(events.get(2).id());
+    }
+
+    @Test
+    public void testRealm() throws IOException {
+        KeycloakRealm realm = mapper.readValue(payload("realm.json"), KeycloakRealm.class);
+        assertEquals("moba", realm.realm());
+        assertEquals("external", realm.sslRequired());
+        assertEquals(300, realm.accessTokenLifespan());
+        assertEquals(1800, realm.ssoSessionIdleTimeout());
+        assertTrue(realm.verifyEmail());
+        assertTrue(realm.eventsEnabled());
+        assertFalse(realm.adminEventsEnabled());
+    }
+
+    @Test
+    public void testRoleWrittenBackForRoleMappings() throws IOException {
+        KeycloakRole role = new KeycloakRole("7a2d9e84", "user", null, false, false, "realm-id");
+        assertEquals(Map.of("id", "7a2d9e84", "name", "user", "composite", false, "clientRole", false, "containerId", "realm-id"),
+                mapper.readValue(mapper.writeValueAsBytes(role), new TypeReference<Map<String, Object>>() { }));
+    }
+}
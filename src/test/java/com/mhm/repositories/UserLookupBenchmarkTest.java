@@ -0,0 +1,135 @@
+package com.mhm.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Email/username lookup latency at 1M users, before and after the V2 indexes.
+ *
+ * Needs a disposable PostgreSQL database, run with
+ * -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/moba -Dbenchmark.jdbc.user=postgres -Dbenchmark.jdbc.password=moba
+ */
+public class UserLookupBenchmarkTest {
+
+    private static final String SCHEMA = "user_lookup_benchmark";
+    private static final int USERS = Integer.getInteger("benchmark.users", 1_000_000);
+    private static final int SCAN_LOOKUPS = 20;
+    private static final int INDEXED_LOOKUPS = 2_000;
+
+    private Connection connection;
+
+    @BeforeEach
+    public void connect() throws Exception {
+        String url = System.getProperty("benchmark.jdbc.url");
+        assumeTrue(url != null, "benchmark.jdbc.url not set, skipping lookup benchmark");
+        connection = DriverManager.getConnection(url,
+            System.getProperty("benchmark.jdbc.user", "postgres"),
+            System.getProperty("benchmark.jdbc.password", ""));
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+        }
+        runMigration("db/migration/V1__baseline.sql");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users (account_type, first_name, last_name, username, email, disabled) "
+                + "SELECT 'PERSONAL', 'First' || i, 'Last' || i, 'user' || i, 'User' || i || '@example.com', false "
+                + "FROM generate_series(1, " + USERS + ") AS i");
+            statement.execute("ANALYZE users");
+        }
+    }
+
+    @AfterEach
+    public void dropSchema() throws SQLException {
+        if (connection != null) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            }
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testIndexedLookupsAtOneMillionUsers() throws Exception {
+        String byEmail = "SELECT id FROM users WHERE lower(email) = lower(?)";
+        String byUsername = "SELECT id FROM users WHERE username = ?";
+
+        long[] emailScan = measure(byEmail, SCAN_LOOKUPS, i -> "user" + i + "@EXAMPLE.com");
+        long[] usernameScan = measure(byUsername, SCAN_LOOKUPS, i -> "user" + i);
+
+        runMigration("db/migration/V2__user_lookup_indexes.sql");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE users");
+        }
+
+        long[] emailIndexed = measure(byEmail, INDEXED_LOOKUPS, i -> "user" + i + "@EXAMPLE.com");
+        long[] usernameIndexed = measure(byUsername, INDEXED_LOOKUPS, i -> "user" + i);
+
+        report("email    (seq scan)", emailScan);
+        report("username (seq scan)", usernameScan);
+        report("email    (index)   ", emailIndexed);
+        report("username (index)   ", usernameIndexed);
+
+        assertTrue(percentile(emailIndexed, 50) * 10 < percentile(emailScan, 50),
+            "lower(email) index did not speed up lookups");
+        assertTrue(percentile(usernameIndexed, 50) * 10 < percentile(usernameScan, 50),
+            "username index did not speed up lookups");
+    }
+
+    private interface KeyForUser {
+        String key(int userNumber);
+    }
+
+    private long[] measure(String sql, int lookups, KeyForUser keyForUser) throws SQLException {
+        long[] micros = new long[lookups];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < lookups; i++) {
+                statement.setString(1, keyForUser.key(ThreadLocalRandom.current().nextInt(1, USERS + 1)));
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                }
+                micros[i] = (System.nanoTime() - start) / 1_000;
+            }
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private static void report(String label, long[] sorted) {
+        System.out.printf("%s lookups=%d p50=%dus p99=%dus%n",
+            label, sorted.length, percentile(sorted, 50), percentile(sorted, 99));
+    }
+
+    private void runMigration(String resource) throws IOException, SQLException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(in, resource);
+            String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(script);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.mhm.search;
+
+import com.mhm.dto.UserSearchDocument;
+import com.mhm.dto.UserSearchPageDTO;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryUserSearchIndexTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private InMemoryUserSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new InMemoryUserSearchIndex();
+        index.upsert(List.of(
+            user(1L, "jdoe", "john.doe@example.com", "John", "Doe"),
+            user(2L, "jane", "jane.smith@example.com", "Jane", "Smith"),
+            user(3L, "johnny", "johnny@moba.rs", "Johnny", "Bravo"),
+            user(4L, "mmarkovic", "marko@moba.rs", "Marko", "Markovic")
+        )).await().atMost(TIMEOUT);
+    }
+
+    private static UserSearchDocument user(Long id, String username, String email, String firstName, String lastName) {
+        return new UserSearchDocument(id, username, email, firstName, lastName, false);
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, 0, 10).await().atMost(TIMEOUT).getItems().stream()
+            .map(UserSearchDocument::id)
+            .toList();
+    }
+
+    @Test
+    public void testPrefixMatchesAnyField() {
+        // "johnny" by prefix, "john" one edit away
+        assertEquals(List.of(3L, 1L), ids("johnn"));
+        assertTrue(ids("jo").containsAll(List.of(1L, 3L)));
+        assertEquals(List.of(2L), ids("smi"));
+        assertEquals(List.of(4L), ids("marko@"));
+    }
+
+    @Test
+    public void testExactMatchRanksAbovePrefix() {
+        // "john" is a whole token of user 1 and only a prefix of "johnny"
+        assertEquals(List.of(1L, 3L), ids("john"));
+    }
+
+    @Test
+    public void testFuzzyMatchToleratesTypos() {
+        assertEquals(List.of(2L), ids("smiht"));
+        assertEquals(List.of(4L), ids("markovc"));
+        // Two-letter terms are matched by prefix only
+        assertEquals(List.of(), ids("xo"));
+    }
+
+    @Test
+    public void testEveryTermMustMatch() {
+        assertEquals(List.of(1L), ids("john doe"));
+        assertEquals(List.of(3L), ids("johnny bravo"));
+        assertEquals(List.of(), ids("jane doe"));
+    }
+
+    @Test
+    public void testPagination() {
+        UserSearchPageDTO first = index.search("example", 0, 1).await().atMost(TIMEOUT);
+        UserSearchPageDTO second = index.search("example", 1, 1).await().atMost(TIMEOUT);
+
+        assertEquals(2, first.getTotal());
+        assertEquals(1, first.getItems().size());
+        assertEquals(1, second.getItems().size());
+        assertNotEquals(first.getItems().get(0).id(), second.getItems().get(0).id());
+        assertEquals(List.of(), index.search("example", 2, 1).await().atMost(TIMEOUT).getItems());
+    }
+
+    @Test
+    public void testUpdateReplacesOldTokens() {
+        index.upsert(List.of(user(2L, "jane", "jane.jones@example.com", "Jane", "Jones"))).await().atMost(TIMEOUT);
+
+        assertEquals(List.of(), ids("smith"));
+        assertEquals(List.of(2L), ids("jones"));
+        assertEquals(4L, index.count().await().atMost(TIMEOUT));
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(1L).await().atMost(TIMEOUT);
+
+        assertEquals(List.of(3L), ids("john"));
+        assertEquals(3L, index.count().await().atMost(TIMEOUT));
+    }
+
+    @Test
+    public void testRebuildSwapsInNewCopyAndKeepsConcurrentWrites() {
+        AtomicReference<MultiEmitter<? super List<UserSearchDocument>>> emitter = new AtomicReference<>();
+        AtomicReference<Long> loaded = new AtomicReference<>();
+        index.rebuild(Multi.createFrom().<List<UserSearchDocument>>emitter(emitter::set))
+            .subscribe().with(loaded::set);
+
+        emitter.get().emit(List.of(user(10L, "petar", "petar@moba.rs", "Petar", "Petrovic")));
+        // Searches still see the old copy, writes reach both
+        assertEquals(List.of(1L), ids("john doe"));
+        index.upsert(List.of(user(11L, "ana", "ana@moba.rs", "Ana", "Anic"))).await().atMost(TIMEOUT);
+        assertEquals(List.of(11L), ids("anic"));
+
+        emitter.get().complete();
+        assertEquals(1L, loaded.get());
+        assertEquals(List.of(), ids("john doe"));
+        assertEquals(List.of(10L), ids("petar"));
+        assertEquals(List.of(11L), ids("anic"));
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertTrue(InMemoryUserSearchIndex.withinDistance("smith", "smith", 0));
+        assertTrue(InMemoryUserSearchIndex.withinDistance("smiht", "smith", 1));
+        assertTrue(InMemoryUserSearchIndex.withinDistance("markovc", "markovic", 1));
+        assertTrue(InMemoryUserSearchIndex.withinDistance("mrakovc", "markovic", 2));
+        assertFalse(InMemoryUserSearchIndex.withinDistance("jones", "smith", 2));
+        assertFalse(InMemoryUserSearchIndex.withinDistance("ab", "abcd", 1));
+    }
+
+    @Test
+    public void testTokensSplitEmailsAndNames() {
+        assertEquals(List.of("jdoe", "john.doe@example.com", "john", "doe", "example", "com"),
+            List.copyOf(InMemoryUserSearchIndex.tokens(user(1L, "jdoe", "john.doe@example.com", "John", "Doe"))));
+    }
+}
@@ -0,0 +1,64 @@
+package com.mhm.services;
+
+import com.mhm.clients.KeycloakAdminClient;
+import com.mhm.config.KeycloakBulkConfig;
+import com.mhm.dto.BulkMembershipDTO;
+import com.mhm.exceptions.ValidationException;
+import com.mhm.models.KeycloakRole;
+import com.mhm.models.TokenModel;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkMembershipServiceTest {
+
+    @Test
+    public void testUnknownRoleIsAValidationError() {
+        BulkMembershipService service = new BulkMembershipService();
+        service.config = new KeycloakBulkConfig() {
+            @Override
+            public int concurrency() {
+                return 4;
+            }
+
+            @Override
+            public int maxUsers() {
+                return 100;
+            }
+        };
+        service.keycloakRealmCache = new KeycloakRealmCache() {
+            @Override
+            public Uni<TokenModel> adminToken() {
+                TokenModel token = new TokenModel();
+                token.setAccess_token("token");
+                return Uni.createFrom().item(token);
+            }
+
+            @Override
+            public Uni<KeycloakRole> role(String roleName) {
+                return Uni.createFrom().nullItem();
+            }
+        };
+        // What the Quarkus REST client throws for a 404 when no ResponseExceptionMapper is registered
+        service.keycloakAdminClient = (KeycloakAdminClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{KeycloakAdminClient.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getRoleByName")) {
+                        return Uni.createFrom().failure(new WebApplicationException(404));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        BulkMembershipDTO request = new BulkMembershipDTO();
+        request.setUserIds(List.of("user-1"));
+        request.setRoles(List.of("no-such-role"));
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> service.assignRoles(request).collect().asList().await().indefinitely());
+        assertEquals("Unknown role: no-such-role", e.getMessage());
+    }
+}
@@ -0,0 +1,78 @@
+package com.mhm.services;
+
+import com.mhm.models.EventCheckpoint;
+import com.mhm.models.KeycloakEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventExportCursorTest {
+
+    private static KeycloakEvent event(String id, long time) {
+        return new KeycloakEvent(id, time, "LOGIN", "web", "user-1", null, "10.0.0.1", null, null);
+    }
+
+    private static List<String> ids(List<KeycloakEvent> events) {
+        return events.stream().map(KeycloakEvent::id).toList();
+    }
+
+    @Test
+    public void testPagesShiftedByNewEventsAreNotRepeated() {
+        EventExportCursor cursor = new EventExportCursor(null);
+        assertEquals(List.of("e", "d", "c"), ids(cursor.accept(List.of(event("e", 50), event("d", 40), event("c", 30)))));
+        // Two events arrived meanwhile, so the next offset starts with "d" and "c" again
+        assertEquals(List.of("b", "a"), ids(cursor.accept(List.of(event("d", 40), event("c", 30), event("b", 20), event("a", 10)))));
+        assertEquals(5, cursor.emitted());
+    }
+
+    @Test
+    public void testNewerEventsSeenMidExportAreLeftForNextRun() {
+        EventExportCursor cursor = new EventExportCursor(null);
+        cursor.accept(List.of(event("b", 20), event("a", 10)));
+        assertEquals(List.of(), ids(cursor.accept(List.of(event("new", 60), event("a", 10)))));
+        assertEquals(new EventCheckpoint(20, Set.of("b")), cursor.checkpoint());
+    }
+
+    @Test
+    public void testSameMillisecondEventsAreKeptApart() {
+        EventExportCursor cursor = new EventExportCursor(null);
+        assertEquals(List.of("y"), ids(cursor.accept(List.of(event("y", 30)))));
+        assertEquals(List.of("x", "w"), ids(cursor.accept(List.of(event("y", 30), event("x", 30), event("w", 20)))));
+    }
+
+    @Test
+    public void testCheckpointStopsAtAlreadyExportedEvents() {
+        EventExportCursor cursor = new EventExportCursor(new EventCheckpoint(30, Set.of("c1")));
+        List<KeycloakEvent> fresh = cursor.accept(List.of(event("e", 50), event("c2", 30), event("c1", 30), event("b", 20)));
+
+        assertEquals(List.of("e", "c2"), ids(fresh));
+        assertTrue(cursor.reachedCheckpoint());
+        assertEquals(new EventCheckpoint(50, Set.of("e")), cursor.checkpoint());
+    }
+
+    @Test
+    public void testCheckpointAtSameTimeKeepsEarlierKeys() {
+        EventExportCursor cursor = new EventExportCursor(new EventCheckpoint(30, Set.of("c1")));
+        cursor.accept(List.of(event("c2", 30), event("c1", 30)));
+
+        assertFalse(cursor.reachedCheckpoint());
+        assertEquals(new EventCheckpoint(30, Set.of("c1", "c2")), cursor.checkpoint());
+    }
+
+    @Test
+    public void testNothingNewKeepsOldCheckpoint() {
+        EventCheckpoint since = new EventCheckpoint(30, Set.of("c"));
+        EventExportCursor cursor = new EventExportCursor(since);
+        assertEquals(List.of(), cursor.accept(List.of(event("c", 30), event("b", 20))));
+        assertSame(since, cursor.checkpoint());
+    }
+
+    @Test
+    public void testKeyFallsBackWithoutId() {
+        KeycloakEvent event = new KeycloakEvent(null, 10, "LOGIN", "web", "user-1", "s-1", "10.0.0.1", null, null);
+        assertEquals("10|LOGIN|user-1|s-1|web|10.0.0.1", event.key());
+    }
+}
@@ -0,0 +1,86 @@
+package com.mhm.services;
+
+import com.mhm.utils.LatencyReservoir;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * p50 of the email-verification registration, stages one after another versus the independent ones
+ * combined, against stubbed stage latencies (each drawn around its median with some jitter).
+ *
+ * The stubs stand for the duplicate probe, an uncached admin token, the user insert, the Keycloak
+ * create and the verification email. Run with -Dbenchmark.pipeline=true.
+ */
+public class RegistrationPipelineBenchmarkTest {
+
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 200);
+
+    private static final long DUPLICATE_CHECK_MILLIS = 4;
+    private static final long ADMIN_TOKEN_MILLIS = 15;
+    private static final long SAVE_USER_MILLIS = 5;
+    private static final long KEYCLOAK_CREATE_MILLIS = 30;
+    private static final long EMAIL_MILLIS = 40;
+
+    private final PipelineTimings timings = new PipelineTimings();
+
+    @BeforeEach
+    public void checkEnabled() {
+        assumeTrue(Boolean.getBoolean("benchmark.pipeline"), "benchmark.pipeline not set, skipping pipeline benchmark");
+    }
+
+    @Test
+    public void testCombinedStagesLowerMedianLatency() {
+        for (int i = 0; i < RUNS; i++) {
+            sequential().await().indefinitely();
+            combined().await().indefinitely();
+        }
+
+        LatencyReservoir.Snapshot sequential = timings.snapshot().get("sequential").get(PipelineTimings.TOTAL);
+        LatencyReservoir.Snapshot combined = timings.snapshot().get("combined").get(PipelineTimings.TOTAL);
+        System.out.printf("registration p50: sequential %.1f ms | combined %.1f ms | -%.0f%% (p95 %.1f -> %.1f ms)%n",
+                sequential.p50Millis(), combined.p50Millis(), 100 - combined.p50Millis() * 100 / sequential.p50Millis(),
+                sequential.p95Millis(), combined.p95Millis());
+        timings.snapshot().get("combined").forEach((stage, snapshot) ->
+                System.out.printf("  %-18s p50 %.1f ms%n", stage, snapshot.p50Millis()));
+
+        // The probe and the token overlap, so roughly the shorter of them comes off the median
+        assertTrue(sequential.p50Millis() - combined.p50Millis() > DUPLICATE_CHECK_MILLIS / 2.0,
+                "combined " + combined.p50Millis() + " ms, sequential " + sequential.p50Millis() + " ms");
+    }
+
+    // Every stage after the previous one, as the flow was before
+    private Uni<Boolean> sequential() {
+        String pipeline = "sequential";
+        return timings.pipeline(pipeline, stage(pipeline, "duplicate-check", DUPLICATE_CHECK_MILLIS)
+                .chain(() -> stage(pipeline, "admin-token", ADMIN_TOKEN_MILLIS))
+                .chain(() -> stage(pipeline, "save-user", SAVE_USER_MILLIS))
+                .chain(() -> stage(pipeline, "keycloak-create", KEYCLOAK_CREATE_MILLIS))
+                .chain(() -> stage(pipeline, "verification-email", EMAIL_MILLIS)));
+    }
+
+    // The graph of UserService.registerUserWithEmailVerification
+    private Uni<Boolean> combined() {
+        String pipeline = "combined";
+        return timings.pipeline(pipeline, Uni.combine().all().unis(
+                        stage(pipeline, "duplicate-check", DUPLICATE_CHECK_MILLIS),
+                        stage(pipeline, "admin-token", ADMIN_TOKEN_MILLIS)).asTuple()
+                .chain(() -> stage(pipeline, "save-user", SAVE_USER_MILLIS))
+                .chain(() -> stage(pipeline, "keycloak-create", KEYCLOAK_CREATE_MILLIS))
+                .chain(() -> stage(pipeline, "verification-email", EMAIL_MILLIS)));
+    }
+
+    private Uni<Boolean> stage(String pipeline, String stage, long medianMillis) {
+        return timings.stage(pipeline, stage, Uni.createFrom().deferred(() -> {
+            // +-25% around the median
+            long millis = Math.max(1, Math.round(medianMillis * (0.75 + ThreadLocalRandom.current().nextDouble() * 0.5)));
+            return Uni.createFrom().item(true).onItem().delayIt().by(Duration.ofMillis(millis));
+        }));
+    }
+}
@@ -0,0 +1,83 @@
+package com.mhm.services;
+
+import com.mhm.dto.UserCreateDTO;
+import com.mhm.models.KeycloackUserDTO;
+import com.mhm.models.RegistrationSaga;
+import com.mhm.models.TokenModel;
+import com.mhm.repositories.RegistrationSagaRepository;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegistrationSagaServiceTest {
+
+    private static KeycloackUserDTO keycloakUser(String id, String username, String email, Long createdTimestamp) {
+        KeycloackUserDTO user = new KeycloackUserDTO();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setCreatedTimestamp(createdTimestamp);
+        return user;
+    }
+
+    @Test
+    public void testFailedSagaStartIsNotCompensated() {
+        AtomicInteger keycloakCalls = new AtomicInteger();
+        AtomicInteger compensations = new AtomicInteger();
+
+        RegistrationSagaService service = new RegistrationSagaService();
+        service.pipelineTimings = new PipelineTimings();
+        service.sagaRepository = new RegistrationSagaRepository() {
+            @Override
+            public Uni<Instant> start(UUID id, String username, String email) {
+                return Uni.createFrom().failure(new IllegalStateException("connection refused"));
+            }
+
+            @Override
+            public Uni<Void> markCompensating(UUID id, String error, long leaseSeconds) {
+                compensations.incrementAndGet();
+                return Uni.createFrom().voidItem();
+            }
+        };
+        service.userService = new UserService() {
+            @Override
+            Uni<Response> createKeycloakUser(TokenModel adminToken, KeycloackUserDTO keycloakUser) {
+                keycloakCalls.incrementAndGet();
+                return Uni.createFrom().item(Response.status(Response.Status.CREATED).build());
+            }
+        };
+
+        UserCreateDTO user = new UserCreateDTO();
+        user.setUsername("player42");
+        user.setEmail("player42@example.com");
+        TokenModel token = new TokenModel();
+        token.setAccess_token("token");
+
+        Response response = service.startSaga(user, token).await().indefinitely();
+
+        assertEquals(500, response.getStatus());
+        assertEquals(0, keycloakCalls.get(), "Keycloak was called without a saga row");
+        assertEquals(0, compensations.get(), "Compensation was scheduled for a saga that does not exist");
+    }
+
+    @Test
+    public void testUnknownOutcomeOnlyClaimsAccountsCreatedAfterTheSagaStarted() {
+        Instant started = Instant.parse("2026-10-19T10:00:00Z");
+        RegistrationSaga saga = new RegistrationSaga(UUID.randomUUID(), "player42", "player42@example.com", null, 0, started);
+
+        KeycloackUserDTO existing = keycloakUser("old", "player42", "player42@example.com", started.toEpochMilli() - 60_000);
+        KeycloackUserDTO unknownAge = keycloakUser("unknown", "player42", "player42@example.com", null);
+        assertNull(RegistrationSagaService.createdBy(saga, List.of(existing, unknownAge)));
+
+        KeycloackUserDTO ours = keycloakUser("new", "player42", "player42@example.com", started.toEpochMilli() + 150);
+        KeycloackUserDTO otherEmail = keycloakUser("other", "player42", "someone@example.com", started.toEpochMilli() + 150);
+        assertEquals("new", RegistrationSagaService.createdBy(saga, List.of(existing, otherEmail, ours)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.mhm.utils;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachedValueTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CachedValue<Integer> counting(long ttlMillis) {
+        return new CachedValue<>("test", () -> Uni.createFrom().item(loads.incrementAndGet()),
+            value -> ttlMillis, 0.8, now::get);
+    }
+
+    @Test
+    public void testValueIsKeptUntilItExpires() {
+        CachedValue<Integer> cached = counting(1_000);
+
+        assertEquals(1, cached.get().await().atMost(TIMEOUT));
+        now.addAndGet(500);
+        assertEquals(1, cached.get().await().atMost(TIMEOUT));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(1_000);
+        assertEquals(2, cached.get().await().atMost(TIMEOUT));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() {
+        List<UniEmitter<? super Integer>> emitters = new ArrayList<>();
+        CachedValue<Integer> cached = new CachedValue<>("test", () -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().emitter(emitters::add);
+        }, value -> 1_000, 0.8, now::get);
+
+        List<Integer> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            cached.get().subscribe().with(results::add);
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, emitters.size());
+
+        emitters.get(0).complete(42);
+        assertEquals(List.of(42, 42, 42, 42, 42), results);
+    }
+
+    @Test
+    public void testStaleValueIsServedWhileRefreshingInBackground() {
+        CachedValue<Integer> cached = counting(1_000);
+        assertEquals(1, cached.get().await().atMost(TIMEOUT));
+
+        // Past the refresh-ahead point but before expiry: the current value comes back at once
+        now.addAndGet(900);
+        assertEquals(1, cached.get().await().atMost(TIMEOUT));
+        assertEquals(2, loads.get());
+
+        assertEquals(2, cached.get().await().atMost(TIMEOUT));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testInvalidateDropsValueAndDiscardsRunningLoad() {
+        List<UniEmitter<? super Integer>> emitters = new ArrayList<>();
+        CachedValue<Integer> cached = new CachedValue<>("test", () -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().emitter(emitters::add);
+        }, value -> 1_000, 0.8, now::get);
+
+        cached.get().subscribe().with(value -> { });
+        cached.invalidate();
+        emitters.get(0).complete(1);
+        assertFalse(cached.isLoaded());
+
+        cached.get().subscribe().with(value -> { });
+        assertEquals(2, loads.get());
+        emitters.get(1).complete(2);
+        assertTrue(cached.isLoaded());
+        assertEquals(2, cached.get().await().atMost(TIMEOUT));
+    }
+
+    @Test
+    public void testFailedLoadIsNotKept() {
+        AtomicInteger attempts = new AtomicInteger();
+        CachedValue<Integer> cached = new CachedValue<>("test", () -> attempts.incrementAndGet() == 1
+            ? Uni.createFrom().failure(new IllegalStateException("down"))
+            : Uni.createFrom().item(7), value -> 1_000, 0.8, now::get);
+
+        assertThrows(IllegalStateException.class, () -> cached.get().await().atMost(TIMEOUT));
+        assertEquals(7, cached.get().await().atMost(TIMEOUT));
+        assertEquals(2, attempts.get());
+    }
+}
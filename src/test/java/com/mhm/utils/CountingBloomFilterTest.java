@@ -0,0 +1,56 @@
+package com.mhm.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountingBloomFilterTest {
+
+    @Test
+    public void testNoFalseNegativesAndFalsePositiveRateNearTarget() {
+        int entries = 100_000;
+        CountingBloomFilter filter = new CountingBloomFilter(entries, 0.01);
+        for (int i = 0; i < entries; i++) {
+            filter.add("user" + i);
+        }
+
+        for (int i = 0; i < entries; i++) {
+            assertTrue(filter.mightContain("user" + i), "False negative for user" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("free" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "False positive rate " + rate + " too far above 1%");
+        assertEquals(7, filter.getHashCount());
+        // ~9.6 counters per entry at 1%, 4 bits each
+        assertTrue(filter.getSizeInBytes() < entries * 5L, "Filter uses " + filter.getSizeInBytes() + " bytes");
+    }
+
+    @Test
+    public void testRemoveKeepsOtherEntries() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("user" + i);
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            filter.remove("user" + i);
+        }
+
+        for (int i = 1; i < 1_000; i += 2) {
+            assertTrue(filter.mightContain("user" + i), "Removal dropped user" + i);
+        }
+        int stillPresent = 0;
+        for (int i = 0; i < 1_000; i += 2) {
+            if (filter.mightContain("user" + i)) {
+                stillPresent++;
+            }
+        }
+        assertTrue(stillPresent < 20, stillPresent + " removed entries still reported");
+    }
+}
@@ -0,0 +1,56 @@
+package com.mhm.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyReservoirTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    public void testPercentilesUseNearestRank() {
+        LatencyReservoir reservoir = new LatencyReservoir(100);
+        for (int i = 1; i <= 100; i++) {
+            reservoir.record(i * MILLIS);
+        }
+
+        LatencyReservoir.Snapshot snapshot = reservoir.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(100, snapshot.window());
+        assertEquals(50.0, snapshot.p50Millis());
+        assertEquals(95.0, snapshot.p95Millis());
+        assertEquals(99.0, snapshot.p99Millis());
+        assertEquals(100.0, snapshot.maxMillis());
+    }
+
+    @Test
+    public void testWindowKeepsMostRecentSamples() {
+        LatencyReservoir reservoir = new LatencyReservoir(4);
+        reservoir.record(500 * MILLIS);
+        for (int i = 0; i < 4; i++) {
+            reservoir.record(2 * MILLIS);
+        }
+
+        LatencyReservoir.Snapshot snapshot = reservoir.snapshot();
+        assertEquals(5, snapshot.count());
+        assertEquals(4, snapshot.window());
+        // The old outlier left the window but is still the lifetime maximum
+        assertEquals(2.0, snapshot.p99Millis());
+        assertEquals(500.0, snapshot.maxMillis());
+    }
+
+    @Test
+    public void testEmptyReservoir() {
+        LatencyReservoir.Snapshot snapshot = new LatencyReservoir(8).snapshot();
+        assertEquals(0, snapshot.count());
+        assertEquals(0.0, snapshot.p50Millis());
+    }
+
+    @Test
+    public void testSubMillisecondPrecision() {
+        LatencyReservoir reservoir = new LatencyReservoir(1);
+        reservoir.record(1_234_567);
+        assertEquals(1.23, reservoir.snapshot().p50Millis());
+    }
+}
@@ -0,0 +1,60 @@
+package com.mhm.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PermissionIndexTest {
+
+    @Test
+    public void testBitsAreStableAndSetsRoundTrip() {
+        PermissionIndex<Map<String, Object>> index = new PermissionIndex<>();
+        int admin = index.bit("admin", Map.of("name", "admin"));
+        int user = index.bit("user", Map.of("name", "user"));
+        assertEquals(admin, index.bit("admin", Map.of("name", "admin")));
+        assertNotEquals(admin, user);
+
+        long[] set = index.encode(List.of(user));
+        assertTrue(PermissionIndex.contains(set, user));
+        assertFalse(PermissionIndex.contains(set, admin));
+        assertFalse(PermissionIndex.contains(set, index.find("unknown")));
+        assertEquals(List.of(Map.of("name", "user")), index.decode(set));
+    }
+
+    @Test
+    public void testLatestRepresentationIsDecoded() {
+        PermissionIndex<Map<String, Object>> index = new PermissionIndex<>();
+        int admin = index.bit("admin", Map.of("name", "admin", "id", "1"));
+        long[] set = index.encode(List.of(admin));
+
+        // Deleted and recreated: same key, new id
+        assertEquals(admin, index.bit("admin", Map.of("name", "admin", "id", "2")));
+        assertEquals(List.of(Map.of("name", "admin", "id", "2")), index.decode(set));
+
+        // Edited in the realm, seen through the realm view; keys never seen are not added
+        index.refresh(List.of(Map.of("name", "admin", "id", "2", "description", "Administrators"),
+                Map.of("name", "moderator", "id", "3")), role -> (String) role.get("name"));
+        assertEquals(List.of(Map.of("name", "admin", "id", "2", "description", "Administrators")), index.decode(set));
+        assertEquals(-1, index.find("moderator"));
+    }
+
+    @Test
+    public void testSetsSpanSeveralWords() {
+        PermissionIndex<Map<String, Object>> index = new PermissionIndex<>();
+        for (int i = 0; i < 200; i++) {
+            index.bit("role" + i, Map.of("name", "role" + i));
+        }
+        long[] set = index.encode(List.of(index.find("role3"), index.find("role64"), index.find("role199")));
+
+        assertEquals(4, set.length);
+        assertTrue(PermissionIndex.contains(set, index.find("role199")));
+        assertFalse(PermissionIndex.contains(set, index.find("role63")));
+        // Bits added after the set was encoded are simply absent
+        assertFalse(PermissionIndex.contains(set, index.bit("role300", Map.of("name", "role300"))));
+        assertEquals(List.of("role3", "role64", "role199"),
+            index.decode(set).stream().map(role -> role.get("name")).toList());
+    }
+}